@@ -0,0 +1,61 @@
+package geektime.tdd.model;
+
+import org.openjdk.jmh.annotations.*;
+
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+//64个调用线程，每次按id和email各查一个学生：阻塞版本串行做两个unit of work，异步版本同时发出再合并
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(64)
+public class AsyncStudentRepositoryBenchmark {
+    static final int ROWS = 10_000;
+
+    private EntityManagerFactory factory;
+    private UnitOfWork unitOfWork;
+    private AsyncStudentRepository async;
+    private long firstId;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        factory = Persistence.createEntityManagerFactory("student");
+        unitOfWork = new UnitOfWork(factory);
+        async = new AsyncStudentRepository(unitOfWork);
+        unitOfWork.execute(repository -> repository.saveAll(IntStream.range(0, ROWS)
+                .mapToObj(i -> new Student("first" + i, "last" + i, "student" + i + "@email.com"))::iterator));
+        firstId = unitOfWork.execute(repository -> repository.summaries(0, 1).get(0).id());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        async.close();
+        factory.close();
+    }
+
+    @Benchmark
+    public boolean blocking() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long id = firstId + random.nextInt(ROWS);
+        String email = "student" + random.nextInt(ROWS) + "@email.com";
+        Optional<Student> byId = unitOfWork.execute(repository -> repository.findById(id));
+        Optional<Student> byEmail = unitOfWork.execute(repository -> repository.findByEmail(email));
+        return byId.isPresent() && byEmail.isPresent();
+    }
+
+    @Benchmark
+    public boolean async() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long id = firstId + random.nextInt(ROWS);
+        String email = "student" + random.nextInt(ROWS) + "@email.com";
+        CompletableFuture<Optional<Student>> byId = async.findById(id);
+        CompletableFuture<Optional<Student>> byEmail = async.findByEmail(email);
+        return byId.thenCombine(byEmail, (first, second) -> first.isPresent() && second.isPresent()).join();
+    }
+}
@@ -0,0 +1,57 @@
+package geektime.tdd.model;
+
+import org.openjdk.jmh.annotations.*;
+
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+//同一个EntityManagerFactory和连接池，1/16/64个线程各自按unit of work查询
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class StudentConcurrencyBenchmark {
+    static final int ROWS = 10_000;
+
+    private EntityManagerFactory factory;
+    private UnitOfWork unitOfWork;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        factory = Persistence.createEntityManagerFactory("student");
+        unitOfWork = new UnitOfWork(factory);
+        unitOfWork.execute(repository -> repository.saveAll(IntStream.range(0, ROWS)
+                .mapToObj(i -> new Student("first" + i, "last" + i, "student" + i + "@email.com"))::iterator));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        factory.close();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Optional<Student> threads_1() {
+        return findByEmail();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public Optional<Student> threads_16() {
+        return findByEmail();
+    }
+
+    @Benchmark
+    @Threads(64)
+    public Optional<Student> threads_64() {
+        return findByEmail();
+    }
+
+    private Optional<Student> findByEmail() {
+        int i = ThreadLocalRandom.current().nextInt(ROWS);
+        return unitOfWork.execute(repository -> repository.findByEmail("student" + i + "@email.com"));
+    }
+}
@@ -0,0 +1,63 @@
+package geektime.tdd.model;
+
+import org.openjdk.jmh.annotations.*;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+//SampleTime会报告p99，16个线程同时查
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Threads(16)
+public class StudentLookupBenchmark {
+    static final int ROWS = 100_000;
+
+    @State(Scope.Benchmark)
+    public static class Database {
+        EntityManagerFactory factory;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            factory = Persistence.createEntityManagerFactory("student");
+            EntityManager manager = factory.createEntityManager();
+            manager.getTransaction().begin();
+            new StudentRepository(manager).saveAll(LongStream.range(0, ROWS)
+                    .mapToObj(i -> new Student("first" + i, "last" + i, "student" + i + "@email.com"))::iterator);
+            manager.getTransaction().commit();
+            manager.close();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            factory.close();
+        }
+    }
+
+    //每个请求一个新的EntityManager，和应用里的用法一样，所以命中的是query cache而不是persistence context
+    @Benchmark
+    public Optional<Student> find_by_email(Database database) {
+        EntityManager manager = database.factory.createEntityManager();
+        try {
+            long id = ThreadLocalRandom.current().nextLong(ROWS);
+            return new StudentRepository(manager).findByEmail("student" + id + "@email.com");
+        } finally {
+            manager.close();
+        }
+    }
+
+    @Benchmark
+    public Optional<Student> find_by_id(Database database) {
+        EntityManager manager = database.factory.createEntityManager();
+        try {
+            //sequence从1开始
+            return new StudentRepository(manager).findById(ThreadLocalRandom.current().nextLong(1, ROWS + 1));
+        } finally {
+            manager.close();
+        }
+    }
+}
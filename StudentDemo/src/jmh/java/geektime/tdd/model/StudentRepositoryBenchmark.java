@@ -0,0 +1,63 @@
+package geektime.tdd.model;
+
+import org.openjdk.jmh.annotations.*;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToIntFunction;
+import java.util.stream.LongStream;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class StudentRepositoryBenchmark {
+    @Param({"10000"})
+    public int rows;
+
+    private EntityManagerFactory factory;
+    private long next;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        factory = Persistence.createEntityManagerFactory("student");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        factory.close();
+    }
+
+    @Benchmark
+    public int save_one_by_one() {
+        return inTransaction(repository -> {
+            students().forEach(repository::save);
+            return rows;
+        });
+    }
+
+    @Benchmark
+    public int save_all_in_batches() {
+        return inTransaction(repository -> repository.saveAll(students()));
+    }
+
+    private Iterable<Student> students() {
+        long first = next;
+        next += rows;
+        return LongStream.range(first, first + rows)
+                .mapToObj(i -> new Student("first" + i, "last" + i, "student" + i + "@email.com"))::iterator;
+    }
+
+    private int inTransaction(ToIntFunction<StudentRepository> work) {
+        EntityManager manager = factory.createEntityManager();
+        try {
+            manager.getTransaction().begin();
+            int result = work.applyAsInt(new StudentRepository(manager));
+            manager.getTransaction().commit();
+            return result;
+        } finally {
+            manager.close();
+        }
+    }
+}
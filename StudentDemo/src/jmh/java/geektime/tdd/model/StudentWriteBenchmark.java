@@ -0,0 +1,46 @@
+package geektime.tdd.model;
+
+import org.openjdk.jmh.annotations.*;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.LongStream;
+
+//很多写入线程同时saveAll，每个线程自己的EntityManager和事务，id都从同一个sequence分段拿
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(32)
+public class StudentWriteBenchmark {
+    private final AtomicLong next = new AtomicLong();
+    private EntityManagerFactory factory;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        factory = Persistence.createEntityManagerFactory("student");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        factory.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(StudentRepository.BATCH_SIZE)
+    public int save_batch() {
+        long first = next.getAndAdd(StudentRepository.BATCH_SIZE);
+        EntityManager manager = factory.createEntityManager();
+        try {
+            manager.getTransaction().begin();
+            int saved = new StudentRepository(manager).saveAll(LongStream.range(first, first + StudentRepository.BATCH_SIZE)
+                    .mapToObj(i -> new Student("first" + i, "last" + i, "student" + i + "@email.com"))::iterator);
+            manager.getTransaction().commit();
+            return saved;
+        } finally {
+            manager.close();
+        }
+    }
+}
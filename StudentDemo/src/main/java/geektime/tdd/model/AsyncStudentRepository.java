@@ -0,0 +1,92 @@
+package geektime.tdd.model;
+
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+//每个调用一个线程、一个UnitOfWork（也就是一个EntityManager），调用方拿到的是CompletableFuture，
+//可以同时发出findById和findByEmail再合并结果。真正能并行的只有连接池那么多，
+//默认的线程池最多这么多个线程，多出来的任务在池的队列里等，而不是占着线程去等Hikari的connectionTimeout；
+//传进来的executor不一定有上限，所以再用semaphore限一次
+@Singleton
+public class AsyncStudentRepository implements AutoCloseable {
+    //和persistence.xml里hikari.maximumPoolSize一致
+    public static final int MAX_CONCURRENCY = 16;
+
+    private final UnitOfWork unitOfWork;
+    private final Semaphore permits;
+    private final ExecutorService executor;
+
+    @Inject
+    public AsyncStudentRepository(UnitOfWork unitOfWork) {
+        this(unitOfWork, MAX_CONCURRENCY, executor(MAX_CONCURRENCY));
+    }
+
+    public AsyncStudentRepository(UnitOfWork unitOfWork, int maxConcurrency, ExecutorService executor) {
+        this.unitOfWork = unitOfWork;
+        this.permits = new Semaphore(maxConcurrency);
+        this.executor = executor;
+    }
+
+    //空闲一分钟线程就退出，守护线程不拦着JVM退出
+    private static ExecutorService executor(int maxThreads) {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(maxThreads, maxThreads, 1, TimeUnit.MINUTES, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "student-async");
+            thread.setDaemon(true);
+            return thread;
+        });
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    public CompletableFuture<Optional<Student>> findById(long id) {
+        return submit(repository -> repository.findById(id));
+    }
+
+    public CompletableFuture<Optional<Student>> findByEmail(String email) {
+        return submit(repository -> repository.findByEmail(email));
+    }
+
+    public CompletableFuture<Student> save(Student student) {
+        return submit(repository -> repository.save(student));
+    }
+
+    public CompletableFuture<Integer> saveAll(Iterable<Student> students) {
+        return submit(repository -> repository.saveAll(students));
+    }
+
+    public CompletableFuture<List<StudentSummary>> summaries(long afterId, int limit) {
+        return submit(repository -> repository.summaries(afterId, limit));
+    }
+
+    public <R> CompletableFuture<R> submit(Function<StudentRepository, R> work) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CompletionException(e);
+            }
+            try {
+                return unitOfWork.execute(work);
+            } finally {
+                permits.release();
+            }
+        }, executor);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+}
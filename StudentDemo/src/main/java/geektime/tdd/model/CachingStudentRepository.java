@@ -0,0 +1,70 @@
+package geektime.tdd.model;
+
+import javax.persistence.EntityManager;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+
+//写过的student只记id和email，UnitOfWork提交之后才从缓存里去掉；
+//提交之前就去掉的话，并发的读会把还没提交时的旧行重新放进缓存
+//saveAll不逐个记，提交之后把缓存整个清掉一次，批量写入不会把entity留到提交
+public class CachingStudentRepository extends StudentRepository {
+    private final StudentCache cache;
+    private final Set<Long> writtenIds = new HashSet<>();
+    private final Set<String> writtenEmails = new HashSet<>();
+    private boolean bulkWritten;
+
+    public CachingStudentRepository(EntityManager manager, StudentCache cache) {
+        super(manager);
+        this.cache = cache;
+    }
+
+    @Override
+    public Student save(Student student) {
+        Student saved = super.save(student);
+        writtenIds.add(saved.getId());
+        if (saved.getEmail() != null) writtenEmails.add(saved.getEmail());
+        return saved;
+    }
+
+    @Override
+    public int saveAll(Iterable<Student> students, int batchSize) {
+        bulkWritten = true;
+        return super.saveAll(students, batchSize);
+    }
+
+    //这个unit of work写过的id和email不经过缓存；别的照样命中缓存，
+    //但写过之后从数据库读到的可能是还没提交的行，不放进缓存
+    @Override
+    public Optional<Student> findById(long id) {
+        if (writtenIds.contains(id)) return super.findById(id);
+        long stamp = cache.stamp();
+        return cache.get(id).or(() -> load(super.findById(id), stamp));
+    }
+
+    @Override
+    public Optional<Student> findByEmail(String email) {
+        if (writtenEmails.contains(email)) return super.findByEmail(email);
+        long stamp = cache.stamp();
+        return cache.getByEmail(email).filter(student -> !writtenIds.contains(student.getId()))
+                .or(() -> load(super.findByEmail(email), stamp));
+    }
+
+    private Optional<Student> load(Optional<Student> loaded, long stamp) {
+        if (!bulkWritten && writtenIds.isEmpty()) loaded.ifPresent(student -> cache.put(student, stamp));
+        return loaded;
+    }
+
+    //事务提交之后由UnitOfWork调用
+    void committed() {
+        if (bulkWritten) cache.clear();
+        else if (!writtenIds.isEmpty()) cache.invalidate(writtenIds, writtenEmails);
+        writtenIds.clear();
+        writtenEmails.clear();
+        bulkWritten = false;
+    }
+
+    public StudentCache.Stats stats() {
+        return cache.stats();
+    }
+}
@@ -1,13 +1,21 @@
 package geektime.tdd.model;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import javax.persistence.*;
 
 @Entity
-@Table(name = "STUDENTS")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@Table(name = "STUDENTS", indexes = @Index(name = "UK_STUDENTS_EMAIL", columnList = "email", unique = true))
 public class Student {
+    //pooled optimizer：一次从sequence拿allocationSize个id，多个写入线程各自分段，
+    //insert之前不需要再单独去数据库取id，JDBC batch不会被打断
     @Id
     @Column(name = "id")
-//    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "students_seq")
+    @SequenceGenerator(name = "students_seq", sequenceName = "STUDENTS_SEQ", allocationSize = 50)
     private long id;
 
     @Column(name = "first_name")
@@ -28,6 +36,16 @@ public class Student {
         this.email = email;
     }
 
+    //只给快照和测试用，id由sequence生成，带id的entity不能再persist
+    Student(long id, String firstName, String lastName, String email) {
+        this(firstName, lastName, email);
+        this.id = id;
+    }
+
+    Student(Student student) {
+        this(student.id, student.firstName, student.lastName, student.email);
+    }
+
     public long getId() { return id; }
 
     public String getFirstName() { return firstName; }
@@ -0,0 +1,139 @@
+package geektime.tdd.model;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+//整个应用共享的Student缓存，存的是detached的快照，按id和email都能查
+//淘汰用segmented LRU：新加入的先放probation，再次命中才升到protected，
+//一次性扫过的id只会把probation挤掉，不会冲掉真正的热点
+public class StudentCache {
+    private final int probationCapacity;
+    private final int protectedCapacity;
+    private final LinkedHashMap<Long, Student> probation = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<Long, Student> protectedSegment = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, Long> emails = new HashMap<>();
+    private long invalidations;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public StudentCache(int capacity) {
+        if (capacity < 2) throw new IllegalArgumentException("capacity must be at least 2");
+        this.protectedCapacity = capacity * 4 / 5;
+        this.probationCapacity = capacity - protectedCapacity;
+    }
+
+    public Optional<Student> get(long id) {
+        Student student;
+        synchronized (this) {
+            student = lookup(id);
+        }
+        record(student);
+        return Optional.ofNullable(student);
+    }
+
+    public Optional<Student> getByEmail(String email) {
+        Student student;
+        synchronized (this) {
+            Long id = emails.get(email);
+            student = id == null ? null : lookup(id);
+        }
+        record(student);
+        return Optional.ofNullable(student);
+    }
+
+    //从数据库读之前先拿stamp，读的过程中有别的事务提交并invalidate的话，读到的可能是旧行，就不放进来
+    public synchronized long stamp() {
+        return invalidations;
+    }
+
+    public synchronized void put(Student student, long stamp) {
+        if (stamp == invalidations) put(student);
+    }
+
+    public synchronized void put(Student student) {
+        Student snapshot = new Student(student);
+        remove(snapshot.getId());
+        if (snapshot.getEmail() != null) emails.put(snapshot.getEmail(), snapshot.getId());
+        admit(snapshot);
+    }
+
+    public void invalidate(Student student) {
+        invalidate(Set.of(student.getId()), student.getEmail() == null ? Set.of() : Set.of(student.getEmail()));
+    }
+
+    public synchronized void invalidate(Collection<Long> ids, Collection<String> emails) {
+        invalidations++;
+        ids.forEach(this::remove);
+        for (String email : emails) {
+            Long cached = this.emails.remove(email);
+            if (cached != null) remove(cached);
+        }
+    }
+
+    //批量写入之后整个清掉，不用记住写了哪些
+    public synchronized void clear() {
+        invalidations++;
+        probation.clear();
+        protectedSegment.clear();
+        emails.clear();
+    }
+
+    public synchronized int size() {
+        return probation.size() + protectedSegment.size();
+    }
+
+    public Stats stats() {
+        return new Stats(hits.sum(), misses.sum(), evictions.sum());
+    }
+
+    private Student lookup(long id) {
+        Student student = protectedSegment.get(id);
+        if (student != null) return student;
+        student = probation.remove(id);
+        if (student == null) return null;
+        protectedSegment.put(id, student);
+        if (protectedSegment.size() > protectedCapacity) {
+            Student demoted = eldest(protectedSegment);
+            protectedSegment.remove(demoted.getId());
+            admit(demoted);
+        }
+        return student;
+    }
+
+    private void admit(Student student) {
+        probation.put(student.getId(), student);
+        if (probation.size() > probationCapacity) {
+            remove(eldest(probation).getId());
+            evictions.increment();
+        }
+    }
+
+    private void record(Student student) {
+        if (student == null) misses.increment();
+        else hits.increment();
+    }
+
+    private void remove(long id) {
+        Student removed = probation.remove(id);
+        if (removed == null) removed = protectedSegment.remove(id);
+        if (removed != null && removed.getEmail() != null) emails.remove(removed.getEmail(), id);
+    }
+
+    private static Student eldest(LinkedHashMap<Long, Student> segment) {
+        return segment.values().iterator().next();
+    }
+
+    public record Stats(long hits, long misses, long evictions) {
+        public double hitRate() {
+            long requests = hits + misses;
+            return requests == 0 ? 0 : (double) hits / requests;
+        }
+    }
+}
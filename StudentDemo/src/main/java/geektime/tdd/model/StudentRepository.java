@@ -1,5 +1,11 @@
 package geektime.tdd.model;
 
+import org.hibernate.CacheMode;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.jpa.QueryHints;
+
 import javax.persistence.EntityManager;
 import javax.persistence.TypedQuery;
 import javax.persistence.criteria.CriteriaBuilder;
@@ -7,8 +13,19 @@ import javax.persistence.criteria.CriteriaQuery;
 import javax.persistence.criteria.Root;
 import java.util.List;
 import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class StudentRepository {
+    public static final int BATCH_SIZE = 50;
+    public static final int FETCH_SIZE = 1000;
+    public static final String EMAIL_CACHE_REGION = "student-by-email";
+
+    private static final String SUMMARY = "select new geektime.tdd.model.StudentSummary(s.id, s.firstName, s.lastName, s.email) from Student s";
+
     private EntityManager manager;
 
     public StudentRepository(EntityManager manager) {
@@ -20,6 +37,26 @@ public class StudentRepository {
         return student;
     }
 
+    public int saveAll(Iterable<Student> students) {
+        return saveAll(students, BATCH_SIZE);
+    }
+
+    //batchSize和hibernate.jdbc.batch_size一致，每个chunk都flush成一个JDBC batch，
+    //然后clear，persistence context不会随着行数变大，调用前加载过的entity也会被detach
+    public int saveAll(Iterable<Student> students, int batchSize) {
+        int count = 0;
+        for (Student student : students) {
+            manager.persist(student);
+            if (++count % batchSize == 0) {
+                manager.flush();
+                manager.clear();
+            }
+        }
+        manager.flush();
+        manager.clear();
+        return count;
+    }
+
     public Optional<Student> findById(long id) {
         return Optional.ofNullable(manager.find(Student.class, id));
     }
@@ -32,11 +69,68 @@ public class StudentRepository {
 //                        .select(student)).getResultList()
 //                .stream().findFirst();
 
+        //email上有唯一索引，最多一行；query cache里存的是email->id，entity本身从second-level cache里拿
         TypedQuery<Student> query = manager.createQuery("SELECT s from Student s where s.email = :email", Student.class);
-        return query.setParameter("email",email).getResultList().stream().findFirst();
+        return query.setParameter("email",email)
+                .setMaxResults(1)
+                .setHint(QueryHints.HINT_CACHEABLE, true)
+                .setHint(QueryHints.HINT_CACHE_REGION, EMAIL_CACHE_REGION)
+                .getResultList().stream().findFirst();
     }
 
     public List<Student> all() {
-        return manager.createQuery("select * from Student").getResultList().stream().toList();
+        return manager.createQuery("select s from Student s", Student.class).getResultList();
+    }
+
+    public Stream<Student> stream() {
+        return stream(FETCH_SIZE);
+    }
+
+    //forward-only的游标，一次只从JDBC拿fetchSize行，每一行交出去之前就evict掉，
+    //所以不管表有多大，persistence context里都不会留下已经读过的entity，用完要close这个Stream
+    public Stream<Student> stream(int fetchSize) {
+        Session session = manager.unwrap(Session.class);
+        ScrollableResults results = session.createQuery("select s from Student s", Student.class)
+                .setFetchSize(fetchSize)
+                .setReadOnly(true)
+                .setCacheMode(CacheMode.IGNORE)
+                .scroll(ScrollMode.FORWARD_ONLY);
+        Spliterator<Student> spliterator = new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super Student> action) {
+                if (!results.next()) return false;
+                Student student = (Student) results.get(0);
+                session.evict(student);
+                action.accept(student);
+                return true;
+            }
+        };
+        return StreamSupport.stream(spliterator, false).onClose(results::close);
+    }
+
+    //列表只需要这几列，用构造表达式直接查成StudentSummary，不生成entity，也没有dirty checking的快照
+    public List<StudentSummary> summaries(long afterId, int limit) {
+        return manager.createQuery(SUMMARY + " where s.id > :afterId order by s.id", StudentSummary.class)
+                .setParameter("afterId", afterId)
+                .setMaxResults(limit)
+                .setHint(QueryHints.HINT_READONLY, true)
+                .getResultList();
+    }
+
+    public Stream<StudentSummary> summaries() {
+        return manager.createQuery(SUMMARY, StudentSummary.class)
+                .setHint(QueryHints.HINT_READONLY, true)
+                .setHint(QueryHints.HINT_FETCH_SIZE, FETCH_SIZE)
+                .getResultStream();
+    }
+
+    //keyset分页，下一页从上一页最后一个id之后开始，不用offset，翻到多深都只走主键索引
+    public List<Student> page(long afterId, int limit) {
+        List<Student> students = manager.createQuery("select s from Student s where s.id > :afterId order by s.id", Student.class)
+                .setParameter("afterId", afterId)
+                .setMaxResults(limit)
+                .getResultList();
+        students.forEach(manager::detach);
+        return students;
     }
 }
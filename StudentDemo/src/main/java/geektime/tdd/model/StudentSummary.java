@@ -0,0 +1,4 @@
+package geektime.tdd.model;
+
+public record StudentSummary(long id, String firstName, String lastName, String email) {
+}
@@ -1,29 +1,40 @@
 package geektime.tdd.model;
 
-import javax.persistence.EntityManager;
+import com.geektime.tdd.ComponentRef;
+import com.geektime.tdd.Context;
+import com.geektime.tdd.ContextConfig;
+
 import javax.persistence.EntityManagerFactory;
 import javax.persistence.Persistence;
 import java.util.Optional;
 
 public class TestApplication {
+    private static final System.Logger logger = System.getLogger(TestApplication.class.getName());
+
     public static void main(String[] args) {
         EntityManagerFactory factory = Persistence.createEntityManagerFactory("student");
-        EntityManager entityManager = factory.createEntityManager();
-
-        entityManager.getTransaction().begin();
 
-        StudentRepository studentRepository = new StudentRepository(entityManager);
-        Student john = studentRepository.save(new Student("john", "smith", "john.smith@email.com"));
+        ContextConfig config = new ContextConfig();
+        config.bind(EntityManagerFactory.class, factory);
+        config.bind(StudentCache.class, new StudentCache(10_000));
+        config.bind(UnitOfWork.class, UnitOfWork.class);
+        Context context = config.getContext();
 
-        entityManager.getTransaction().commit();
+        try {
+            UnitOfWork unitOfWork = context.get(ComponentRef.of(UnitOfWork.class)).get();
 
-        System.out.println(john.getId());
+            Student john = unitOfWork.execute(repository -> repository.save(new Student("john", "smith", "john.smith@email.com")));
 
-        Optional<Student> loaded = studentRepository.findById(john.getId());
+            logger.log(System.Logger.Level.INFO, "saved student {0}", john.getId());
 
-        System.out.println(loaded);
+            Optional<Student> loaded = unitOfWork.execute(repository -> repository.findById(john.getId()));
+            logger.log(System.Logger.Level.INFO, "found by id: {0}", loaded);
 
-        System.out.println(studentRepository.findByEmail("john.smith@email.com"));
-        System.out.println(studentRepository.findByEmail("john.smith@email1.com"));
+            Optional<Student> found = unitOfWork.execute(repository -> repository.findByEmail("john.smith@email.com"));
+            Optional<Student> missing = unitOfWork.execute(repository -> repository.findByEmail("john.smith@email1.com"));
+            logger.log(System.Logger.Level.INFO, "found by email: {0}, {1}", found, missing);
+        } finally {
+            factory.close();
+        }
     }
 }
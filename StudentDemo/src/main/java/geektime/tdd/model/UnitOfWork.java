@@ -0,0 +1,71 @@
+package geektime.tdd.model;
+
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.EntityTransaction;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+//EntityManagerFactory整个应用只有一个，由容器管理；EntityManager每个unit of work一个，用完就关，
+//连接只在事务里从连接池借出来；StudentCache也是整个应用共享的，导入导出这类工具不需要，可以不带
+@Singleton
+public class UnitOfWork {
+    private final EntityManagerFactory factory;
+    private final StudentCache cache;
+
+    @Inject
+    public UnitOfWork(EntityManagerFactory factory, StudentCache cache) {
+        this.factory = factory;
+        this.cache = cache;
+    }
+
+    public UnitOfWork(EntityManagerFactory factory) {
+        this(factory, null);
+    }
+
+    public <R> R execute(Function<StudentRepository, R> work) {
+        EntityManager manager = factory.createEntityManager();
+        EntityTransaction transaction = manager.getTransaction();
+        try {
+            transaction.begin();
+            StudentRepository repository = repository(manager);
+            R result = work.apply(repository);
+            transaction.commit();
+            if (repository instanceof CachingStudentRepository caching) caching.committed();
+            return result;
+        } catch (RuntimeException e) {
+            if (transaction.isActive()) transaction.rollback();
+            throw e;
+        } finally {
+            manager.close();
+        }
+    }
+
+    //Stream要到写响应的时候才遍历，事务和EntityManager跟着返回的Stream走，Stream关掉的时候才提交、关闭
+    //拿到的Stream一定要close，只适合只读的工作
+    public <R> Stream<R> stream(Function<StudentRepository, Stream<R>> work) {
+        EntityManager manager = factory.createEntityManager();
+        EntityTransaction transaction = manager.getTransaction();
+        try {
+            transaction.begin();
+            return work.apply(repository(manager)).onClose(() -> {
+                try {
+                    if (transaction.isActive()) transaction.commit();
+                } finally {
+                    manager.close();
+                }
+            });
+        } catch (RuntimeException e) {
+            if (transaction.isActive()) transaction.rollback();
+            manager.close();
+            throw e;
+        }
+    }
+
+    private StudentRepository repository(EntityManager manager) {
+        return cache == null ? new StudentRepository(manager) : new CachingStudentRepository(manager, cache);
+    }
+}
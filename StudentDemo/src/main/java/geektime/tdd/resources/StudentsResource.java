@@ -1,38 +1,46 @@
-//package geektime.tdd.resources;
-//
-//import geektime.tdd.model.Student;
-//import geektime.tdd.model.StudentRepository;
-//import jakarta.inject.Inject;
-//import jakarta.ws.rs.GET;
-//import jakarta.ws.rs.Path;
-//import jakarta.ws.rs.PathParam;
-//import jakarta.ws.rs.Produces;
-//import jakarta.ws.rs.core.MediaType;
-//import jakarta.ws.rs.core.Response;
-//
-//import java.util.List;
-//
-//@Path("/students")
-//public class StudentsResource {
-//    private StudentRepository repository;
-//
-//    @Inject
-//    public StudentsResource(StudentRepository repository) {
-//        this.repository = repository;
-//    }
-//
-//    @GET
-//    @Produces(MediaType.APPLICATION_JSON)
-//    public List<Student> all() {
-//        return repository.all();
-//    }
-//
-//    @GET
-//    @Path("{id}")
-//    @Produces(MediaType.APPLICATION_JSON)
-//    public Response findById(@PathParam("id") long id) {
-//        return repository.findById(id).map(Response::ok)
-//                .orElse(Response.status(Response.Status.NOT_FOUND)).build();
-//    }
-//
-//}
+package geektime.tdd.resources;
+
+import com.geektime.tdd.rest.Cacheable;
+import com.geektime.tdd.rest.Reusable;
+import geektime.tdd.model.Student;
+import geektime.tdd.model.StudentRepository;
+import geektime.tdd.model.UnitOfWork;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.PathParam;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+
+import java.util.stream.Stream;
+
+//EntityManager不是线程安全的，不能像原来那样注入StudentRepository，每个请求通过UnitOfWork开一个
+//自己只持有单例的UnitOfWork，没有请求相关的状态，对象可以复用
+@Reusable
+@Path("/students")
+public class StudentsResource {
+    private UnitOfWork unitOfWork;
+
+    @Inject
+    public StudentsResource(UnitOfWork unitOfWork) {
+        this.unitOfWork = unitOfWork;
+    }
+
+    //边从游标读边写JSON，整张表不会一次加载进内存；Stream由JSON writer写完后关掉，这时候unit of work才结束
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    public Stream<Student> all() {
+        return unitOfWork.stream(StudentRepository::stream);
+    }
+
+    @GET
+    @Path("{id}")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Cacheable(ttl = 30)
+    public Response findById(@PathParam("id") long id) {
+        return unitOfWork.execute(repository -> repository.findById(id)).map(Response::ok)
+                .orElse(Response.status(Response.Status.NOT_FOUND)).build();
+    }
+
+}
@@ -0,0 +1,59 @@
+package geektime.tdd.transfer;
+
+import java.util.List;
+
+final class Csv {
+    private Csv() {
+    }
+
+    //fields是调用方复用的；没有引号的行直接按逗号切，不经过StringBuilder
+    //引号没闭合（比如字段里有换行）返回false
+    static boolean split(String line, List<String> fields) {
+        fields.clear();
+        if (line.indexOf('"') < 0) {
+            int start = 0;
+            for (int comma = line.indexOf(','); comma >= 0; comma = line.indexOf(',', start)) {
+                fields.add(line.substring(start, comma));
+                start = comma + 1;
+            }
+            fields.add(line.substring(start));
+            return true;
+        }
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') field.append(c);
+                else if (i + 1 < line.length() && line.charAt(i + 1) == '"') field.append(line.charAt(++i));
+                else quoted = false;
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return !quoted;
+    }
+
+    static StringBuilder append(StringBuilder out, String field) {
+        if (field == null) return out;
+        boolean quote = false;
+        for (int i = 0; i < field.length() && !quote; i++) {
+            char c = field.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) return out.append(field);
+        out.append('"');
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (c == '"') out.append('"');
+            out.append(c);
+        }
+        return out.append('"');
+    }
+}
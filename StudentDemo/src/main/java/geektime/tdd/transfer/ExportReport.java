@@ -0,0 +1,10 @@
+package geektime.tdd.transfer;
+
+import java.time.Duration;
+
+public record ExportReport(long rows, long bytes, Duration elapsed) {
+    public double rowsPerSecond() {
+        long nanos = Math.max(1, elapsed.toNanos());
+        return rows * 1_000_000_000.0 / nanos;
+    }
+}
@@ -0,0 +1,10 @@
+package geektime.tdd.transfer;
+
+import java.time.Duration;
+
+public record ImportReport(long imported, long rejected, Duration elapsed) {
+    public double rowsPerSecond() {
+        long nanos = Math.max(1, elapsed.toNanos());
+        return (imported + rejected) * 1_000_000_000.0 / nanos;
+    }
+}
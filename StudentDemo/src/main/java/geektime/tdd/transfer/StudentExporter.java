@@ -0,0 +1,170 @@
+package geektime.tdd.transfer;
+
+import geektime.tdd.model.Student;
+import geektime.tdd.model.UnitOfWork;
+
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+import static java.nio.file.StandardOpenOption.*;
+
+//通过StudentRepository.stream()的游标一行一行读，每行拼到复用的StringBuilder里，
+//攒够了就编码进同一个ByteBuffer写到FileChannel，堆上只有当前这一批字符
+public class StudentExporter {
+    private static final int BUFFER = 1 << 16;
+
+    public enum Format {
+        CSV, JSON_LINES
+    }
+
+    private final UnitOfWork unitOfWork;
+
+    public StudentExporter(UnitOfWork unitOfWork) {
+        this.unitOfWork = unitOfWork;
+    }
+
+    public ExportReport exportTo(Path file, Format format, boolean gzip) throws IOException {
+        long started = System.nanoTime();
+        long rows;
+        try (FileChannel channel = FileChannel.open(file, CREATE, TRUNCATE_EXISTING, WRITE);
+             RowWriter writer = new RowWriter(gzip
+                     ? Channels.newChannel(new GZIPOutputStream(Channels.newOutputStream(channel), BUFFER))
+                     : channel)) {
+            rows = unitOfWork.execute(repository -> {
+                try (Stream<Student> students = repository.stream()) {
+                    if (format == Format.CSV) writer.line().append("id,first_name,last_name,email\n");
+                    long count = 0;
+                    for (Iterator<Student> iterator = students.iterator(); iterator.hasNext(); count++) {
+                        Student student = iterator.next();
+                        if (format == Format.CSV) csv(writer.line(), student);
+                        else json(writer.line(), student);
+                        writer.flushIfFull();
+                    }
+                    return count;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return new ExportReport(rows, Files.size(file), Duration.ofNanos(System.nanoTime() - started));
+    }
+
+    private static void csv(StringBuilder line, Student student) {
+        line.append(student.getId()).append(',');
+        Csv.append(line, student.getFirstName()).append(',');
+        Csv.append(line, student.getLastName()).append(',');
+        Csv.append(line, student.getEmail()).append('\n');
+    }
+
+    private static void json(StringBuilder line, Student student) {
+        line.append("{\"id\":").append(student.getId());
+        string(line.append(",\"firstName\":"), student.getFirstName());
+        string(line.append(",\"lastName\":"), student.getLastName());
+        string(line.append(",\"email\":"), student.getEmail());
+        line.append("}\n");
+    }
+
+    private static void string(StringBuilder out, String value) {
+        if (value == null) {
+            out.append("null");
+            return;
+        }
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> out.append("\\\"");
+                case '\\' -> out.append("\\\\");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                case '\t' -> out.append("\\t");
+                default -> {
+                    if (c < 0x20) out.append(String.format("\\u%04x", (int) c));
+                    else out.append(c);
+                }
+            }
+        }
+        out.append('"');
+    }
+
+    private static class RowWriter implements AutoCloseable {
+        private final WritableByteChannel target;
+        private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+        private final StringBuilder chars = new StringBuilder(BUFFER);
+        private final ByteBuffer bytes = ByteBuffer.allocateDirect(BUFFER);
+
+        RowWriter(WritableByteChannel target) {
+            this.target = target;
+        }
+
+        StringBuilder line() {
+            return chars;
+        }
+
+        void flushIfFull() throws IOException {
+            if (chars.length() >= BUFFER / 2) flush(false);
+        }
+
+        //只在整行之后flush，不会把一个surrogate pair拆开；落单的surrogate编码不了，直接让导出失败
+        private void flush(boolean endOfInput) throws IOException {
+            CharBuffer in = CharBuffer.wrap(chars);
+            CoderResult result;
+            while ((result = encoder.encode(in, bytes, endOfInput)).isOverflow()) drain();
+            if (result.isError()) result.throwException();
+            chars.setLength(0);
+        }
+
+        private void drain() throws IOException {
+            bytes.flip();
+            while (bytes.hasRemaining()) target.write(bytes);
+            bytes.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flush(true);
+                CoderResult result;
+                while ((result = encoder.flush(bytes)).isOverflow()) drain();
+                if (result.isError()) result.throwException();
+                drain();
+            } finally {
+                target.close();
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("usage: StudentExporter <file> <csv|json_lines> [gzip]");
+            System.exit(1);
+        }
+        EntityManagerFactory factory = Persistence.createEntityManagerFactory("student");
+        try {
+            ExportReport report = new StudentExporter(new UnitOfWork(factory)).exportTo(Path.of(args[0]),
+                    Format.valueOf(args[1].toUpperCase()), args.length > 2 && args[2].equals("gzip"));
+            System.out.printf("exported %d rows, %d bytes in %s (%.0f rows/s)%n",
+                    report.rows(), report.bytes(), report.elapsed(), report.rowsPerSecond());
+        } finally {
+            factory.close();
+        }
+    }
+}
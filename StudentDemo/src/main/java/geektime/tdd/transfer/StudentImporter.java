@@ -0,0 +1,213 @@
+package geektime.tdd.transfer;
+
+import geektime.tdd.model.Student;
+import geektime.tdd.model.UnitOfWork;
+import org.hibernate.exception.ConstraintViolationException;
+
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+//两段流水线：解析线程读文件、校验，把一批批的行放进有界队列；调用线程从队列里取出来写库
+//队列满了解析线程就会阻塞，所以内存只和队列容量有关，和文件大小无关
+public class StudentImporter {
+    private static final int READ_BUFFER = 1 << 16;
+    private static final List<Row> END = new ArrayList<>(0);
+
+    private final UnitOfWork unitOfWork;
+    private final int batchSize;
+    private final int queueCapacity;
+
+    public StudentImporter(UnitOfWork unitOfWork) {
+        this(unitOfWork, 1000, 4);
+    }
+
+    public StudentImporter(UnitOfWork unitOfWork, int batchSize, int queueCapacity) {
+        this.unitOfWork = unitOfWork;
+        this.batchSize = batchSize;
+        this.queueCapacity = queueCapacity;
+    }
+
+    public ImportReport importFrom(Path csv, Path rejectsFile) throws IOException {
+        long started = System.nanoTime();
+        BlockingQueue<List<Row>> queue = new ArrayBlockingQueue<>(queueCapacity);
+        ExecutorService parser = Executors.newSingleThreadExecutor();
+        try (Rejects rejects = new Rejects(Files.newBufferedWriter(rejectsFile, StandardCharsets.UTF_8))) {
+            Future<?> parsed = parser.submit(() -> {
+                try {
+                    parse(csv, queue, rejects);
+                } catch (IOException | RuntimeException e) {
+                    //解析失败也要放END，写库这边取到END之后从parsed.get()拿到这个异常
+                    queue.put(END);
+                    throw e;
+                }
+                return null;
+            });
+            long imported = 0;
+            try {
+                for (List<Row> batch = queue.take(); batch != END; batch = queue.take())
+                    imported += write(batch, rejects);
+                parsed.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException io) throw io;
+                if (e.getCause() instanceof UncheckedIOException io) throw io.getCause();
+                throw new RuntimeException(e.getCause());
+            } finally {
+                parsed.cancel(true);
+            }
+            return new ImportReport(imported, rejects.count(), Duration.ofNanos(System.nanoTime() - started));
+        } finally {
+            parser.shutdownNow();
+        }
+    }
+
+    private void parse(Path csv, BlockingQueue<List<Row>> queue, Rejects rejects) throws IOException, InterruptedException {
+        try (FileChannel channel = FileChannel.open(csv, StandardOpenOption.READ);
+             BufferedReader reader = new BufferedReader(Channels.newReader(channel, StandardCharsets.UTF_8.newDecoder(), READ_BUFFER), READ_BUFFER)) {
+            List<String> fields = new ArrayList<>(4);
+            List<Row> batch = new ArrayList<>(batchSize);
+            long number = 0;
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                number++;
+                if (line.isBlank() || number == 1 && isHeader(line)) continue;
+                String reason = Csv.split(line, fields) ? validate(fields) : "unterminated quote";
+                if (reason != null) {
+                    rejects.reject(number, reason, line);
+                    continue;
+                }
+                //有id列的话（比如StudentExporter导出的文件）忽略它，id由sequence重新生成
+                int offset = fields.size() - 3;
+                batch.add(new Row(number, fields.get(offset).strip(), fields.get(offset + 1).strip(), fields.get(offset + 2).strip()));
+                if (batch.size() == batchSize) {
+                    queue.put(batch);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            if (!batch.isEmpty()) queue.put(batch);
+            queue.put(END);
+        }
+    }
+
+    private long write(List<Row> batch, Rejects rejects) {
+        try {
+            return unitOfWork.execute(repository -> repository.saveAll(batch.stream().map(Row::student)::iterator));
+        } catch (RuntimeException e) {
+            if (!isConstraintViolation(e)) throw e;
+            //整批回滚了（比如email重复），一行一个事务重试，只有违反约束的行进rejects；
+            //别的错误（比如数据库连不上）不是行的问题，直接让导入失败
+            long imported = 0;
+            for (Row row : batch) {
+                try {
+                    unitOfWork.execute(repository -> repository.save(row.student()));
+                    imported++;
+                } catch (RuntimeException failed) {
+                    if (!isConstraintViolation(failed)) throw failed;
+                    rejects.reject(row.line(), "rejected by database", row.toCsv());
+                }
+            }
+            return imported;
+        }
+    }
+
+    //flush时违反约束是PersistenceException包着的，commit时还会再包一层RollbackException
+    private static boolean isConstraintViolation(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException || cause instanceof SQLIntegrityConstraintViolationException)
+                return true;
+        }
+        return false;
+    }
+
+    private static boolean isHeader(String line) {
+        String header = line.strip().toLowerCase();
+        return header.startsWith("first_name") || header.startsWith("id,");
+    }
+
+    private static String validate(List<String> fields) {
+        if (fields.size() != 3 && fields.size() != 4) return "expected 3 or 4 columns but got " + fields.size();
+        int offset = fields.size() - 3;
+        if (fields.get(offset).isBlank()) return "first name is empty";
+        if (fields.get(offset + 1).isBlank()) return "last name is empty";
+        String email = fields.get(offset + 2).strip();
+        int at = email.indexOf('@');
+        if (at <= 0 || at != email.lastIndexOf('@') || at == email.length() - 1) return "invalid email";
+        if (email.length() > 255) return "email too long";
+        return null;
+    }
+
+    private record Row(long line, String firstName, String lastName, String email) {
+        //每次都新建，重试的时候不能复用已经被分配过id的entity
+        Student student() {
+            return new Student(firstName, lastName, email);
+        }
+
+        String toCsv() {
+            StringBuilder out = new StringBuilder();
+            Csv.append(out, firstName).append(',');
+            Csv.append(out, lastName).append(',');
+            return Csv.append(out, email).toString();
+        }
+    }
+
+    //解析线程和写库线程都会写rejects
+    private static class Rejects implements AutoCloseable {
+        private final BufferedWriter writer;
+        private long count;
+
+        Rejects(BufferedWriter writer) {
+            this.writer = writer;
+        }
+
+        synchronized void reject(long line, String reason, String content) {
+            count++;
+            try {
+                writer.write(Csv.append(new StringBuilder().append(line).append(','), reason).append(',').toString());
+                writer.write(content);
+                writer.newLine();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        synchronized long count() {
+            return count;
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            writer.close();
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("usage: StudentImporter <students.csv> <rejects.csv>");
+            System.exit(1);
+        }
+        EntityManagerFactory factory = Persistence.createEntityManagerFactory("student");
+        try {
+            ImportReport report = new StudentImporter(new UnitOfWork(factory)).importFrom(Path.of(args[0]), Path.of(args[1]));
+            System.out.printf("imported %d, rejected %d in %s (%.0f rows/s)%n",
+                    report.imported(), report.rejected(), report.elapsed(), report.rowsPerSecond());
+        } finally {
+            factory.close();
+        }
+    }
+}
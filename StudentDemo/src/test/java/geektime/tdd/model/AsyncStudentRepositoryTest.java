@@ -0,0 +1,84 @@
+package geektime.tdd.model;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AsyncStudentRepositoryTest {
+    private EntityManagerFactory factory;
+    private UnitOfWork unitOfWork;
+
+    @BeforeEach
+    void before() {
+        factory = Persistence.createEntityManagerFactory("student");
+        unitOfWork = new UnitOfWork(factory);
+    }
+
+    @AfterEach
+    void after() {
+        factory.close();
+    }
+
+    @Test
+    public void should_fan_out_lookups_and_combine_results() throws Exception {
+        try (AsyncStudentRepository repository = new AsyncStudentRepository(unitOfWork)) {
+            Student john = repository.save(new Student("john", "smith", "john.smith@email.com")).get();
+            repository.save(new Student("tom", "smith", "tom.smith@email.com")).get();
+
+            CompletableFuture<Optional<Student>> byId = repository.findById(john.getId());
+            CompletableFuture<Optional<Student>> byEmail = repository.findByEmail("tom.smith@email.com");
+
+            List<String> names = byId.thenCombine(byEmail, (first, second) ->
+                    List.of(first.get().getFirstName(), second.get().getFirstName())).get(5, TimeUnit.SECONDS);
+            assertEquals(List.of("john", "tom"), names);
+        }
+    }
+
+    @Test
+    public void should_complete_exceptionally_if_work_failed() throws Exception {
+        try (AsyncStudentRepository repository = new AsyncStudentRepository(unitOfWork)) {
+            repository.save(new Student("john", "smith", "john.smith@email.com")).get();
+
+            CompletableFuture<Student> duplicated = repository.save(new Student("john", "again", "john.smith@email.com"));
+
+            assertThrows(ExecutionException.class, () -> duplicated.get(5, TimeUnit.SECONDS));
+            assertEquals("smith", repository.findByEmail("john.smith@email.com").get().get().getLastName());
+        }
+    }
+
+    @Test
+    public void should_not_run_more_units_of_work_than_permits() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        try (AsyncStudentRepository repository = new AsyncStudentRepository(unitOfWork, 2, Executors.newCachedThreadPool())) {
+            List<CompletableFuture<Integer>> futures = IntStream.range(0, 8).mapToObj(i -> repository.submit(students -> {
+                peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    release.await(50, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                running.decrementAndGet();
+                return i;
+            })).toList();
+
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+            assertEquals(2, peak.get());
+        }
+    }
+}
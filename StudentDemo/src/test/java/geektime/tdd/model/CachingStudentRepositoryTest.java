@@ -0,0 +1,145 @@
+package geektime.tdd.model;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+class CachingStudentRepositoryTest {
+    private EntityManager manager;
+    private StudentCache cache;
+    private CachingStudentRepository repository;
+    private Student john = new Student(1, "john", "smith", "john.smith@email.com");
+
+    @BeforeEach
+    void before() {
+        manager = mock(EntityManager.class);
+        cache = new StudentCache(10);
+        repository = new CachingStudentRepository(manager, cache);
+    }
+
+    @Test
+    public void should_load_student_from_database_only_once() throws Exception {
+        when(manager.find(any(), anyLong())).thenReturn(john);
+
+        assertEquals("john", repository.findById(1).get().getFirstName());
+        assertEquals("john", repository.findById(1).get().getFirstName());
+
+        verify(manager, times(1)).find(Student.class, 1L);
+        assertEquals(0.5, repository.stats().hitRate());
+    }
+
+    @Test
+    public void should_cache_detached_snapshot_instead_of_managed_entity() throws Exception {
+        when(manager.find(any(), anyLong())).thenReturn(john);
+        repository.findById(1);
+
+        assertNotSame(john, cache.get(1).get());
+    }
+
+    @Test
+    public void should_find_cached_student_by_email() throws Exception {
+        when(manager.find(any(), anyLong())).thenReturn(john);
+        repository.findById(1);
+
+        assertEquals(1, repository.findByEmail("john.smith@email.com").get().getId());
+        verify(manager, never()).createQuery(any(String.class), any());
+    }
+
+    @Test
+    public void should_invalidate_cached_student_after_commit() throws Exception {
+        cache.put(john);
+
+        repository.save(john);
+        assertTrue(cache.get(1).isPresent());
+
+        repository.committed();
+        assertTrue(cache.get(1).isEmpty());
+        assertTrue(cache.getByEmail("john.smith@email.com").isEmpty());
+    }
+
+    @Test
+    public void should_invalidate_cached_students_when_save_all() throws Exception {
+        Student tom = new Student(2, "tom", "smith", "tom.smith@email.com");
+        cache.put(john);
+        cache.put(tom);
+
+        repository.saveAll(List.of(john, tom));
+        repository.committed();
+
+        assertEquals(0, cache.size());
+        verify(manager).persist(john);
+        verify(manager).persist(tom);
+    }
+
+    @Test
+    public void should_not_cache_student_read_in_unit_of_work_which_has_written() throws Exception {
+        when(manager.find(any(), anyLong())).thenReturn(john);
+        repository.save(new Student("tom", "smith", "tom.smith@email.com"));
+
+        repository.findById(1);
+        repository.findById(1);
+
+        verify(manager, times(2)).find(Student.class, 1L);
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void should_read_cached_student_not_written_in_unit_of_work() throws Exception {
+        Student tom = new Student(2, "tom", "smith", "tom.smith@email.com");
+        cache.put(john);
+        cache.put(tom);
+        repository.save(tom);
+
+        assertEquals("john", repository.findById(1).get().getFirstName());
+        assertEquals("john", repository.findByEmail("john.smith@email.com").get().getFirstName());
+        repository.findById(2);
+
+        verify(manager, never()).find(Student.class, 1L);
+        verify(manager, never()).createQuery(any(String.class), any());
+        verify(manager).find(Student.class, 2L);
+    }
+
+    @Test
+    public void should_not_cache_student_read_after_save_all() throws Exception {
+        when(manager.find(any(), anyLong())).thenReturn(new Student(3, "jane", "doe", "jane.doe@email.com"));
+        cache.put(john);
+        repository.saveAll(List.of(new Student(3, "jane", "doe", "jane.doe@email.com")));
+
+        assertTrue(repository.findById(1).isPresent());
+        repository.findById(3);
+
+        verify(manager, never()).find(Student.class, 1L);
+        assertTrue(cache.get(3).isEmpty());
+    }
+
+    @Test
+    public void should_not_cache_student_loaded_before_concurrent_invalidation() throws Exception {
+        long stamp = cache.stamp();
+        cache.invalidate(john);
+
+        cache.put(john, stamp);
+
+        assertTrue(cache.get(1).isEmpty());
+    }
+
+    @Test
+    public void should_keep_frequently_used_students_when_scanning_through_many_others() throws Exception {
+        for (long id = 0; id < 5; id++) cache.put(new Student(id, "first", "last", id + "@email.com"));
+        cache.get(3);
+        cache.get(4);
+
+        for (long id = 100; id < 200; id++) cache.put(new Student(id, "first", "last", id + "@email.com"));
+
+        assertTrue(cache.get(3).isPresent());
+        assertTrue(cache.getByEmail("4@email.com").isPresent());
+        assertTrue(cache.get(0).isEmpty());
+        assertTrue(cache.size() <= 10);
+    }
+}
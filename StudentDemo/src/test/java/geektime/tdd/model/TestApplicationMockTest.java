@@ -1,5 +1,6 @@
 package geektime.tdd.model;
 
+import org.hibernate.jpa.QueryHints;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -11,10 +12,12 @@ import javax.persistence.Persistence;
 import javax.persistence.TypedQuery;
 import javax.persistence.criteria.CriteriaBuilder;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.*;
 
 class TestApplicationMockTest {
@@ -43,6 +46,16 @@ class TestApplicationMockTest {
         verify(manager).persist(john);
     }
 
+    @Test
+    public void should_flush_and_clear_every_batch_when_save_all() throws Exception{
+        List<Student> students = List.of(john, john, john, john, john);
+        assertEquals(5, repository.saveAll(students, 2));
+
+        verify(manager, times(5)).persist(john);
+        verify(manager, times(3)).flush();
+        verify(manager, times(3)).clear();
+    }
+
     @Test
     public void should_be_able_to_load_saved_student_by_id() throws Exception{
         when(manager.find(any(),any())).thenReturn(john);
@@ -57,12 +70,16 @@ class TestApplicationMockTest {
         when(manager.createQuery(any(),any())).thenReturn(query);
         when(manager.getCriteriaBuilder()).thenReturn(builder);
         when(query.setParameter(any(String.class),any())).thenReturn(query);
+        when(query.setMaxResults(anyInt())).thenReturn(query);
+        when(query.setHint(any(),any())).thenReturn(query);
         when(query.getResultList()).thenReturn(Arrays.asList(john));
         assertEquals(john,repository.findByEmail("john.smith@email.com").get());
 
         verify(manager).createQuery("SELECT s from Student s where s.email = :email", Student.class);
         //这个对应的是repository.findByEmail("john.smith@email.com").get()，在调用findByEmail的时候把值给设置进去了
         verify(query).setParameter("email","john.smith@email.com");
+        verify(query).setMaxResults(1);
+        verify(query).setHint(QueryHints.HINT_CACHEABLE,true);
 
     }
 
@@ -8,7 +8,15 @@ import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
 import javax.persistence.Persistence;
 
+import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -63,6 +71,99 @@ class TestApplicationTest {
         assertEquals(john.getId(),loaded.get().getId());
     }
 
+    @Test
+    public void should_be_able_to_load_students_saved_in_batches() throws Exception{
+        List<Student> students = IntStream.rangeClosed(1, 120)
+                .mapToObj(i -> new Student("student" + i, "smith", "student" + i + "@email.com")).toList();
+        manager.getTransaction().begin();
+        assertEquals(120, repository.saveAll(students));
+        manager.getTransaction().commit();
+
+        Optional<Student> loaded = repository.findById(students.get(119).getId());
+        assertTrue(loaded.isPresent());
+        assertEquals("student120@email.com", loaded.get().getEmail());
+    }
+
+    @Test
+    public void should_stream_all_students_as_detached_entities() throws Exception{
+        saveStudents(1, 30);
+
+        try (Stream<Student> students = repository.stream(7)) {
+            List<Student> loaded = students.toList();
+            assertEquals(31, loaded.size());
+            assertTrue(loaded.stream().noneMatch(manager::contains));
+        }
+    }
+
+    @Test
+    public void should_load_students_page_by_page_after_given_id() throws Exception{
+        List<Long> ids = saveStudents(1, 30);
+
+        List<Student> first = repository.page(john.getId(), 20);
+        List<Student> second = repository.page(first.get(first.size() - 1).getId(), 20);
+
+        assertEquals(ids.subList(0, 20), first.stream().map(Student::getId).toList());
+        assertEquals(ids.subList(20, 30), second.stream().map(Student::getId).toList());
+        assertTrue(first.stream().noneMatch(manager::contains));
+    }
+
+    @Test
+    public void should_list_student_summaries_page_by_page() throws Exception{
+        List<Long> ids = saveStudents(1, 30);
+
+        List<StudentSummary> first = repository.summaries(john.getId(), 20);
+        List<StudentSummary> second = repository.summaries(first.get(first.size() - 1).id(), 20);
+
+        assertEquals(new StudentSummary(ids.get(0), "student1", "smith", "student1@email.com"), first.get(0));
+        assertEquals(ids.subList(0, 20), first.stream().map(StudentSummary::id).toList());
+        assertEquals(ids.subList(20, 30), second.stream().map(StudentSummary::id).toList());
+    }
+
+    @Test
+    public void should_stream_all_student_summaries() throws Exception{
+        saveStudents(1, 30);
+
+        try (Stream<StudentSummary> summaries = repository.summaries()) {
+            assertEquals(31, summaries.count());
+        }
+    }
+
+    @Test
+    public void should_generate_unique_ids_for_concurrent_writers() throws Exception{
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<List<Long>>> writers = IntStream.range(0, 8).mapToObj(writer -> executor.submit(() -> {
+                EntityManager writerManager = factory.createEntityManager();
+                try {
+                    List<Student> students = IntStream.range(0, 100)
+                            .mapToObj(i -> new Student("writer" + writer, "student" + i, writer + "." + i + "@email.com")).toList();
+                    writerManager.getTransaction().begin();
+                    new StudentRepository(writerManager).saveAll(students);
+                    writerManager.getTransaction().commit();
+                    return students.stream().map(Student::getId).toList();
+                } finally {
+                    writerManager.close();
+                }
+            })).toList();
+
+            Set<Long> ids = new HashSet<>();
+            for (Future<List<Long>> writer : writers) ids.addAll(writer.get());
+            assertEquals(800, ids.size());
+            assertFalse(ids.contains(john.getId()));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private List<Long> saveStudents(int from, int to) {
+        List<Student> students = IntStream.rangeClosed(from, to)
+                .mapToObj(i -> new Student("student" + i, "smith", "student" + i + "@email.com")).toList();
+        manager.getTransaction().begin();
+        repository.saveAll(students);
+        manager.getTransaction().commit();
+        return students.stream().map(Student::getId).toList();
+    }
+
     @Test
     public void should_return_404_if_no_student_found() throws Exception{
     }
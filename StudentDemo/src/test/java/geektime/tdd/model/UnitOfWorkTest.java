@@ -0,0 +1,124 @@
+package geektime.tdd.model;
+
+import com.geektime.tdd.ComponentRef;
+import com.geektime.tdd.Context;
+import com.geektime.tdd.ContextConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.EntityTransaction;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class UnitOfWorkTest {
+    private EntityManagerFactory factory;
+    private EntityManager manager;
+    private EntityTransaction transaction;
+    private Student john = new Student("john", "smith", "john.smith@email.com");
+
+    @BeforeEach
+    void before() {
+        factory = mock(EntityManagerFactory.class);
+        manager = mock(EntityManager.class);
+        transaction = mock(EntityTransaction.class);
+        when(factory.createEntityManager()).thenReturn(manager);
+        when(manager.getTransaction()).thenReturn(transaction);
+    }
+
+    @Test
+    public void should_commit_and_close_entity_manager_after_work_done() throws Exception {
+        UnitOfWork unitOfWork = new UnitOfWork(factory);
+
+        assertSame(john, unitOfWork.execute(repository -> repository.save(john)));
+
+        verify(transaction).begin();
+        verify(manager).persist(john);
+        verify(transaction).commit();
+        verify(manager).close();
+    }
+
+    @Test
+    public void should_rollback_and_close_entity_manager_if_work_failed() throws Exception {
+        UnitOfWork unitOfWork = new UnitOfWork(factory);
+        when(transaction.isActive()).thenReturn(true);
+        RuntimeException failure = new RuntimeException();
+
+        assertSame(failure, assertThrows(RuntimeException.class, () -> unitOfWork.execute(repository -> {
+            throw failure;
+        })));
+
+        verify(transaction, never()).commit();
+        verify(transaction).rollback();
+        verify(manager).close();
+    }
+
+    @Test
+    public void should_keep_entity_manager_open_until_stream_closed() throws Exception {
+        UnitOfWork unitOfWork = new UnitOfWork(factory);
+        when(transaction.isActive()).thenReturn(true);
+
+        Stream<Student> students = unitOfWork.stream(repository -> Stream.of(john));
+
+        assertEquals(List.of(john), students.toList());
+        verify(transaction, never()).commit();
+        verify(manager, never()).close();
+        students.close();
+        verify(transaction).commit();
+        verify(manager).close();
+    }
+
+    @Test
+    public void should_invalidate_cached_student_only_after_commit() throws Exception {
+        StudentCache cache = new StudentCache(10);
+        Student cached = new Student(1, "john", "smith", "john.smith@email.com");
+        cache.put(cached);
+        UnitOfWork unitOfWork = new UnitOfWork(factory, cache);
+        doAnswer(invocation -> {
+            assertTrue(cache.get(1).isPresent());
+            return null;
+        }).when(transaction).commit();
+
+        unitOfWork.execute(repository -> repository.save(cached));
+
+        verify(transaction).commit();
+        assertTrue(cache.get(1).isEmpty());
+    }
+
+    @Test
+    public void should_keep_cached_student_if_work_rolled_back() throws Exception {
+        StudentCache cache = new StudentCache(10);
+        Student cached = new Student(1, "john", "smith", "john.smith@email.com");
+        cache.put(cached);
+        UnitOfWork unitOfWork = new UnitOfWork(factory, cache);
+        when(transaction.isActive()).thenReturn(true);
+
+        assertThrows(IllegalStateException.class, () -> unitOfWork.execute(repository -> {
+            repository.save(cached);
+            throw new IllegalStateException();
+        }));
+
+        assertTrue(cache.get(1).isPresent());
+    }
+
+    @Test
+    public void should_share_one_unit_of_work_and_factory_through_context() throws Exception {
+        ContextConfig config = new ContextConfig();
+        config.bind(EntityManagerFactory.class, factory);
+        config.bind(StudentCache.class, new StudentCache(10));
+        config.bind(UnitOfWork.class, UnitOfWork.class);
+        Context context = config.getContext();
+
+        UnitOfWork first = context.get(ComponentRef.of(UnitOfWork.class)).get();
+        UnitOfWork second = context.get(ComponentRef.of(UnitOfWork.class)).get();
+
+        assertSame(first, second);
+        first.execute(repository -> repository.save(john));
+        second.execute(repository -> repository.save(john));
+        verify(factory, times(2)).createEntityManager();
+    }
+}
@@ -0,0 +1,136 @@
+package geektime.tdd.resources;
+
+import com.geektime.tdd.ContextConfig;
+import com.geektime.tdd.rest.ResourceServlet;
+import geektime.tdd.model.Student;
+import geektime.tdd.model.StudentCache;
+import geektime.tdd.model.UnitOfWork;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class StudentsResourceTest {
+    private EntityManagerFactory factory;
+    private ResourceServlet servlet;
+    private HttpServletRequest request;
+    private HttpServletResponse response;
+    private ByteArrayOutputStream body;
+    private Student john;
+    private StudentCache cache;
+
+    @BeforeEach
+    void before() throws Exception {
+        factory = Persistence.createEntityManagerFactory("student");
+        UnitOfWork unitOfWork = new UnitOfWork(factory);
+        john = unitOfWork.execute(repository -> repository.save(new Student("john", "smith", "john.smith@email.com")));
+        unitOfWork.execute(repository -> repository.saveAll(List.of(new Student("tom", "smith", "tom.smith@email.com"))));
+
+        ContextConfig config = new ContextConfig();
+        config.bind(EntityManagerFactory.class, factory);
+        cache = new StudentCache(100);
+        config.bind(StudentCache.class, cache);
+        config.bind(UnitOfWork.class, UnitOfWork.class);
+        ResourceServlet.bind(config, StudentsResource.class);
+        servlet = new ResourceServlet(config.getContext(), StudentsResource.class);
+
+        request = mock(HttpServletRequest.class);
+        response = mock(HttpServletResponse.class);
+        body = new ByteArrayOutputStream();
+        when(request.getMethod()).thenReturn("GET");
+        when(response.getOutputStream()).thenReturn(new ServletOutputStream() {
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+            }
+
+            @Override
+            public void write(int b) {
+                body.write(b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                body.write(b, off, len);
+            }
+        });
+    }
+
+    @AfterEach
+    void after() {
+        factory.close();
+    }
+
+    @Test
+    public void should_write_all_students_as_json_array() throws Exception {
+        when(request.getPathInfo()).thenReturn("/students");
+
+        servlet.service(request, response);
+
+        verify(response).setStatus(200);
+        verify(response).addHeader("Content-Type", "application/json");
+        String json = body.toString(StandardCharsets.UTF_8);
+        assertTrue(json.startsWith("[{") && json.endsWith("}]"));
+        assertTrue(json.contains("\"email\":\"john.smith@email.com\",\"firstName\":\"john\",\"id\":" + john.getId() + ",\"lastName\":\"smith\""));
+        assertTrue(json.contains("\"firstName\":\"tom\""));
+    }
+
+    @Test
+    public void should_write_student_found_by_id() throws Exception {
+        when(request.getPathInfo()).thenReturn("/students/" + john.getId());
+
+        servlet.service(request, response);
+
+        verify(response).setStatus(200);
+        assertEquals(1, cache.size());
+        assertEquals("{\"email\":\"john.smith@email.com\",\"firstName\":\"john\",\"id\":" + john.getId() + ",\"lastName\":\"smith\"}",
+                body.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void should_return_304_if_student_not_modified() throws Exception {
+        when(request.getPathInfo()).thenReturn("/students/" + john.getId());
+        servlet.service(request, response);
+        String etag = etag();
+
+        HttpServletResponse notModified = mock(HttpServletResponse.class);
+        when(request.getHeader("If-None-Match")).thenReturn(etag);
+        servlet.service(request, notModified);
+
+        verify(notModified).setStatus(304);
+        verify(notModified).addHeader("ETag", etag);
+        verify(notModified, never()).getOutputStream();
+    }
+
+    private String etag() {
+        ArgumentCaptor<String> etag = ArgumentCaptor.forClass(String.class);
+        verify(response, atLeastOnce()).addHeader(eq("ETag"), etag.capture());
+        return etag.getValue();
+    }
+
+    @Test
+    public void should_return_404_if_student_not_found() throws Exception {
+        when(request.getPathInfo()).thenReturn("/students/" + (john.getId() + 1000));
+
+        servlet.service(request, response);
+
+        verify(response).setStatus(404);
+    }
+}
@@ -0,0 +1,84 @@
+package geektime.tdd.transfer;
+
+import geektime.tdd.model.Student;
+import geektime.tdd.model.UnitOfWork;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StudentExporterTest {
+    @TempDir
+    Path directory;
+
+    private EntityManagerFactory factory;
+    private UnitOfWork unitOfWork;
+
+    @BeforeEach
+    void before() {
+        factory = Persistence.createEntityManagerFactory("student");
+        unitOfWork = new UnitOfWork(factory);
+        unitOfWork.execute(repository -> repository.saveAll(List.of(
+                new Student("john", "smith", "john.smith@email.com"),
+                new Student("smith, jr", "\"tom\"", "tom@email.com"))));
+    }
+
+    @AfterEach
+    void after() {
+        factory.close();
+    }
+
+    @Test
+    public void should_export_students_as_csv_with_header() throws Exception {
+        Path file = directory.resolve("students.csv");
+
+        ExportReport report = new StudentExporter(unitOfWork).exportTo(file, StudentExporter.Format.CSV, false);
+
+        assertEquals(2, report.rows());
+        assertEquals(Files.size(file), report.bytes());
+        List<String> lines = Files.readAllLines(file);
+        assertEquals("id,first_name,last_name,email", lines.get(0));
+        assertTrue(lines.stream().anyMatch(line -> line.endsWith(",john,smith,john.smith@email.com")));
+        assertTrue(lines.stream().anyMatch(line -> line.endsWith(",\"smith, jr\",\"\"\"tom\"\"\",tom@email.com")));
+    }
+
+    @Test
+    public void should_export_students_as_gzipped_json_lines() throws Exception {
+        Path file = directory.resolve("students.jsonl.gz");
+
+        ExportReport report = new StudentExporter(unitOfWork).exportTo(file, StudentExporter.Format.JSON_LINES, true);
+
+        assertEquals(2, report.rows());
+        List<String> lines = gunzip(file).lines().toList();
+        assertEquals(2, lines.size());
+        assertTrue(lines.stream().anyMatch(line -> line.endsWith(",\"firstName\":\"john\",\"lastName\":\"smith\",\"email\":\"john.smith@email.com\"}")));
+        assertTrue(lines.stream().anyMatch(line -> line.endsWith(",\"firstName\":\"smith, jr\",\"lastName\":\"\\\"tom\\\"\",\"email\":\"tom@email.com\"}")));
+    }
+
+    @Test
+    public void should_fail_export_if_value_can_not_be_encoded() throws Exception {
+        unitOfWork.execute(repository -> repository.save(new Student("broken\uD800", "smith", "broken@email.com")));
+
+        assertThrows(CharacterCodingException.class,
+                () -> new StudentExporter(unitOfWork).exportTo(directory.resolve("students.csv"), StudentExporter.Format.CSV, false));
+    }
+
+    private static String gunzip(Path file) throws IOException {
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(file))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
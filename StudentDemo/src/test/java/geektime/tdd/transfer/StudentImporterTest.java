@@ -0,0 +1,89 @@
+package geektime.tdd.transfer;
+
+import geektime.tdd.model.Student;
+import geektime.tdd.model.UnitOfWork;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StudentImporterTest {
+    @TempDir
+    Path directory;
+
+    private EntityManagerFactory factory;
+    private UnitOfWork unitOfWork;
+
+    @BeforeEach
+    void before() {
+        factory = Persistence.createEntityManagerFactory("student");
+        unitOfWork = new UnitOfWork(factory);
+    }
+
+    @AfterEach
+    void after() {
+        factory.close();
+    }
+
+    @Test
+    public void should_import_all_valid_rows_in_batches() throws Exception {
+        StringBuilder csv = new StringBuilder("first_name,last_name,email\n");
+        for (int i = 0; i < 250; i++) csv.append("student").append(i).append(",smith,student").append(i).append("@email.com\n");
+        Path file = Files.writeString(directory.resolve("students.csv"), csv);
+
+        ImportReport report = new StudentImporter(unitOfWork, 40, 2).importFrom(file, directory.resolve("rejects.csv"));
+
+        assertEquals(250, report.imported());
+        assertEquals(0, report.rejected());
+        long count = unitOfWork.execute(repository -> {
+            try (Stream<Student> students = repository.stream()) {
+                return students.count();
+            }
+        });
+        assertEquals(250, count);
+    }
+
+    @Test
+    public void should_fail_import_instead_of_rejecting_rows_if_database_unavailable() throws Exception {
+        Path file = Files.writeString(directory.resolve("students.csv"), "john,smith,john.smith@email.com\n");
+        Path rejects = directory.resolve("rejects.csv");
+        factory.close();
+
+        assertThrows(IllegalStateException.class, () -> new StudentImporter(unitOfWork, 10, 2).importFrom(file, rejects));
+        assertEquals(List.of(), Files.readAllLines(rejects));
+    }
+
+    @Test
+    public void should_write_invalid_and_duplicated_rows_to_rejects_file() throws Exception {
+        Path file = Files.writeString(directory.resolve("students.csv"), """
+                john,smith,john.smith@email.com
+                "smith, jr",tom,tom@email.com
+                missing,email
+                ,smith,nobody@email.com
+                jane,smith,not an email
+                john,again,john.smith@email.com
+                """);
+        Path rejects = directory.resolve("rejects.csv");
+
+        ImportReport report = new StudentImporter(unitOfWork, 10, 2).importFrom(file, rejects);
+
+        assertEquals(2, report.imported());
+        assertEquals(4, report.rejected());
+        Optional<Student> tom = unitOfWork.execute(repository -> repository.findByEmail("tom@email.com"));
+        assertEquals("smith, jr", tom.get().getFirstName());
+        List<String> rejected = Files.readAllLines(rejects);
+        assertEquals(4, rejected.size());
+        assertTrue(rejected.contains("3,expected 3 or 4 columns but got 2,missing,email"));
+        assertTrue(rejected.contains("6,rejected by database,john,again,john.smith@email.com"));
+    }
+}
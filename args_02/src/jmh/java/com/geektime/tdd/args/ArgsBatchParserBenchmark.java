@@ -0,0 +1,37 @@
+package com.geektime.tdd.args;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ArgsBatchParserBenchmark {
+    record MultiOptions(@Option("l") boolean logging, @Option("p") int port, @Option("d") String directory) {
+    }
+
+    private final String[] arguments = {"-l", "-p", "8080", "-d", "/usr/logs"};
+    private ArgsBatchParser<MultiOptions> batch;
+
+    @Setup
+    public void setup() {
+        batch = new ArgsBatchParser<>(MultiOptions.class);
+    }
+
+    @Benchmark
+    public MultiOptions args_parse() {
+        return Args.parse(MultiOptions.class, arguments);
+    }
+
+    @Benchmark
+    public MultiOptions batch_parse() {
+        return batch.parse(arguments);
+    }
+
+    @Benchmark
+    public void batch_parse_lines(Blackhole blackhole) {
+        batch.parseLines(java.util.stream.Stream.of("-l -p 8080 -d /usr/logs")).forEach(blackhole::consume);
+    }
+}
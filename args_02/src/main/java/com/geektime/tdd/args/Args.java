@@ -2,9 +2,12 @@ package com.geektime.tdd.args;
 
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Parameter;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
 
 public class Args<T> {
 
@@ -13,6 +16,20 @@ public class Args<T> {
         return new Args<>(optionsClass, PARSER).parse(args);
     }
 
+    //list option的值个数达到parallelThreshold之后，分块并行解析
+    public static <T> T parse(Class<T> optionsClass, int parallelThreshold, String... args) {
+        return new Args<>(optionsClass, parallel(parallelThreshold)).parse(args);
+    }
+
+    //sources按优先级从高到低排，每个option取第一个有值的source
+    public static <T> T parseFrom(Class<T> optionsClass, OptionSource... sources) {
+        return new Args<>(optionsClass, PARSER).parseFrom(sources);
+    }
+
+    public static <T> ParseResult<T> validate(Class<T> optionsClass, String... args) {
+        return new Args<>(optionsClass, PARSER).validate(args);
+    }
+
     private Class<T> optionsClass;
     private Map<Class<?>, OptionParser> parser;
 
@@ -21,13 +38,30 @@ public class Args<T> {
         this.parser = parser;
     }
     public T parse(String... args) {
+        List<String> arguments = Arrays.asList(args);
+        return create(parameter -> parseOption(arguments, parameter, parser));
+    }
+
+    //source里的值直接绑定到对应的option上，不再拼回命令行，值以-开头也不会被当成flag
+    //按值的类型用CharSequenceArgs的规则解析，规则本身和命令行的是同一套
+    public T parseFrom(OptionSource... sources) {
+        return create(parameter -> {
+            CharSequenceOptionParser<?> parser = parserOf(parameter, CharSequenceArgs.PARSER);
+            Option option = parameter.getAnnotation(Option.class);
+            Arguments arguments = Arrays.stream(sources).map(source -> source.values(option, parameter.getType()))
+                    .flatMap(Optional::stream).findFirst()
+                    //bool option在第一个有值的source里是false，就当成没有这个flag
+                    .filter(values -> !(parameter.getType() == boolean.class && values.equals(OptionSource.FALSE)))
+                    .map(values -> Arguments.bound(option, values))
+                    .orElse(Arguments.of(List.of()));
+            return parser.parse(arguments, option);
+        });
+    }
+
+    private T create(Function<Parameter, Object> option) {
         try {
-            List<String> arguments = Arrays.asList(args);
             Constructor<?> constructor = optionsClass.getDeclaredConstructors()[0];
-            Parameter[] parameters = constructor.getParameters();
-            Object[] values = Arrays.stream(parameters)
-                    .map(it -> parseOption(arguments, it, parser)).
-                    toArray();
+            Object[] values = Arrays.stream(constructor.getParameters()).map(option).toArray();
             return (T) constructor.newInstance(values);
         } catch (IllegalOptionException | UnsupportedOptionTypeException e) {
             throw e;
@@ -36,7 +70,45 @@ public class Args<T> {
         }
     }
 
+    //不在第一个错误就停下来，每个option都解析一遍，把所有的错误都收集起来
+    public ParseResult<T> validate(String... args) {
+        List<String> arguments = Arrays.asList(args);
+        Constructor<?> constructor = optionsClass.getDeclaredConstructors()[0];
+        Parameter[] parameters = constructor.getParameters();
+        Object[] values = new Object[parameters.length];
+        List<ParseResult.Violation> violations = List.of();
+        for (int i = 0; i < parameters.length; i++) {
+            try {
+                values[i] = parseOption(arguments, parameters[i], parser);
+            } catch (IllegalValueException e) {
+                violations = violation(violations, parameters.length, ParseResult.Violation.Type.ILLEGAL_VALUE, e.getOption(), e.getValue());
+            } catch (InsufficientException e) {
+                violations = violation(violations, parameters.length, ParseResult.Violation.Type.INSUFFICIENT_ARGUMENTS, e.getOption(), null);
+            } catch (TooManyArgumentsException e) {
+                violations = violation(violations, parameters.length, ParseResult.Violation.Type.TOO_MANY_ARGUMENTS, e.getOption(), null);
+            }
+        }
+        if (!violations.isEmpty()) return new ParseResult<>(null, violations);
+        try {
+            return new ParseResult<>((T) constructor.newInstance(values), violations);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    //每个option最多一个错误，第一次出错的时候按参数个数分配好
+    private static List<ParseResult.Violation> violation(List<ParseResult.Violation> violations, int capacity,
+                                                         ParseResult.Violation.Type type, String option, String value) {
+        if (violations.isEmpty()) violations = new ArrayList<>(capacity);
+        violations.add(new ParseResult.Violation(type, option, value));
+        return violations;
+    }
+
     private Object parseOption(List<String> arguments, Parameter parameter, Map<Class<?>, OptionParser> parsers) {
+        return parserOf(parameter, parsers).parse(arguments, parameter.getAnnotation(Option.class));
+    }
+
+    static <P> P parserOf(Parameter parameter, Map<Class<?>, P> parsers) {
         if (!parameter.isAnnotationPresent(Option.class)) throw new IllegalOptionException(parameter.getName());
         Option option = parameter.getAnnotation(Option.class);
         //这个就是l,p,d,传的参数是-l,-p,-d,
@@ -44,10 +116,10 @@ public class Args<T> {
         if (!parsers.containsKey(parameter.getType())) {
             throw new UnsupportedOptionTypeException(option.value(), parameter.getType());
         }
-        return parsers.get(type).parse(arguments, parameter.getAnnotation(Option.class));
+        return parsers.get(type);
     }
 
-    private static Map<Class<?>, OptionParser> PARSER = Map.of(
+    static Map<Class<?>, OptionParser> PARSER = Map.of(
             boolean.class, OptionParsers.bool(),
             int.class, OptionParsers.unary(0, Integer::parseInt),
             String.class, OptionParsers.unary("", String::valueOf),
@@ -55,4 +127,14 @@ public class Args<T> {
             Integer[].class, OptionParsers.list(Integer[]::new, Integer::parseInt)
     );
 
+    static Map<Class<?>, OptionParser> parallel(int parallelThreshold) {
+        return Map.of(
+                boolean.class, OptionParsers.bool(),
+                int.class, OptionParsers.unary(0, Integer::parseInt),
+                String.class, OptionParsers.unary("", String::valueOf),
+                String[].class, OptionParsers.list(String[]::new, String::valueOf, parallelThreshold),
+                Integer[].class, OptionParsers.list(Integer[]::new, Integer::parseInt, parallelThreshold)
+        );
+    }
+
 }
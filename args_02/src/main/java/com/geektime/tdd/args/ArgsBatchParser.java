@@ -0,0 +1,80 @@
+package com.geektime.tdd.args;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Parameter;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+//同一个optionsClass的schema只解析一次，之后每一行只需要跑OptionParser和构造结果对象
+//values是复用的scratch数组，所以一个ArgsBatchParser只能在一个线程里用
+public class ArgsBatchParser<T> {
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final String[] EMPTY = new String[0];
+
+    private final Constructor<?> constructor;
+    private final Option[] options;
+    private final OptionParser[] parsers;
+    private final Object[] values;
+
+    public ArgsBatchParser(Class<T> optionsClass) {
+        this(optionsClass, Args.PARSER);
+    }
+
+    public ArgsBatchParser(Class<T> optionsClass, Map<Class<?>, OptionParser> parsers) {
+        this.constructor = optionsClass.getDeclaredConstructors()[0];
+        Parameter[] parameters = constructor.getParameters();
+        this.options = new Option[parameters.length];
+        this.parsers = new OptionParser[parameters.length];
+        for (int i = 0; i < parameters.length; i++) {
+            this.parsers[i] = Args.parserOf(parameters[i], parsers);
+            this.options[i] = parameters[i].getAnnotation(Option.class);
+        }
+        this.values = new Object[parameters.length];
+    }
+
+    public Stream<Parsed<T>> parse(Stream<String[]> arguments) {
+        return arguments.sequential().map(this::parseArguments);
+    }
+
+    public Stream<Parsed<T>> parseLines(Stream<String> lines) {
+        return parse(lines.map(ArgsBatchParser::split));
+    }
+
+    public T parse(String... args) {
+        Parsed<T> parsed = parseArguments(args);
+        if (!parsed.isSuccess()) throw parsed.error();
+        return parsed.options();
+    }
+
+    private Parsed<T> parseArguments(String[] args) {
+        try {
+            var arguments = Arrays.asList(args);
+            for (int i = 0; i < parsers.length; i++) {
+                values[i] = parsers[i].parse(arguments, options[i]);
+            }
+            return new Parsed<>((T) constructor.newInstance(values), null);
+        } catch (InvocationTargetException e) {
+            return new Parsed<>(null, new RuntimeException(e.getCause()));
+        } catch (ReflectiveOperationException e) {
+            return new Parsed<>(null, new RuntimeException(e));
+        } catch (RuntimeException e) {
+            return new Parsed<>(null, e);
+        } finally {
+            Arrays.fill(values, null);
+        }
+    }
+
+    private static String[] split(String line) {
+        String trimmed = line.trim();
+        return trimmed.isEmpty() ? EMPTY : WHITESPACE.split(trimmed);
+    }
+
+    public record Parsed<T>(T options, RuntimeException error) {
+        public boolean isSuccess() {
+            return error == null;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.geektime.tdd.args;
+
+import java.util.ArrayList;
+import java.util.List;
+
+//OptionParsers的规则只按下标访问参数，List<String>和共享char[]上切出来的参数用的是同一套规则
+interface Arguments {
+    int size();
+
+    int length(int index);
+
+    char charAt(int index, int position);
+
+    String get(int index);
+
+    int parseInt(int index);
+
+    //和"-" + option.value()逐个字符比较，不拼字符串
+    default boolean isOption(int index, Option option) {
+        String value = option.value();
+        if (length(index) != value.length() + 1 || charAt(index, 0) != '-') return false;
+        for (int i = 0; i < value.length(); i++) {
+            if (charAt(index, i + 1) != value.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    //等价于^-[a-zA-Z-]+$
+    default boolean isFlag(int index) {
+        int length = length(index);
+        if (length < 2 || charAt(index, 0) != '-') return false;
+        for (int i = 1; i < length; i++) {
+            char c = charAt(index, i);
+            if (!(c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c == '-')) return false;
+        }
+        return true;
+    }
+
+    static Arguments of(List<? extends CharSequence> arguments) {
+        return new Arguments() {
+            @Override
+            public int size() {
+                return arguments.size();
+            }
+
+            @Override
+            public int length(int index) {
+                return arguments.get(index).length();
+            }
+
+            @Override
+            public char charAt(int index, int position) {
+                return arguments.get(index).charAt(position);
+            }
+
+            @Override
+            public String get(int index) {
+                return arguments.get(index).toString();
+            }
+
+            @Override
+            public int parseInt(int index) {
+                CharSequence argument = arguments.get(index);
+                return Integer.parseInt(argument, 0, argument.length(), 10);
+            }
+        };
+    }
+
+    //下标0是option的flag，后面是从OptionSource里来的值，值以-开头也不算flag
+    static Arguments bound(Option option, List<String> values) {
+        List<String> arguments = new ArrayList<>(values.size() + 1);
+        arguments.add("-" + option.value());
+        arguments.addAll(values);
+        Arguments view = of(arguments);
+        return new Arguments() {
+            @Override
+            public int size() {
+                return view.size();
+            }
+
+            @Override
+            public int length(int index) {
+                return view.length(index);
+            }
+
+            @Override
+            public char charAt(int index, int position) {
+                return view.charAt(index, position);
+            }
+
+            @Override
+            public String get(int index) {
+                return view.get(index);
+            }
+
+            @Override
+            public int parseInt(int index) {
+                return view.parseInt(index);
+            }
+
+            @Override
+            public boolean isFlag(int index) {
+                return index == 0;
+            }
+        };
+    }
+
+    interface ValueParser<T> {
+        T parse(Arguments arguments, int index);
+    }
+}
@@ -0,0 +1,62 @@
+package com.geektime.tdd.args;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Parameter;
+import java.nio.CharBuffer;
+import java.util.List;
+import java.util.Map;
+
+public class CharSequenceArgs<T> {
+    private final Constructor<?> constructor;
+    private final Option[] options;
+    private final CharSequenceOptionParser[] parsers;
+
+    public CharSequenceArgs(Class<T> optionsClass) {
+        this(optionsClass, PARSER);
+    }
+
+    public CharSequenceArgs(Class<T> optionsClass, Map<Class<?>, CharSequenceOptionParser> parsers) {
+        this.constructor = optionsClass.getDeclaredConstructors()[0];
+        Parameter[] parameters = constructor.getParameters();
+        this.options = new Option[parameters.length];
+        this.parsers = new CharSequenceOptionParser[parameters.length];
+        for (int i = 0; i < parameters.length; i++) {
+            this.parsers[i] = Args.parserOf(parameters[i], parsers);
+            this.options[i] = parameters[i].getAnnotation(Option.class);
+        }
+    }
+
+    public T parse(char[] buffer, int offset, int length) {
+        return parse(CharTokens.tokenize(buffer, offset, length));
+    }
+
+    public T parse(CharBuffer buffer) {
+        return parse(CharTokens.tokenize(buffer));
+    }
+
+    public T parse(List<? extends CharSequence> arguments) {
+        return parse(Arguments.of(arguments));
+    }
+
+    private T parse(Arguments arguments) {
+        try {
+            Object[] values = new Object[parsers.length];
+            for (int i = 0; i < parsers.length; i++) {
+                values[i] = parsers[i].parse(arguments, options[i]);
+            }
+            return (T) constructor.newInstance(values);
+        } catch (InvocationTargetException | InstantiationException | IllegalAccessException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    //只有String类型的option才会生成String
+    static final Map<Class<?>, CharSequenceOptionParser> PARSER = Map.of(
+            boolean.class, CharSequenceOptionParsers.bool(),
+            int.class, CharSequenceOptionParsers.unary(0, Arguments::parseInt),
+            String.class, CharSequenceOptionParsers.unary("", Arguments::get),
+            String[].class, CharSequenceOptionParsers.list(String[]::new, Arguments::get),
+            Integer[].class, CharSequenceOptionParsers.list(Integer[]::new, Arguments::parseInt)
+    );
+}
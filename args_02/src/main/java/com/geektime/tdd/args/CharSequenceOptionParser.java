@@ -0,0 +1,5 @@
+package com.geektime.tdd.args;
+
+interface CharSequenceOptionParser<T> {
+    T parse(Arguments arguments, Option option);
+}
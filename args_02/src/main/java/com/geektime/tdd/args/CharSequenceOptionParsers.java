@@ -0,0 +1,19 @@
+package com.geektime.tdd.args;
+
+import java.util.function.IntFunction;
+
+//规则都在OptionParsers里，这里的值直接按下标从原来的char序列上解析，int不需要先变成String
+class CharSequenceOptionParsers {
+
+    public static CharSequenceOptionParser<Boolean> bool() {
+        return OptionParsers::bool;
+    }
+
+    public static <T> CharSequenceOptionParser<T> unary(T defaultValue, Arguments.ValueParser<T> valueParser) {
+        return (arguments, option) -> OptionParsers.unary(arguments, option, defaultValue, valueParser);
+    }
+
+    public static <T> CharSequenceOptionParser<T[]> list(IntFunction<T[]> generator, Arguments.ValueParser<T> valueParser) {
+        return (arguments, option) -> OptionParsers.list(arguments, option, generator, valueParser);
+    }
+}
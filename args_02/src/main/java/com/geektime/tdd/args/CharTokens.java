@@ -0,0 +1,78 @@
+package com.geektime.tdd.args;
+
+import java.nio.CharBuffer;
+import java.util.Arrays;
+
+//按空白切开原来的char序列，只记每个参数的起止下标；只有要String的时候才会拷贝
+final class CharTokens implements Arguments {
+    private final CharSequence source;
+    private int[] bounds = new int[16];
+    private int size;
+
+    private CharTokens(CharSequence source) {
+        this.source = source;
+    }
+
+    static CharTokens tokenize(char[] buffer, int offset, int length) {
+        if (offset < 0 || length < 0 || offset + length > buffer.length) throw new IndexOutOfBoundsException();
+        return tokenize(CharBuffer.wrap(buffer), offset, offset + length);
+    }
+
+    //direct buffer也是直接按下标读，不用先拷出来
+    static CharTokens tokenize(CharSequence source) {
+        return tokenize(source, 0, source.length());
+    }
+
+    private static CharTokens tokenize(CharSequence source, int start, int end) {
+        CharTokens tokens = new CharTokens(source);
+        int index = start;
+        while (index < end) {
+            while (index < end && Character.isWhitespace(source.charAt(index))) index++;
+            int begin = index;
+            while (index < end && !Character.isWhitespace(source.charAt(index))) index++;
+            if (index > begin) tokens.add(begin, index);
+        }
+        return tokens;
+    }
+
+    private void add(int begin, int end) {
+        if (size * 2 == bounds.length) bounds = Arrays.copyOf(bounds, bounds.length * 2);
+        bounds[size * 2] = begin;
+        bounds[size * 2 + 1] = end;
+        size++;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int length(int index) {
+        return end(index) - begin(index);
+    }
+
+    @Override
+    public char charAt(int index, int position) {
+        return source.charAt(begin(index) + position);
+    }
+
+    @Override
+    public String get(int index) {
+        return source.subSequence(begin(index), end(index)).toString();
+    }
+
+    @Override
+    public int parseInt(int index) {
+        return Integer.parseInt(source, begin(index), end(index), 10);
+    }
+
+    private int begin(int index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException(index);
+        return bounds[index * 2];
+    }
+
+    private int end(int index) {
+        return bounds[index * 2 + 1];
+    }
+}
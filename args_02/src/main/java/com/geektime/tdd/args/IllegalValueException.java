@@ -5,6 +5,8 @@ public class IllegalValueException extends RuntimeException {
     String value;
 
     public IllegalValueException(String option, String value) {
+        //只是描述用户输入错误的记录，不需要栈
+        super(null, null, false, false);
         this.option = option;
         this.value = value;
     }
@@ -5,6 +5,7 @@ public class InsufficientException extends RuntimeException {
     String option;
 
     public InsufficientException(String option) {
+        super(null, null, false, false);
         this.option = option;
     }
 
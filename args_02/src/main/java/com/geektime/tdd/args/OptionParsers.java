@@ -2,6 +2,8 @@ package com.geektime.tdd.args;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 import java.util.function.IntFunction;
 import java.util.stream.IntStream;
@@ -10,54 +12,113 @@ class OptionParsers {
 
 
     public static OptionParser<Boolean> bool() {
-        return (arguments, option) -> values(arguments, option, 0)
-                .map(it -> true).orElse(false);
+        return (arguments, option) -> bool(Arguments.of(arguments), option);
     }
 
     public static <T> OptionParser<T> unary(T defaultValue, Function<String, T> valueParser) {
-        return (arguments, option) -> values(arguments, option, 1)
-                .map(it -> parseValue(option, it.get(0), valueParser))
-                .orElse(defaultValue);
+        return (arguments, option) -> unary(Arguments.of(arguments), option, defaultValue, parser(valueParser));
     }
 
     public static <T> OptionParser<T[]> list(IntFunction<T[]> generator, Function<String, T> valueParser) {
-        return (arguments, option) -> values(arguments, option)
-                .map(it -> it.stream().map(value -> parseValue(option, value, valueParser)).toArray(generator))
-                .orElse(generator.apply(0));
+        return (arguments, option) -> list(Arguments.of(arguments), option, generator, parser(valueParser));
     }
 
-    private static Optional<List<String>> values(List<String> arguments, Option option) {
-        int index = arguments.indexOf("-" + option.value());
-        //list不需要限制参数的个数，多个是允许的
-        return Optional.ofNullable(index == -1 ? null : values(arguments, index));
+    //值的个数达到threshold之后，分块放到common ForkJoinPool上并行解析，出错时仍然报告位置最靠前的那个值
+    public static <T> OptionParser<T[]> list(IntFunction<T[]> generator, Function<String, T> valueParser, int parallelThreshold) {
+        return (arguments, option) -> {
+            Arguments view = Arguments.of(arguments);
+            int index = indexOf(view, option);
+            if (index == -1) return generator.apply(0);
+            int end = end(view, index);
+            return end - index - 1 < parallelThreshold
+                    ? list(view, option, index, end, generator, parser(valueParser))
+                    : parseInParallel(option, view, index + 1, end, generator, parser(valueParser));
+        };
     }
 
-    static Optional<List<String>> values(List<String> arguments, Option option, int expectedSize) {
-        return values(arguments, option).map(it -> checkSize(option, expectedSize, it));
+    static boolean bool(Arguments arguments, Option option) {
+        int index = indexOf(arguments, option);
+        if (index == -1) return false;
+        checkSize(option, 0, end(arguments, index) - index - 1);
+        return true;
     }
 
-    private static List<String> checkSize(Option option, int expectedSize, List<String> values) {
-        if (values.size() < expectedSize) throw new InsufficientException(option.value());
-        if (values.size() > expectedSize) throw new TooManyArgumentsException(option.value());
-        return values;
+    static <T> T unary(Arguments arguments, Option option, T defaultValue, Arguments.ValueParser<T> valueParser) {
+        int index = indexOf(arguments, option);
+        if (index == -1) return defaultValue;
+        checkSize(option, 1, end(arguments, index) - index - 1);
+        return parseValue(option, arguments, index + 1, valueParser);
     }
 
-    private static <T> T parseValue(Option option, String value, Function<String, T> valueParser) {
-        try {
-            return valueParser.apply(value);
-        } catch (Exception e) {
-            throw new IllegalValueException(option.value(), value);
+    //list不需要限制参数的个数，多个是允许的
+    static <T> T[] list(Arguments arguments, Option option, IntFunction<T[]> generator, Arguments.ValueParser<T> valueParser) {
+        int index = indexOf(arguments, option);
+        if (index == -1) return generator.apply(0);
+        return list(arguments, option, index, end(arguments, index), generator, valueParser);
+    }
+
+    private static <T> T[] list(Arguments arguments, Option option, int index, int end, IntFunction<T[]> generator, Arguments.ValueParser<T> valueParser) {
+        T[] result = generator.apply(end - index - 1);
+        for (int i = 0; i < result.length; i++) result[i] = parseValue(option, arguments, index + 1 + i, valueParser);
+        return result;
+    }
+
+    private static <T> T[] parseInParallel(Option option, Arguments arguments, int from, int to, IntFunction<T[]> generator, Arguments.ValueParser<T> valueParser) {
+        int size = to - from;
+        T[] result = generator.apply(size);
+        int chunkSize = Math.max(1, size / (ForkJoinPool.getCommonPoolParallelism() * 4));
+        int chunks = (size + chunkSize - 1) / chunkSize;
+        AtomicInteger firstIllegal = new AtomicInteger(size);
+        IntStream.range(0, chunks).parallel().forEach(chunk -> {
+            int end = Math.min(size, (chunk + 1) * chunkSize);
+            //已经有更靠前的值出错了，后面的就不用再解析了
+            for (int i = chunk * chunkSize; i < end && i < firstIllegal.get(); i++) {
+                try {
+                    result[i] = valueParser.parse(arguments, from + i);
+                } catch (Exception e) {
+                    firstIllegal.accumulateAndGet(i, Math::min);
+                }
+            }
+        });
+        if (firstIllegal.get() < size)
+            throw new IllegalValueException(option.value(), arguments.get(from + firstIllegal.get()));
+        return result;
+    }
+
+    static Optional<List<String>> values(List<String> arguments, Option option) {
+        Arguments view = Arguments.of(arguments);
+        int index = indexOf(view, option);
+        return index == -1 ? Optional.empty() : Optional.of(arguments.subList(index + 1, end(view, index)));
+    }
+
+    private static int indexOf(Arguments arguments, Option option) {
+        for (int index = 0; index < arguments.size(); index++) {
+            if (arguments.isOption(index, option)) return index;
         }
+        return -1;
+    }
+
+    //下一个flag的位置，没有的话就是参数的末尾
+    private static int end(Arguments arguments, int index) {
+        int followingFlag = index + 1;
+        while (followingFlag < arguments.size() && !arguments.isFlag(followingFlag)) followingFlag++;
+        return followingFlag;
     }
 
-    static List<String> values(List<String> arguments, int index) {
-        int followingFlag = IntStream.range(index + 1, arguments.size())
-                .filter(it -> arguments.get(it).matches("^-[a-zA-Z-]+$"))
-                .findFirst()
-                .orElse(arguments.size());
-        List<String> values = arguments.subList(index + 1, followingFlag);
-        return values;
+    private static void checkSize(Option option, int expectedSize, int size) {
+        if (size < expectedSize) throw new InsufficientException(option.value());
+        if (size > expectedSize) throw new TooManyArgumentsException(option.value());
     }
 
+    private static <T> Arguments.ValueParser<T> parser(Function<String, T> valueParser) {
+        return (arguments, index) -> valueParser.apply(arguments.get(index));
+    }
 
+    private static <T> T parseValue(Option option, Arguments arguments, int index, Arguments.ValueParser<T> valueParser) {
+        try {
+            return valueParser.parse(arguments, index);
+        } catch (Exception e) {
+            throw new IllegalValueException(option.value(), arguments.get(index));
+        }
+    }
 }
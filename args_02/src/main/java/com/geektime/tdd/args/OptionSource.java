@@ -0,0 +1,12 @@
+package com.geektime.tdd.args;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface OptionSource {
+    //bool option明确设成false的时候返回这个，后面的source就不再看了
+    List<String> FALSE = List.of("false");
+
+    //这个source里没有这个option就返回empty，有的话返回的值和命令行里flag后面跟着的值一样
+    Optional<List<String>> values(Option option, Class<?> type);
+}
@@ -0,0 +1,108 @@
+package com.geektime.tdd.args;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import static java.util.Arrays.stream;
+
+public class OptionSources {
+    private static final Map<FileKey, Map<String, String>> FILES = new ConcurrentHashMap<>();
+
+    public static OptionSource commandLine(String... args) {
+        List<String> arguments = Arrays.asList(args);
+        return (option, type) -> OptionParsers.values(arguments, option);
+    }
+
+    public static OptionSource environment(String prefix) {
+        return environment(prefix, System.getenv());
+    }
+
+    //-p对应的环境变量是prefix + "P"
+    public static OptionSource environment(String prefix, Map<String, String> environment) {
+        return (option, type) -> text(environment.get(prefix + option.value().toUpperCase(Locale.ROOT)), type);
+    }
+
+    public static OptionSource properties(Path file) {
+        return (option, type) -> text(load(file, OptionSources::readProperties).get(option.value()), type);
+    }
+
+    //只支持平铺的key: value，列表写成key: [a, b]
+    public static OptionSource yaml(Path file) {
+        return (option, type) -> text(load(file, OptionSources::readYaml).get(option.value()), type);
+    }
+
+    private static Optional<List<String>> text(String text, Class<?> type) {
+        if (text == null) return Optional.empty();
+        if (type == boolean.class) return Optional.of(Boolean.parseBoolean(text.trim()) ? List.of() : OptionSource.FALSE);
+        if (type.isArray()) return Optional.of(stream(text.split(",")).map(String::trim).filter(it -> !it.isEmpty()).toList());
+        return Optional.of(List.of(text.trim()));
+    }
+
+    //缓存按路径+修改时间+大小取，文件变了就是另一个key，长期运行的进程里每次parse只是stat一下
+    //大小也算进去：修改时间的精度不够的时候，同一刻改过的文件大小一般也不一样
+    private static Map<String, String> load(Path file, Function<Path, Map<String, String>> reader) {
+        Path path = file.toAbsolutePath().normalize();
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            FILES.keySet().removeIf(key -> key.path().equals(path));
+            return Map.of();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        FileKey current = new FileKey(path, attributes.lastModifiedTime(), attributes.size());
+        Map<String, String> values = FILES.get(current);
+        if (values != null) return values;
+        FILES.keySet().removeIf(key -> key.path().equals(path));
+        return FILES.computeIfAbsent(current, key -> reader.apply(key.path()));
+    }
+
+    private static Map<String, String> readProperties(Path file) {
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            Properties properties = new Properties();
+            properties.load(reader);
+            Map<String, String> values = new HashMap<>();
+            properties.stringPropertyNames().forEach(name -> values.put(name, properties.getProperty(name)));
+            return values;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Map<String, String> readYaml(Path file) {
+        try {
+            Map<String, String> values = new HashMap<>();
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                String content = line.strip();
+                int colon = content.indexOf(':');
+                if (content.isEmpty() || content.startsWith("#") || colon <= 0) continue;
+                String value = content.substring(colon + 1).strip();
+                if (value.startsWith("[") && value.endsWith("]")) value = value.substring(1, value.length() - 1);
+                values.put(content.substring(0, colon).strip(), unquote(value));
+            }
+            return values;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String unquote(String value) {
+        if (value.length() >= 2 && (value.startsWith("\"") && value.endsWith("\"") || value.startsWith("'") && value.endsWith("'")))
+            return value.substring(1, value.length() - 1);
+        return value;
+    }
+
+    private record FileKey(Path path, FileTime modified, long size) {
+    }
+}
@@ -0,0 +1,16 @@
+package com.geektime.tdd.args;
+
+import java.util.List;
+
+public record ParseResult<T>(T value, List<Violation> violations) {
+
+    public boolean isValid() {
+        return violations.isEmpty();
+    }
+
+    public record Violation(Type type, String option, String value) {
+        public enum Type {
+            ILLEGAL_VALUE, INSUFFICIENT_ARGUMENTS, TOO_MANY_ARGUMENTS
+        }
+    }
+}
@@ -5,6 +5,7 @@ public class TooManyArgumentsException extends RuntimeException{
     String option;
 
     public TooManyArgumentsException(String option) {
+        super(null, null, false, false);
         this.option = option;
     }
 
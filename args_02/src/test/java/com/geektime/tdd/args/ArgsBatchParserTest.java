@@ -0,0 +1,52 @@
+package com.geektime.tdd.args;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ArgsBatchParserTest {
+
+    record MultiOptions(@Option("l") boolean logging, @Option("p") int port, @Option("d") String directory) {
+    }
+
+    record OptionWithoutAnnotation(@Option("l") boolean logging, int port) {
+    }
+
+    @Test
+    public void should_parse_every_line_against_same_schema_in_order() {
+        ArgsBatchParser<MultiOptions> parser = new ArgsBatchParser<>(MultiOptions.class);
+
+        List<ArgsBatchParser.Parsed<MultiOptions>> parsed = parser.parseLines(
+                Stream.of("-l -p 8080 -d /usr/logs", "-p 9090", "")).toList();
+
+        assertEquals(new MultiOptions(true, 8080, "/usr/logs"), parsed.get(0).options());
+        assertEquals(new MultiOptions(false, 9090, ""), parsed.get(1).options());
+        assertEquals(new MultiOptions(false, 0, ""), parsed.get(2).options());
+    }
+
+    @Test
+    public void should_report_error_of_failed_line_and_continue_with_next_one() {
+        ArgsBatchParser<MultiOptions> parser = new ArgsBatchParser<>(MultiOptions.class);
+
+        List<ArgsBatchParser.Parsed<MultiOptions>> parsed = parser.parse(Stream.of(
+                new String[]{"-p", "not a port"},
+                new String[]{"-p", "8080", "8081"},
+                new String[]{"-p", "8080"})).toList();
+
+        IllegalValueException illegal = assertInstanceOf(IllegalValueException.class, parsed.get(0).error());
+        assertEquals("p", illegal.getOption());
+        assertInstanceOf(TooManyArgumentsException.class, parsed.get(1).error());
+        assertTrue(parsed.get(2).isSuccess());
+        assertEquals(8080, parsed.get(2).options().port());
+    }
+
+    @Test
+    public void should_throw_illegal_option_exception_when_compile_schema() {
+        IllegalOptionException e = assertThrows(IllegalOptionException.class,
+                () -> new ArgsBatchParser<>(OptionWithoutAnnotation.class));
+        assertEquals("port", e.getParameter());
+    }
+}
@@ -3,6 +3,7 @@ package com.geektime.tdd.args;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 
+import java.util.List;
 import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -63,6 +64,32 @@ class ArgsTest {
 
     }
 
+    @Test
+    public void should_return_parsed_value_if_no_violation() {
+        ParseResult<MultiOptions> result = Args.validate(MultiOptions.class, "-l", "-p", "8080", "-d", "/usr/logs");
+        assertTrue(result.isValid());
+        assertEquals(new MultiOptions(true, 8080, "/usr/logs"), result.value());
+    }
+
+    @Test
+    public void should_collect_all_violations_instead_of_failing_on_first_one() {
+        ParseResult<MultiOptions> result = Args.validate(MultiOptions.class, "-l", "t", "-p", "not a port", "-d");
+        assertFalse(result.isValid());
+        assertNull(result.value());
+        assertEquals(List.of(
+                new ParseResult.Violation(ParseResult.Violation.Type.TOO_MANY_ARGUMENTS, "l", null),
+                new ParseResult.Violation(ParseResult.Violation.Type.ILLEGAL_VALUE, "p", "not a port"),
+                new ParseResult.Violation(ParseResult.Violation.Type.INSUFFICIENT_ARGUMENTS, "d", null)
+        ), result.violations());
+    }
+
+    @Test
+    public void should_parse_list_option_in_parallel_if_threshold_given() {
+        ListOptions options = Args.parse(ListOptions.class, 2, "-g", "this", "is", "a", "list", "-d", "1", "2", "3");
+        assertArrayEquals(new String[]{"this", "is", "a", "list"}, options.group());
+        assertArrayEquals(new Integer[]{1, 2, 3}, options.decimals());
+    }
+
     record MultiOptions(@Option("l") boolean logging, @Option("p") int port, @Option("d") String directory) {
 
     }
@@ -0,0 +1,67 @@
+package com.geektime.tdd.args;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.CharBuffer;
+
+import static com.geektime.tdd.args.OptionParsersTest.BooleanOptionParserTest.option;
+import static org.junit.jupiter.api.Assertions.*;
+
+class CharSequenceArgsTest {
+
+    record MultiOptions(@Option("l") boolean logging, @Option("p") int port, @Option("d") String directory) {
+    }
+
+    record ListOptions(@Option("g") String[] group, @Option("d") Integer[] decimals) {
+    }
+
+    @Test
+    public void should_parse_options_from_slice_of_shared_buffer() {
+        char[] buffer = "ignored -l -p 8080 -d /usr/logs ignored".toCharArray();
+        MultiOptions options = new CharSequenceArgs<>(MultiOptions.class).parse(buffer, 8, 23);
+        assertTrue(options.logging());
+        assertEquals(8080, options.port());
+        assertEquals("/usr/logs", options.directory());
+    }
+
+    @Test
+    public void should_parse_list_options_from_char_buffer() {
+        ListOptions options = new CharSequenceArgs<>(ListOptions.class)
+                .parse(CharBuffer.wrap("-g this is a list -d 1 2 -3 5"));
+        assertArrayEquals(new String[]{"this", "is", "a", "list"}, options.group());
+        assertArrayEquals(new Integer[]{1, 2, -3, 5}, options.decimals());
+    }
+
+    @Test
+    public void should_tokenize_buffer_without_copying_chars() {
+        char[] buffer = "  -p   8080 ".toCharArray();
+        CharTokens tokens = CharTokens.tokenize(buffer, 0, buffer.length);
+        assertEquals(2, tokens.size());
+        assertEquals("-p", tokens.get(0));
+        buffer[7] = '9';
+        assertEquals(9080, tokens.parseInt(1));
+    }
+
+    @Test
+    public void should_throw_illegal_value_exception_if_int_value_not_a_number() {
+        IllegalValueException e = assertThrows(IllegalValueException.class, () ->
+                CharSequenceOptionParsers.unary(0, Arguments::parseInt)
+                        .parse(CharTokens.tokenize(CharBuffer.wrap("-p 80x")), option("p")));
+        assertEquals("p", e.getOption());
+        assertEquals("80x", e.getValue());
+    }
+
+    @Test
+    public void should_not_accept_extra_argument_for_int_option() {
+        TooManyArgumentsException e = assertThrows(TooManyArgumentsException.class, () ->
+                CharSequenceOptionParsers.unary(0, Arguments::parseInt)
+                        .parse(CharTokens.tokenize(CharBuffer.wrap("-p 8080 8081")), option("p")));
+        assertEquals("p", e.getOption());
+    }
+
+    @Test
+    public void should_not_accept_extra_argument_for_boolean_option() {
+        assertThrows(TooManyArgumentsException.class, () -> CharSequenceOptionParsers.bool()
+                .parse(CharTokens.tokenize(CharBuffer.wrap("-l t")), option("l")));
+    }
+}
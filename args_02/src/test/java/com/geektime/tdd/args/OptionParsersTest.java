@@ -10,6 +10,7 @@ import java.lang.annotation.Annotation;
 import java.util.Arrays;
 import java.util.function.Function;
 import java.util.function.IntFunction;
+import java.util.stream.IntStream;
 
 import static com.geektime.tdd.args.OptionParsersTest.BooleanOptionParserTest.option;
 import static java.util.Arrays.*;
@@ -144,6 +145,28 @@ public class OptionParsersTest {
                 assertEquals("g", e.getOption());
                 assertEquals("this", e.getValue());
             }
+
+            @Test
+            public void should_parse_list_value_in_parallel_if_size_reach_threshold() {
+                String[] arguments = IntStream.rangeClosed(0, 1000).mapToObj(String::valueOf).toArray(String[]::new);
+                arguments[0] = "-d";
+                Integer[] value = OptionParsers.list(Integer[]::new, Integer::parseInt, 100)
+                        .parse(asList(arguments), option("d"));
+                assertArrayEquals(IntStream.rangeClosed(1, 1000).boxed().toArray(Integer[]::new), value);
+            }
+
+            @Test
+            public void should_report_first_illegal_value_when_parse_in_parallel() {
+                String[] arguments = IntStream.rangeClosed(0, 1000).mapToObj(String::valueOf).toArray(String[]::new);
+                arguments[0] = "-d";
+                arguments[300] = "first";
+                arguments[900] = "second";
+                IllegalValueException e = assertThrows(IllegalValueException.class,
+                        () -> OptionParsers.list(Integer[]::new, Integer::parseInt, 100)
+                                .parse(asList(arguments), option("d")));
+                assertEquals("d", e.getOption());
+                assertEquals("first", e.getValue());
+            }
         }
 
         static Option option(String value) {
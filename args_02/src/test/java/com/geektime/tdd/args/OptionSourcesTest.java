@@ -0,0 +1,120 @@
+package com.geektime.tdd.args;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static com.geektime.tdd.args.OptionParsersTest.BooleanOptionParserTest.option;
+import static org.junit.jupiter.api.Assertions.*;
+
+class OptionSourcesTest {
+    @TempDir
+    Path directory;
+
+    record MultiOptions(@Option("l") boolean logging, @Option("p") int port, @Option("d") String directory) {
+    }
+
+    record ListOptions(@Option("g") String[] group, @Option("d") Integer[] decimals) {
+    }
+
+    @Test
+    public void should_take_option_from_first_source_which_has_it() throws Exception {
+        Path file = Files.writeString(directory.resolve("app.properties"), "l=true\np=8080\nd=/usr/logs\n");
+
+        MultiOptions options = Args.parseFrom(MultiOptions.class,
+                OptionSources.commandLine("-p", "9090"),
+                OptionSources.environment("APP_", Map.of("APP_D", "/var/logs")),
+                OptionSources.properties(file));
+
+        assertEquals(new MultiOptions(true, 9090, "/var/logs"), options);
+    }
+
+    @Test
+    public void should_use_default_value_if_no_source_has_option() {
+        MultiOptions options = Args.parseFrom(MultiOptions.class, OptionSources.environment("APP_", Map.of()));
+        assertEquals(new MultiOptions(false, 0, ""), options);
+    }
+
+    @Test
+    public void should_not_set_bool_option_if_source_says_false() {
+        MultiOptions options = Args.parseFrom(MultiOptions.class, OptionSources.environment("APP_", Map.of("APP_L", "false")));
+        assertFalse(options.logging());
+    }
+
+    @Test
+    public void should_not_fall_through_to_lower_source_if_bool_option_set_to_false() throws Exception {
+        Path file = Files.writeString(directory.resolve("app.properties"), "l=true\n");
+
+        MultiOptions options = Args.parseFrom(MultiOptions.class,
+                OptionSources.environment("APP_", Map.of("APP_L", "false")),
+                OptionSources.properties(file));
+
+        assertFalse(options.logging());
+    }
+
+    @Test
+    public void should_split_list_option_by_comma() throws Exception {
+        Path file = Files.writeString(directory.resolve("app.yaml"), "# list options\ng: [this, is, a, list]\nd: 1, 2, -3\n");
+
+        ListOptions options = Args.parseFrom(ListOptions.class, OptionSources.yaml(file));
+
+        assertArrayEquals(new String[]{"this", "is", "a", "list"}, options.group());
+        assertArrayEquals(new Integer[]{1, 2, -3}, options.decimals());
+    }
+
+    @Test
+    public void should_reload_file_only_after_modified() throws Exception {
+        Path file = Files.writeString(directory.resolve("app.properties"), "p=8080\n");
+        FileTime modified = Files.getLastModifiedTime(file);
+        OptionSource source = OptionSources.properties(file);
+        assertEquals(Optional.of(List.of("8080")), source.values(option("p"), int.class));
+
+        Files.writeString(file, "p=9090\n");
+        Files.setLastModifiedTime(file, modified);
+        assertEquals(Optional.of(List.of("8080")), source.values(option("p"), int.class));
+
+        Files.setLastModifiedTime(file, FileTime.fromMillis(modified.toMillis() + 1000));
+        assertEquals(Optional.of(List.of("9090")), source.values(option("p"), int.class));
+    }
+
+    @Test
+    public void should_reload_file_if_size_changed_within_same_modified_time() throws Exception {
+        Path file = Files.writeString(directory.resolve("app.properties"), "p=8080\n");
+        FileTime modified = Files.getLastModifiedTime(file);
+        OptionSource source = OptionSources.properties(file);
+        assertEquals(Optional.of(List.of("8080")), source.values(option("p"), int.class));
+
+        Files.writeString(file, "p=18080\n");
+        Files.setLastModifiedTime(file, modified);
+
+        assertEquals(Optional.of(List.of("18080")), source.values(option("p"), int.class));
+    }
+
+    @Test
+    public void should_bind_source_value_starting_with_dash_to_option() throws Exception {
+        Path file = Files.writeString(directory.resolve("app.properties"), "d=-x\np=-1\n");
+
+        MultiOptions options = Args.parseFrom(MultiOptions.class, OptionSources.properties(file));
+
+        assertEquals(new MultiOptions(false, -1, "-x"), options);
+    }
+
+    @Test
+    public void should_bind_list_values_starting_with_dash_from_environment() {
+        ListOptions options = Args.parseFrom(ListOptions.class, OptionSources.environment("APP_", Map.of("APP_G", "-a, -b", "APP_D", "-1, 2")));
+
+        assertArrayEquals(new String[]{"-a", "-b"}, options.group());
+        assertArrayEquals(new Integer[]{-1, 2}, options.decimals());
+    }
+
+    @Test
+    public void should_treat_missing_file_as_empty_source() {
+        assertEquals(Optional.empty(), OptionSources.properties(directory.resolve("missing.properties")).values(option("p"), int.class));
+    }
+}
@@ -33,6 +33,11 @@ public class ContextConfig {
         }
     }
 
+    //实例不是容器能构造的（比如从当前请求里取），由调用方给出provider，每次注入都调用一次
+    public <Type> void bindProvider(Class<Type> type, Provider<? extends Type> provider) {
+        components.put(new Component(type, null), context -> provider.get());
+    }
+
     public <Type, Implementation extends Type>
     void bind(Class<Type> type, Class<Implementation> implementation) {
 //        components.put(new Component(type, null), new InjectionProvider<>(implementation));
@@ -96,6 +101,25 @@ public class ContextConfig {
         scopes.put(scope, provider);
     }
 
+    //容器外面管理的scope（比如一次请求）：实例怎么建还是容器的事，scope只决定按key复用哪个
+    public <ScopeType extends Annotation> void scope(Class<ScopeType> scope, ScopedInstances instances) {
+        scope(scope, provider -> new ComponentProvider<Object>() {
+            @Override
+            public Object get(Context context) {
+                return instances.get(provider, () -> provider.get(context));
+            }
+
+            @Override
+            public List<ComponentRef<?>> getDependencies() {
+                return provider.getDependencies();
+            }
+        });
+    }
+
+    public interface ScopedInstances {
+        Object get(Object key, Provider<?> creator);
+    }
+
     public Context getContext() {
         components.keySet().forEach(component -> checkDependencies(component, new Stack<>()));
 
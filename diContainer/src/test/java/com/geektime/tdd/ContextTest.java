@@ -39,6 +39,21 @@ public class ContextTest {
 
         }
 
+        @Test
+        public void should_bind_type_to_a_provider() {
+            List<TestComponent> instances = new ArrayList<>();
+            config.bindProvider(TestComponent.class, () -> {
+                TestComponent instance = new TestComponent() {
+                };
+                instances.add(instance);
+                return instance;
+            });
+            Context context = config.getContext();
+            TestComponent first = context.get(ComponentRef.of(TestComponent.class)).get();
+            TestComponent second = context.get(ComponentRef.of(TestComponent.class)).get();
+            assertEquals(List.of(first, second), instances);
+        }
+
         @ParameterizedTest(name = "supporting {0}")
         @MethodSource
         public void should_bind_type_to_an_injectable_component(Class<? extends TestComponent> componentType) {
@@ -181,6 +196,15 @@ public class ContextTest {
             public void should_throw_exception_if_illegal_qualifier_given_to_component() {
                 assertThrows(IllegalComponentException.class, () -> config.bind(ConstructorInjection.class, ConstructorInjection.class, new TestLiteral(),new NestedLiteral()));
             }
+
+            @Test
+            public void should_throw_exception_if_illegal_annotation_on_component_class() {
+                assertThrows(IllegalComponentException.class, () -> config.bind(TaggedComponent.class, TaggedComponent.class));
+            }
+
+            @Tag("component")
+            static class TaggedComponent implements TestComponent {
+            }
         }
 
 
@@ -684,6 +708,18 @@ public class ContextTest {
             List<NoSingleton> instances = IntStream.range(0, 5).mapToObj(i -> context.get(ComponentRef.of(NoSingleton.class)).get()).toList();
             assertEquals(PooledProvider.MAX,new HashSet<>(instances).size());
         }
+
+        @Test
+        public void should_reuse_instances_kept_by_external_scope() {
+            Map<Object, Object> kept = new HashMap<>();
+            config.scope(Pooled.class, (key, creator) -> kept.computeIfAbsent(key, k -> creator.get()));
+            config.bind(NoSingleton.class, NoSingleton.class, new PooledLiteral());
+            Context context = config.getContext();
+            NoSingleton first = context.get(ComponentRef.of(NoSingleton.class)).get();
+            assertSame(first, context.get(ComponentRef.of(NoSingleton.class)).get());
+            kept.clear();
+            assertNotSame(first, context.get(ComponentRef.of(NoSingleton.class)).get());
+        }
         //TODO bind component with customize scope annotation
         @Nested
         public class WithQualifier {
@@ -0,0 +1,100 @@
+package com.geektime.tdd.rest;
+
+import com.geektime.tdd.ContextConfig;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.container.AsyncResponse;
+import jakarta.ws.rs.container.Suspended;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.openjdk.jmh.annotations.*;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.*;
+
+//Jetty只有16个线程，下游调用固定耗时50ms，每次同时发concurrency个请求，测全部返回用的时间
+//blocking大约是concurrency/可用线程数*50ms，async和suspended不随并发数增长
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class AsyncDispatchBenchmark {
+    static final int THREADS = 16;
+    static final long DOWNSTREAM_MILLIS = 50;
+
+    @Param({"64", "256"})
+    public int concurrency;
+
+    @Param({"blocking", "async", "suspended"})
+    public String mode;
+
+    private Server server;
+    private HttpClient client;
+    private URI uri;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        ContextConfig config = new ContextConfig();
+        ResourceServlet.bind(config, SlowResource.class);
+        ServletHolder holder = new ServletHolder(new ResourceServlet(config.getContext(), SlowResource.class));
+        holder.setAsyncSupported(true);
+        ServletContextHandler handler = new ServletContextHandler();
+        handler.addServlet(holder, "/*");
+
+        server = new Server(new QueuedThreadPool(THREADS, THREADS));
+        ServerConnector connector = new ServerConnector(server, 1, 1);
+        server.addConnector(connector);
+        server.setHandler(handler);
+        server.start();
+        uri = URI.create("http://localhost:" + connector.getLocalPort() + "/slow/" + mode);
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown() throws Exception {
+        server.stop();
+    }
+
+    @Benchmark
+    public int concurrent_requests() {
+        HttpRequest request = HttpRequest.newBuilder(uri).build();
+        CompletableFuture<?>[] responses = new CompletableFuture<?>[concurrency];
+        for (int i = 0; i < concurrency; i++)
+            responses[i] = client.sendAsync(request, HttpResponse.BodyHandlers.ofString());
+        CompletableFuture.allOf(responses).join();
+        return responses.length;
+    }
+
+    @Path("/slow")
+    public static class SlowResource {
+        private static final Executor downstream = CompletableFuture.delayedExecutor(DOWNSTREAM_MILLIS, TimeUnit.MILLISECONDS);
+
+        @GET
+        @Path("blocking")
+        @Produces("text/plain")
+        public String blocking() throws InterruptedException {
+            Thread.sleep(DOWNSTREAM_MILLIS);
+            return "ok";
+        }
+
+        @GET
+        @Path("async")
+        @Produces("text/plain")
+        public CompletionStage<String> async() {
+            return CompletableFuture.supplyAsync(() -> "ok", downstream);
+        }
+
+        @GET
+        @Path("suspended")
+        @Produces("text/plain")
+        public void suspended(@Suspended AsyncResponse response) {
+            downstream.execute(() -> response.resume("ok"));
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.geektime.tdd.rest;
+
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.ws.rs.core.MediaType;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+//StudentsResource.all()那样的JSON数组：id、email、firstName、lastName，100到10000个学生
+//每次把实体序列化并按encoding写出去，测CPU时间；返回累计写出的字节数，结果不会被优化掉
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ContentEncodingBenchmark {
+    @Param({"100", "1000", "10000"})
+    public int students;
+
+    @Param({"identity", "gzip", "deflate"})
+    public String encoding;
+
+    private final JsonMessageBodyWriter writer = new JsonMessageBodyWriter();
+    private final HttpServletResponse response = (HttpServletResponse) Proxy.newProxyInstance(
+            HttpServletResponse.class.getClassLoader(), new Class<?>[]{HttpServletResponse.class}, (proxy, method, args) -> null);
+    private final Counting out = new Counting();
+    private List<Student> entity;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        entity = IntStream.range(0, students)
+                .mapToObj(i -> new Student(i, "student" + i + "@email.com", "first" + i, "last" + (i % 100))).toList();
+    }
+
+    @Benchmark
+    public long write() throws IOException {
+        OutputStream body = encoding.equals("identity") ? out : ContentEncoding.encode(response, out, encoding);
+        writer.writeTo(entity, List.class, List.class, new java.lang.annotation.Annotation[0], MediaType.APPLICATION_JSON_TYPE, null, body);
+        if (body != out) body.close();
+        return out.bytes;
+    }
+
+    public record Student(long id, String email, String firstName, String lastName) {
+    }
+
+    private static class Counting extends OutputStream {
+        long bytes;
+
+        @Override
+        public void write(int b) {
+            bytes++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            bytes += len;
+        }
+    }
+}
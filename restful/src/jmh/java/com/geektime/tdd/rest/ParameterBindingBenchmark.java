@@ -0,0 +1,59 @@
+package com.geektime.tdd.rest;
+
+import com.geektime.tdd.Context;
+import com.geektime.tdd.ContextConfig;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.ws.rs.DefaultValue;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.PathParam;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+//路由已经匹配好，只测取参数、转换和调用：long路径参数，int、枚举、UUID（fromString）查询参数，其中一个走@DefaultValue
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ParameterBindingBenchmark {
+    private Context context;
+    private HttpServletRequest request;
+    private ResourceRouter.Match match;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        ContextConfig config = new ContextConfig();
+        config.bind(OrdersResource.class, new OrdersResource());
+        context = config.getContext();
+        match = ResourceRouter.of(new MessageBodyWriters(List.of()), OrdersResource.class).match("GET", "/orders/42", null);
+        Map<String, String> parameters = Map.of("limit", "20", "sort", "DESC", "after", UUID.randomUUID().toString());
+        request = (HttpServletRequest) Proxy.newProxyInstance(HttpServletRequest.class.getClassLoader(), new Class<?>[]{HttpServletRequest.class},
+                (proxy, method, args) -> method.getName().equals("getParameter") ? parameters.get((String) args[0]) : null);
+    }
+
+    @Benchmark
+    public Object bind() throws Throwable {
+        return match.method().invoke(context, request, match.values());
+    }
+
+    public enum Sort {
+        ASC, DESC
+    }
+
+    @Path("/orders")
+    public static class OrdersResource {
+        @GET
+        @Path("{id}")
+        @Produces("text/plain")
+        public String get(@PathParam("id") long id, @QueryParam("limit") int limit, @QueryParam("sort") Sort sort,
+                          @QueryParam("after") UUID after, @QueryParam("page") @DefaultValue("1") int page) {
+            return "ok";
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.geektime.tdd.rest;
+
+import com.geektime.tdd.ContextConfig;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.HttpHeaders;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.TimeUnit;
+
+//同一个资源类（构造函数注入两个依赖），一个每次请求让容器反射构造，一个标@Reusable从池里借
+//每次请求的分配量看-prof gc的gc.alloc.rate.norm，两者的差就是每个请求省下的构造和注入
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ResourceScopeBenchmark {
+    @Param({"container", "pooled"})
+    public String resource;
+
+    private ResourceServlet servlet;
+    private HttpServletRequest request;
+    private HttpServletResponse response;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        ContextConfig config = new ContextConfig();
+        RequestScope.install(config);
+        config.bind(Repository.class, Repository.class);
+        config.bind(Clock.class, Clock.class);
+        ResourceServlet.bind(config, ContainerResource.class);
+        ResourceServlet.bind(config, PooledResource.class);
+        servlet = new ResourceServlet(config.getContext(), ContainerResource.class, PooledResource.class);
+
+        String path = "/" + resource;
+        request = (HttpServletRequest) Proxy.newProxyInstance(HttpServletRequest.class.getClassLoader(), new Class<?>[]{HttpServletRequest.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getMethod" -> "GET";
+                    case "getPathInfo" -> path;
+                    default -> null;
+                });
+        ServletOutputStream out = new ServletOutputStream() {
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+            }
+
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        };
+        response = (HttpServletResponse) Proxy.newProxyInstance(HttpServletResponse.class.getClassLoader(), new Class<?>[]{HttpServletResponse.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getOutputStream" -> out;
+                    case "containsHeader" -> false;
+                    default -> null;
+                });
+    }
+
+    @Benchmark
+    public HttpServletResponse dispatch() throws IOException {
+        servlet.service(request, response);
+        return response;
+    }
+
+    @Singleton
+    public static class Repository {
+    }
+
+    public static class Clock {
+    }
+
+    @Path("/container")
+    public static class ContainerResource {
+        private final Repository repository;
+        private final Clock clock;
+
+        @Inject
+        public ContainerResource(Repository repository, Clock clock) {
+            this.repository = repository;
+            this.clock = clock;
+        }
+
+        @GET
+        @Produces("text/plain")
+        public String get(@Context HttpHeaders headers) {
+            return "ok";
+        }
+    }
+
+    @Reusable
+    @Path("/pooled")
+    public static class PooledResource {
+        private final Repository repository;
+        private final Clock clock;
+
+        @Inject
+        public PooledResource(Repository repository, Clock clock) {
+            this.repository = repository;
+            this.clock = clock;
+        }
+
+        @GET
+        @Produces("text/plain")
+        public String get(@Context HttpHeaders headers) {
+            return "ok";
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.geektime.tdd.rest;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+//1000条路由：200个资源，每个资源有集合、按id、id下的子集合、子集合按数字id、一个字面量的动作五种模板
+//linear是原来按优先级逐个跑正则的做法
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RouteTreeBenchmark {
+    static final int RESOURCES = 200;
+
+    private final List<UriTemplate> templates = new ArrayList<>();
+    private final RouteTree<UriTemplate> tree = new RouteTree<>();
+    private String[] paths;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        for (int i = 0; i < RESOURCES; i++) {
+            templates.add(UriTemplate.of("/resources" + i));
+            templates.add(UriTemplate.of("/resources" + i + "/{id}"));
+            templates.add(UriTemplate.of("/resources" + i + "/{id}/items"));
+            templates.add(UriTemplate.of("/resources" + i + "/{id}/items/{item: \\d+}"));
+            templates.add(UriTemplate.of("/resources" + i + "/search"));
+        }
+        templates.sort(UriTemplate.PRECEDENCE);
+        for (int rank = 0; rank < templates.size(); rank++) tree.add(templates.get(rank), rank, templates.get(rank));
+        paths = new String[1024];
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < paths.length; i++) {
+            int resource = random.nextInt(RESOURCES);
+            paths[i] = switch (i % 4) {
+                case 0 -> "/resources" + resource + "/" + random.nextInt(100_000);
+                case 1 -> "/resources" + resource + "/" + random.nextInt(100_000) + "/items/" + random.nextInt(100);
+                case 2 -> "/resources" + resource + "/search";
+                default -> "/resources" + resource;
+            };
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Benchmark
+    public Object tree(Cursor cursor) {
+        return tree.match(paths[cursor.next++ & (paths.length - 1)]);
+    }
+
+    @Benchmark
+    public Object linear(Cursor cursor) {
+        String path = paths[cursor.next++ & (paths.length - 1)];
+        for (UriTemplate template : templates) {
+            String[] values = template.match(path);
+            if (values != null) return values;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,97 @@
+package com.geektime.tdd.rest;
+
+import com.geektime.tdd.ContextConfig;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.openjdk.jmh.annotations.*;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+//资源方法里是阻塞调用（模拟一次20ms的JDBC），Jetty用默认的200个平台线程
+//platform在容器线程上调用，同时处理的请求数被线程数卡住；virtual在虚拟线程上调用，只受maxConcurrency限制
+//JDK 21以下virtual跑在共享的FALLBACK_THREADS个平台线程上，比platform慢，只有在JDK 21以上比较才有意义
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class VirtualThreadDispatchBenchmark {
+    static final int THREADS = 200;
+    static final long QUERY_MILLIS = 20;
+
+    @Param({"200", "1000", "4000"})
+    public int concurrency;
+
+    @Param({"platform", "virtual"})
+    public String mode;
+
+    private Server server;
+    private HttpClient client;
+    private URI uri;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        ContextConfig config = new ContextConfig();
+        ResourceServlet.bind(config, BlockingResource.class);
+        ServletHolder holder = new ServletHolder(new ResourceServlet(config.getContext(), BlockingResource.class));
+        holder.setAsyncSupported(true);
+        ServletContextHandler handler = new ServletContextHandler();
+        handler.addServlet(holder, "/*");
+
+        server = new Server(new QueuedThreadPool(THREADS));
+        ServerConnector connector = new ServerConnector(server);
+        connector.setAcceptQueueSize(concurrency);
+        server.addConnector(connector);
+        server.setHandler(handler);
+        server.start();
+        uri = URI.create("http://localhost:" + connector.getLocalPort() + "/students/" + mode);
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown() throws Exception {
+        server.stop();
+    }
+
+    @Benchmark
+    public int concurrent_requests() {
+        HttpRequest request = HttpRequest.newBuilder(uri).build();
+        CompletableFuture<?>[] responses = new CompletableFuture<?>[concurrency];
+        for (int i = 0; i < concurrency; i++)
+            responses[i] = client.sendAsync(request, HttpResponse.BodyHandlers.discarding());
+        CompletableFuture.allOf(responses).join();
+        return responses.length;
+    }
+
+    @Path("/students")
+    public static class BlockingResource {
+        @GET
+        @Path("platform")
+        @Produces("text/plain")
+        public String platform() throws InterruptedException {
+            return query();
+        }
+
+        @GET
+        @Path("virtual")
+        @Produces("text/plain")
+        @RunOnVirtualThread(maxConcurrency = 4096)
+        public String virtual() throws InterruptedException {
+            return query();
+        }
+
+        private static String query() throws InterruptedException {
+            Thread.sleep(QUERY_MILLIS);
+            return "ok";
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.geektime.tdd.rest;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+//GET的响应体序列化之后按URI+Accept缓存ttl这么久，带上强ETag，If-None-Match对上了直接304，不调用资源方法
+//资源方法自己设了ETag（比如用实体的版本号）就用它的，否则按响应体算；只支持同步调用的资源方法
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Cacheable {
+    long ttl() default 60;
+
+    TimeUnit unit() default TimeUnit.SECONDS;
+}
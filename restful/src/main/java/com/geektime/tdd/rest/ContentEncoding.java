@@ -0,0 +1,189 @@
+package com.geektime.tdd.rest;
+
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MediaType;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+//按Accept-Encoding在gzip和deflate里挑一个，只压文本类的media type
+//Deflater带着native的zlib状态，用完reset放回池里，请求里不再new；gzip的头和尾自己写，所以gzip用的是不带zlib包装的Deflater
+//响应体不到THRESHOLD就原样写出去，压缩省下的字节抵不上CPU和头部的开销；级别用BEST_SPEED，比默认级别省一半CPU，只多15%左右的字节
+final class ContentEncoding {
+    static final String GZIP = "gzip";
+    static final String DEFLATE = "deflate";
+    static final int THRESHOLD = 1024;
+    static final int LEVEL = Deflater.BEST_SPEED;
+    private static final int BUFFER = 8 * 1024;
+    private static final BlockingQueue<Deflater> GZIP_DEFLATERS = new ArrayBlockingQueue<>(64);
+    private static final BlockingQueue<Deflater> ZLIB_DEFLATERS = new ArrayBlockingQueue<>(64);
+    private static final BlockingQueue<byte[]> BUFFERS = new ArrayBlockingQueue<>(128);
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+    private ContentEncoding() {
+    }
+
+    static boolean compressible(MediaType mediaType) {
+        if (mediaType == null) return false;
+        String type = mediaType.getType(), subtype = mediaType.getSubtype();
+        return type.equals("text") || subtype.equals("json") || subtype.endsWith("+json")
+                || subtype.equals("xml") || subtype.endsWith("+xml") || subtype.equals("javascript");
+    }
+
+    //q值相同的时候gzip优先；identity以外都不接受或者没有这个头的时候返回null
+    static String negotiate(String acceptEncoding) {
+        if (acceptEncoding == null || acceptEncoding.isEmpty()) return null;
+        double gzip = -1, deflate = -1, any = -1;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].trim().toLowerCase();
+            double q = quality(parts);
+            switch (name) {
+                case GZIP, "x-gzip" -> gzip = Math.max(gzip, q);
+                case DEFLATE -> deflate = Math.max(deflate, q);
+                case "*" -> any = q;
+                default -> {
+                }
+            }
+        }
+        if (gzip < 0) gzip = any;
+        if (deflate < 0) deflate = any;
+        if (gzip <= 0 && deflate <= 0) return null;
+        return gzip >= deflate ? GZIP : DEFLATE;
+    }
+
+    private static double quality(String[] parameters) {
+        for (int i = 1; i < parameters.length; i++) {
+            String parameter = parameters[i].trim();
+            if (parameter.startsWith("q=")) try {
+                return Double.parseDouble(parameter.substring(2));
+            } catch (NumberFormatException e) {
+                return 0;
+            }
+        }
+        return 1;
+    }
+
+    //响应体写进返回的流里，超过THRESHOLD才开始压缩并设置Content-Encoding；close只结束压缩，不关out
+    static OutputStream encode(HttpServletResponse response, OutputStream out, String encoding) {
+        return new EncodingOutputStream(response, out, encoding);
+    }
+
+    private static final class EncodingOutputStream extends OutputStream {
+        private final HttpServletResponse response;
+        private final OutputStream out;
+        private final String encoding;
+        private byte[] pending = buffer();
+        private int count;
+        private Deflater deflater;
+        private byte[] buffer;
+        private CRC32 crc;
+        private boolean closed;
+
+        EncodingOutputStream(HttpServletResponse response, OutputStream out, String encoding) {
+            this.response = response;
+            this.out = out;
+            this.encoding = encoding;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (deflater == null && count < THRESHOLD) pending[count++] = (byte) b;
+            else write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            if (deflater == null) {
+                if (count + length <= THRESHOLD) {
+                    System.arraycopy(bytes, offset, pending, count, length);
+                    count += length;
+                    return;
+                }
+                start();
+            }
+            deflate(bytes, offset, length);
+        }
+
+        //超过阈值的时候头还没提交，还能补Content-Encoding；内容变了，强ETag降成弱的
+        private void start() throws IOException {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, encoding);
+            String etag = response.getHeader(HttpHeaders.ETAG);
+            if (etag != null && !etag.startsWith("W/")) response.setHeader(HttpHeaders.ETAG, "W/" + etag);
+            boolean gzip = GZIP.equals(encoding);
+            deflater = deflater(gzip);
+            buffer = buffer();
+            if (gzip) {
+                crc = new CRC32();
+                out.write(GZIP_HEADER);
+            }
+            deflate(pending, 0, count);
+            count = 0;
+        }
+
+        private void deflate(byte[] bytes, int offset, int length) throws IOException {
+            if (length == 0) return;
+            if (crc != null) crc.update(bytes, offset, length);
+            deflater.setInput(bytes, offset, length);
+            while (!deflater.needsInput()) drain();
+        }
+
+        private void drain() throws IOException {
+            int length = deflater.deflate(buffer, 0, buffer.length);
+            if (length > 0) out.write(buffer, 0, length);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) return;
+            closed = true;
+            try {
+                if (deflater == null) {
+                    out.write(pending, 0, count);
+                    return;
+                }
+                deflater.finish();
+                while (!deflater.finished()) drain();
+                if (crc != null) {
+                    writeInt((int) crc.getValue());
+                    writeInt((int) deflater.getBytesRead());
+                }
+            } finally {
+                release();
+            }
+        }
+
+        private void writeInt(int value) throws IOException {
+            out.write(value & 0xff);
+            out.write(value >> 8 & 0xff);
+            out.write(value >> 16 & 0xff);
+            out.write(value >> 24 & 0xff);
+        }
+
+        private void release() {
+            BUFFERS.offer(pending);
+            pending = null;
+            if (deflater == null) return;
+            BUFFERS.offer(buffer);
+            buffer = null;
+            deflater.reset();
+            if (!(crc != null ? GZIP_DEFLATERS : ZLIB_DEFLATERS).offer(deflater)) deflater.end();
+            deflater = null;
+        }
+    }
+
+    private static Deflater deflater(boolean gzip) {
+        Deflater deflater = (gzip ? GZIP_DEFLATERS : ZLIB_DEFLATERS).poll();
+        return deflater != null ? deflater : new Deflater(LEVEL, gzip);
+    }
+
+    private static byte[] buffer() {
+        byte[] buffer = BUFFERS.poll();
+        return buffer != null ? buffer : new byte[BUFFER];
+    }
+}
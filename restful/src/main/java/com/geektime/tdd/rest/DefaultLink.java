@@ -0,0 +1,169 @@
+package com.geektime.tdd.rest;
+
+import jakarta.ws.rs.core.Link;
+import jakarta.ws.rs.core.UriBuilder;
+
+import java.net.URI;
+import java.util.*;
+
+//ResponseBuilder.link()用的Link头，格式是<uri>; rel="next"; title="..."，参数按加进来的顺序写，值都加引号
+final class DefaultLink extends Link {
+    private final URI uri;
+    private final Map<String, String> params;
+
+    private DefaultLink(URI uri, Map<String, String> params) {
+        this.uri = uri;
+        this.params = Collections.unmodifiableMap(new LinkedHashMap<>(params));
+    }
+
+    @Override
+    public URI getUri() {
+        return uri;
+    }
+
+    @Override
+    public UriBuilder getUriBuilder() {
+        return UriBuilder.fromUri(uri);
+    }
+
+    @Override
+    public String getRel() {
+        return params.get(REL);
+    }
+
+    //rel可以是空格分开的多个关系
+    @Override
+    public List<String> getRels() {
+        String rel = getRel();
+        return rel == null ? List.of() : List.of(rel.strip().split("\\s+"));
+    }
+
+    @Override
+    public String getTitle() {
+        return params.get(TITLE);
+    }
+
+    @Override
+    public String getType() {
+        return params.get(TYPE);
+    }
+
+    @Override
+    public Map<String, String> getParams() {
+        return params;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder value = new StringBuilder().append('<').append(uri).append('>');
+        params.forEach((name, param) -> value.append("; ").append(name).append("=\"")
+                .append(param.replace("\\", "\\\\").replace("\"", "\\\"")).append('"'));
+        return value.toString();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || o instanceof DefaultLink other && uri.equals(other.uri) && params.equals(other.params);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(uri, params);
+    }
+
+    static final class LinkBuilder implements Link.Builder {
+        private UriBuilder uri;
+        private URI base;
+        private final Map<String, String> params = new LinkedHashMap<>();
+
+        @Override
+        public Link.Builder link(Link link) {
+            if (link == null) throw new IllegalArgumentException("link is null");
+            uri = UriBuilder.fromUri(link.getUri());
+            params.clear();
+            params.putAll(link.getParams());
+            return this;
+        }
+
+        //响应里只写Link头，不解析
+        @Override
+        public Link.Builder link(String link) {
+            throw new UnsupportedOperationException("parsing link header is not supported, use uri() and rel()");
+        }
+
+        @Override
+        public Link.Builder uri(URI uri) {
+            if (uri == null) throw new IllegalArgumentException("uri is null");
+            this.uri = UriBuilder.fromUri(uri);
+            return this;
+        }
+
+        @Override
+        public Link.Builder uri(String uri) {
+            if (uri == null) throw new IllegalArgumentException("uri is null");
+            this.uri = UriBuilder.fromUri(uri);
+            return this;
+        }
+
+        @Override
+        public Link.Builder baseUri(URI uri) {
+            if (uri == null) throw new IllegalArgumentException("base uri is null");
+            this.base = uri;
+            return this;
+        }
+
+        @Override
+        public Link.Builder baseUri(String uri) {
+            if (uri == null) throw new IllegalArgumentException("base uri is null");
+            return baseUri(URI.create(uri));
+        }
+
+        @Override
+        public Link.Builder uriBuilder(UriBuilder uriBuilder) {
+            if (uriBuilder == null) throw new IllegalArgumentException("uri builder is null");
+            this.uri = uriBuilder.clone();
+            return this;
+        }
+
+        //同一个rel再加一次就用空格连起来
+        @Override
+        public Link.Builder rel(String rel) {
+            if (rel == null) throw new IllegalArgumentException("rel is null");
+            params.merge(REL, rel, (existing, added) -> existing + " " + added);
+            return this;
+        }
+
+        @Override
+        public Link.Builder title(String title) {
+            return param(TITLE, title);
+        }
+
+        @Override
+        public Link.Builder type(String type) {
+            return param(TYPE, type);
+        }
+
+        @Override
+        public Link.Builder param(String name, String value) {
+            if (name == null || value == null) throw new IllegalArgumentException("name or value is null");
+            params.put(name, value);
+            return this;
+        }
+
+        //相对的uri按baseUri解析
+        @Override
+        public Link build(Object... values) {
+            if (uri == null) throw new IllegalArgumentException("uri is not set");
+            URI built = uri.build(values);
+            if (base != null && !built.isAbsolute()) built = base.resolve(built);
+            return new DefaultLink(built, params);
+        }
+
+        @Override
+        public Link buildRelativized(URI uri, Object... values) {
+            if (uri == null) throw new IllegalArgumentException("uri is null");
+            Link link = build(values);
+            return new DefaultLink(uri.relativize(link.getUri()), link.getParams());
+        }
+    }
+}
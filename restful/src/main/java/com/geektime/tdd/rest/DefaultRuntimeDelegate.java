@@ -0,0 +1,149 @@
+package com.geektime.tdd.rest;
+
+import jakarta.ws.rs.SeBootstrap;
+import jakarta.ws.rs.core.*;
+import jakarta.ws.rs.ext.RuntimeDelegate;
+
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
+
+//通过META-INF/services注册，Response.ok()、MediaType.toString()、UriBuilder.fromUri()这些静态方法都要靠它
+//ResponseBuilder和UriInfo能用到的builder都实现了；响应头里的Link、Cache-Control、Set-Cookie只会往外写，只有格式化没有解析
+//只能部署成ResourceServlet，没有Java SE的bootstrap和别的endpoint，也不支持multipart，这几个方法明确拒绝
+public class DefaultRuntimeDelegate extends RuntimeDelegate {
+    private static final List<Delegate<?>> DELEGATES = List.of(
+            new Delegate<>(MediaType.class, MediaTypes::parse, MediaTypes::toString),
+            new Delegate<>(EntityTag.class, DefaultRuntimeDelegate::parseEntityTag, DefaultRuntimeDelegate::formatEntityTag),
+            new Delegate<>(Link.class, null, Link::toString),
+            new Delegate<>(CacheControl.class, null, DefaultRuntimeDelegate::formatCacheControl),
+            new Delegate<>(NewCookie.class, null, DefaultRuntimeDelegate::formatNewCookie));
+
+    @Override
+    public UriBuilder createUriBuilder() {
+        return new DefaultUriBuilder();
+    }
+
+    @Override
+    public Response.ResponseBuilder createResponseBuilder() {
+        return new OutboundResponseBuilder();
+    }
+
+    //ResponseBuilder.variants()直接接受List<Variant>，自己拼好传进去就行
+    @Override
+    public Variant.VariantListBuilder createVariantListBuilder() {
+        throw new UnsupportedOperationException("variant list builder is not supported, pass a List<Variant> to variants() instead");
+    }
+
+    @Override
+    public <T> T createEndpoint(Application application, Class<T> endpointType) {
+        throw new UnsupportedOperationException("no endpoint other than ResourceServlet, create it with a Context instead");
+    }
+
+    @Override
+    public <T> HeaderDelegate<T> createHeaderDelegate(Class<T> type) {
+        if (type == null) throw new IllegalArgumentException("type is null");
+        for (Delegate<?> delegate : DELEGATES)
+            if (delegate.type().isAssignableFrom(type)) return delegate.as(type);
+        return null;
+    }
+
+    @Override
+    public Link.Builder createLinkBuilder() {
+        return new DefaultLink.LinkBuilder();
+    }
+
+    @Override
+    public SeBootstrap.Configuration.Builder createConfigurationBuilder() {
+        throw new UnsupportedOperationException("Java SE bootstrap is not supported, deploy ResourceServlet in a servlet container");
+    }
+
+    @Override
+    public CompletionStage<SeBootstrap.Instance> bootstrap(Application application, SeBootstrap.Configuration configuration) {
+        throw new UnsupportedOperationException("Java SE bootstrap is not supported, deploy ResourceServlet in a servlet container");
+    }
+
+    @Override
+    public CompletionStage<SeBootstrap.Instance> bootstrap(Class<? extends Application> clazz, SeBootstrap.Configuration configuration) {
+        throw new UnsupportedOperationException("Java SE bootstrap is not supported, deploy ResourceServlet in a servlet container");
+    }
+
+    @Override
+    public EntityPart.Builder createEntityPartBuilder(String partName) throws IllegalArgumentException {
+        throw new UnsupportedOperationException("multipart entities are not supported");
+    }
+
+    //解析和格式化都按V写，转成HeaderDelegate<T>的时候用Class.cast检查，不需要unchecked的转换；parse是null的只能格式化
+    private record Delegate<V>(Class<V> type, Function<String, V> parse, Function<V, String> format) {
+        <T> HeaderDelegate<T> as(Class<T> target) {
+            return new HeaderDelegate<>() {
+                @Override
+                public T fromString(String value) {
+                    if (parse == null) throw new UnsupportedOperationException("parsing " + type.getSimpleName() + " header is not supported");
+                    if (value == null) throw new IllegalArgumentException(type.getSimpleName() + " header is null");
+                    return target.cast(parse.apply(value));
+                }
+
+                @Override
+                public String toString(T value) {
+                    if (value == null) throw new IllegalArgumentException(type.getSimpleName() + " is null");
+                    return format.apply(type.cast(value));
+                }
+            };
+        }
+    }
+
+    static EntityTag parseEntityTag(String value) {
+        String tag = value.strip();
+        boolean weak = tag.startsWith("W/");
+        if (weak) tag = tag.substring(2);
+        if (tag.length() > 1 && tag.startsWith("\"") && tag.endsWith("\"")) tag = tag.substring(1, tag.length() - 1);
+        return new EntityTag(tag, weak);
+    }
+
+    static String formatEntityTag(EntityTag tag) {
+        return (tag.isWeak() ? "W/\"" : "\"") + tag.getValue() + '"';
+    }
+
+    private static String formatCacheControl(CacheControl cacheControl) {
+        List<String> directives = new ArrayList<>();
+        if (cacheControl.isPrivate()) directives.add(withFields("private", cacheControl.getPrivateFields()));
+        if (cacheControl.isNoCache()) directives.add(withFields("no-cache", cacheControl.getNoCacheFields()));
+        if (cacheControl.isNoStore()) directives.add("no-store");
+        if (cacheControl.isNoTransform()) directives.add("no-transform");
+        if (cacheControl.isMustRevalidate()) directives.add("must-revalidate");
+        if (cacheControl.isProxyRevalidate()) directives.add("proxy-revalidate");
+        if (cacheControl.getMaxAge() != -1) directives.add("max-age=" + cacheControl.getMaxAge());
+        if (cacheControl.getSMaxAge() != -1) directives.add("s-maxage=" + cacheControl.getSMaxAge());
+        cacheControl.getCacheExtension().forEach((name, value) ->
+                directives.add(value == null || value.isEmpty() ? name : name + "=" + quoted(value)));
+        return String.join(", ", directives);
+    }
+
+    private static String withFields(String directive, List<String> fields) {
+        return fields.isEmpty() ? directive : directive + "=\"" + String.join(", ", fields) + '"';
+    }
+
+    //Set-Cookie只写设了的属性，Max-Age是-1表示没设
+    private static String formatNewCookie(NewCookie cookie) {
+        StringBuilder value = new StringBuilder(cookie.getName()).append('=').append(cookie.getValue() == null ? "" : cookie.getValue());
+        if (cookie.getPath() != null) value.append("; Path=").append(cookie.getPath());
+        if (cookie.getDomain() != null) value.append("; Domain=").append(cookie.getDomain());
+        if (cookie.getMaxAge() != NewCookie.DEFAULT_MAX_AGE) value.append("; Max-Age=").append(cookie.getMaxAge());
+        if (cookie.getExpiry() != null)
+            value.append("; Expires=").append(DateTimeFormatter.RFC_1123_DATE_TIME.format(cookie.getExpiry().toInstant().atOffset(ZoneOffset.UTC)));
+        if (cookie.isSecure()) value.append("; Secure");
+        if (cookie.isHttpOnly()) value.append("; HttpOnly");
+        if (cookie.getSameSite() != null) {
+            String sameSite = cookie.getSameSite().name();
+            value.append("; SameSite=").append(sameSite.charAt(0)).append(sameSite.substring(1).toLowerCase(Locale.ROOT));
+        }
+        return value.toString();
+    }
+
+    private static String quoted(String value) {
+        return value.chars().allMatch(c -> Character.isLetterOrDigit(c) || "-._".indexOf(c) >= 0) ? value : '"' + value.replace("\"", "\\\"") + '"';
+    }
+}
@@ -0,0 +1,415 @@
+package com.geektime.tdd.rest;
+
+import jakarta.ws.rs.core.UriBuilder;
+import jakarta.ws.rs.core.UriBuilderException;
+
+import java.lang.reflect.Method;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+//UriInfo的get*UriBuilder()和Link.fromUri()用到的部分：在请求的URI上加路径、查询参数，再带着模板变量build出来
+//各部分都按模板存（可以带{name}），path()、queryParam()这些调用的时候就按所在部分编码，已经编码的%XX和模板变量原样保留
+//build的时候按变量第一次出现的顺序取值，编码以后替换进去，再交给URI检查
+//matrix参数、resolveTemplate和从资源类拼路径这些请求里用不到，明确不支持
+final class DefaultUriBuilder extends UriBuilder {
+    private static final Pattern URI_TEMPLATE = Pattern.compile("^(?:([^:/?#{}]+):)?(?://([^/?#]*))?([^?#]*)(?:\\?([^#]*))?(?:#(.*))?$");
+    private static final Pattern AUTHORITY = Pattern.compile("^(?:([^@]*)@)?(\\[[^]]*]|[^:]*)(?::(\\d*))?$");
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private enum Part {
+        SCHEME("+-."),
+        USER_INFO("-._~" + "!$&'()*+,;=" + ":"),
+        HOST("-._~" + "!$&'()*+,;=" + "[]:"),
+        PATH("-._~" + "!$&'()*+,;=" + ":@/"),
+        SEGMENT("-._~" + "!$&'()*+,;=" + ":@"),
+        QUERY("-._~" + "!$&'()*+,;=" + ":@/?"),
+        QUERY_PARAM("-._~" + "!$'()*,;" + ":@/?"),
+        FRAGMENT("-._~" + "!$&'()*+,;=" + ":@/?");
+
+        private final String allowed;
+
+        Part(String allowed) {
+            this.allowed = allowed;
+        }
+
+        boolean allows(char c) {
+            return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9' || allowed.indexOf(c) >= 0;
+        }
+    }
+
+    private String scheme;
+    private String userInfo;
+    private String host;
+    private int port = -1;
+    private String path = "";
+    private String query;
+    private String fragment;
+
+    @Override
+    public UriBuilder clone() {
+        DefaultUriBuilder builder = new DefaultUriBuilder();
+        builder.scheme = scheme;
+        builder.userInfo = userInfo;
+        builder.host = host;
+        builder.port = port;
+        builder.path = path;
+        builder.query = query;
+        builder.fragment = fragment;
+        return builder;
+    }
+
+    //只拷贝uri里不为null的部分
+    @Override
+    public UriBuilder uri(URI uri) {
+        if (uri == null) throw new IllegalArgumentException("uri is null");
+        if (uri.getScheme() != null) scheme = uri.getScheme();
+        if (uri.isOpaque()) {
+            userInfo = null;
+            host = null;
+            port = -1;
+            path = uri.getRawSchemeSpecificPart();
+            query = null;
+        } else {
+            if (uri.getRawUserInfo() != null) userInfo = uri.getRawUserInfo();
+            if (uri.getHost() != null) host = uri.getHost();
+            if (uri.getPort() != -1) port = uri.getPort();
+            if (uri.getRawPath() != null && !uri.getRawPath().isEmpty()) path = uri.getRawPath();
+            if (uri.getRawQuery() != null) query = uri.getRawQuery();
+        }
+        if (uri.getRawFragment() != null) fragment = uri.getRawFragment();
+        return this;
+    }
+
+    //可能带模板变量，不能直接交给URI解析
+    @Override
+    public UriBuilder uri(String uriTemplate) {
+        if (uriTemplate == null) throw new IllegalArgumentException("uri template is null");
+        Matcher uri = URI_TEMPLATE.matcher(uriTemplate);
+        if (!uri.matches()) throw new IllegalArgumentException("illegal uri template: " + uriTemplate);
+        if (uri.group(1) != null) scheme = uri.group(1);
+        if (uri.group(2) != null) authority(uri.group(2));
+        if (!uri.group(3).isEmpty()) path = encode(uri.group(3), Part.PATH, true, true);
+        if (uri.group(4) != null) query = encode(uri.group(4), Part.QUERY, true, true);
+        if (uri.group(5) != null) fragment = encode(uri.group(5), Part.FRAGMENT, true, true);
+        return this;
+    }
+
+    private void authority(String authority) {
+        Matcher matcher = AUTHORITY.matcher(authority);
+        if (!matcher.matches()) throw new IllegalArgumentException("illegal authority: " + authority);
+        if (matcher.group(1) != null) userInfo = encode(matcher.group(1), Part.USER_INFO, true, true);
+        if (!matcher.group(2).isEmpty()) host = encode(matcher.group(2), Part.HOST, true, true);
+        if (matcher.group(3) != null && !matcher.group(3).isEmpty()) port = Integer.parseInt(matcher.group(3));
+    }
+
+    @Override
+    public UriBuilder scheme(String scheme) {
+        this.scheme = scheme;
+        return this;
+    }
+
+    @Override
+    public UriBuilder schemeSpecificPart(String ssp) {
+        throw new UnsupportedOperationException("scheme specific part is not supported, use uri() or path()");
+    }
+
+    @Override
+    public UriBuilder userInfo(String ui) {
+        userInfo = ui == null ? null : encode(ui, Part.USER_INFO, true, true);
+        return this;
+    }
+
+    @Override
+    public UriBuilder host(String host) {
+        if (host != null && host.isEmpty()) throw new IllegalArgumentException("host is empty");
+        this.host = host == null ? null : encode(host, Part.HOST, true, true);
+        return this;
+    }
+
+    @Override
+    public UriBuilder port(int port) {
+        if (port < -1) throw new IllegalArgumentException("illegal port " + port);
+        this.port = port;
+        return this;
+    }
+
+    @Override
+    public UriBuilder replacePath(String path) {
+        this.path = path == null ? "" : encode(path, Part.PATH, true, true);
+        return this;
+    }
+
+    @Override
+    public UriBuilder path(String path) {
+        if (path == null) throw new IllegalArgumentException("path is null");
+        appendPath(encode(path, Part.PATH, true, true));
+        return this;
+    }
+
+    //UriBuilder里这两个方法的签名就是原始的Class
+    @Override
+    @SuppressWarnings("rawtypes")
+    public UriBuilder path(Class resource) {
+        throw new UnsupportedOperationException("building paths from resource classes is not supported");
+    }
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    public UriBuilder path(Class resource, String method) {
+        throw new UnsupportedOperationException("building paths from resource classes is not supported");
+    }
+
+    @Override
+    public UriBuilder path(Method method) {
+        throw new UnsupportedOperationException("building paths from resource methods is not supported");
+    }
+
+    @Override
+    public UriBuilder segment(String... segments) {
+        if (segments == null) throw new IllegalArgumentException("segments is null");
+        for (String segment : segments) {
+            if (segment == null) throw new IllegalArgumentException("segment is null");
+            path = path.isEmpty() || path.endsWith("/") ? path + encode(segment, Part.SEGMENT, true, true)
+                    : path + "/" + encode(segment, Part.SEGMENT, true, true);
+        }
+        return this;
+    }
+
+    private void appendPath(String addition) {
+        if (addition.isEmpty()) return;
+        if (path.isEmpty()) path = addition;
+        else if (path.endsWith("/") && addition.startsWith("/")) path += addition.substring(1);
+        else if (path.endsWith("/") || addition.startsWith("/")) path += addition;
+        else path += "/" + addition;
+    }
+
+    @Override
+    public UriBuilder replaceMatrix(String matrix) {
+        throw new UnsupportedOperationException("matrix parameters are not supported");
+    }
+
+    @Override
+    public UriBuilder matrixParam(String name, Object... values) {
+        throw new UnsupportedOperationException("matrix parameters are not supported");
+    }
+
+    @Override
+    public UriBuilder replaceMatrixParam(String name, Object... values) {
+        throw new UnsupportedOperationException("matrix parameters are not supported");
+    }
+
+    @Override
+    public UriBuilder replaceQuery(String query) {
+        this.query = query == null ? null : encode(query, Part.QUERY, true, true);
+        return this;
+    }
+
+    @Override
+    public UriBuilder queryParam(String name, Object... values) {
+        if (name == null || values == null) throw new IllegalArgumentException("name or values is null");
+        StringBuilder params = new StringBuilder(query == null ? "" : query);
+        for (Object value : values) {
+            if (value == null) throw new IllegalArgumentException("value is null");
+            if (!params.isEmpty()) params.append('&');
+            params.append(encode(name, Part.QUERY_PARAM, true, true))
+                    .append('=').append(encode(value.toString(), Part.QUERY_PARAM, true, true));
+        }
+        query = params.toString();
+        return this;
+    }
+
+    @Override
+    public UriBuilder replaceQueryParam(String name, Object... values) {
+        if (name == null) throw new IllegalArgumentException("name is null");
+        if (query != null) {
+            String encoded = encode(name, Part.QUERY_PARAM, true, true);
+            StringJoiner rest = new StringJoiner("&");
+            for (String parameter : query.split("&")) {
+                if (!parameter.isEmpty() && !parameter.equals(encoded) && !parameter.startsWith(encoded + "="))
+                    rest.add(parameter);
+            }
+            query = rest.length() == 0 ? null : rest.toString();
+        }
+        return values == null ? this : queryParam(name, values);
+    }
+
+    @Override
+    public UriBuilder fragment(String fragment) {
+        this.fragment = fragment == null ? null : encode(fragment, Part.FRAGMENT, true, true);
+        return this;
+    }
+
+    @Override
+    public UriBuilder resolveTemplate(String name, Object value) {
+        throw new UnsupportedOperationException("partial template resolution is not supported, pass all values to build()");
+    }
+
+    @Override
+    public UriBuilder resolveTemplate(String name, Object value, boolean encodeSlashInPath) {
+        throw new UnsupportedOperationException("partial template resolution is not supported, pass all values to build()");
+    }
+
+    @Override
+    public UriBuilder resolveTemplateFromEncoded(String name, Object value) {
+        throw new UnsupportedOperationException("partial template resolution is not supported, pass all values to build()");
+    }
+
+    @Override
+    public UriBuilder resolveTemplates(Map<String, Object> templateValues) {
+        throw new UnsupportedOperationException("partial template resolution is not supported, pass all values to build()");
+    }
+
+    @Override
+    public UriBuilder resolveTemplates(Map<String, Object> templateValues, boolean encodeSlashInPath) {
+        throw new UnsupportedOperationException("partial template resolution is not supported, pass all values to build()");
+    }
+
+    @Override
+    public UriBuilder resolveTemplatesFromEncoded(Map<String, Object> templateValues) {
+        throw new UnsupportedOperationException("partial template resolution is not supported, pass all values to build()");
+    }
+
+    private static <V> Map<String, V> checked(Map<String, V> values) {
+        if (values == null) throw new IllegalArgumentException("template values is null");
+        values.forEach((name, value) -> {
+            if (name == null || value == null) throw new IllegalArgumentException("template name or value is null");
+        });
+        return values;
+    }
+
+    @Override
+    public URI buildFromMap(Map<String, ?> values) {
+        return buildFromMap(values, true);
+    }
+
+    @Override
+    public URI buildFromMap(Map<String, ?> values, boolean encodeSlashInPath) {
+        return build(required(checked(values)), encodeSlashInPath, false);
+    }
+
+    @Override
+    public URI buildFromEncodedMap(Map<String, ?> values) {
+        return build(required(checked(values)), false, true);
+    }
+
+    @Override
+    public URI build(Object... values) {
+        return build(values, true);
+    }
+
+    @Override
+    public URI build(Object[] values, boolean encodeSlashInPath) {
+        return build(positional(values), encodeSlashInPath, false);
+    }
+
+    @Override
+    public URI buildFromEncoded(Object... values) {
+        return build(positional(values), false, true);
+    }
+
+    private static Function<String, Object> required(Map<String, ?> values) {
+        return name -> {
+            Object value = values.get(name);
+            if (value == null) throw new IllegalArgumentException("no value for template " + name);
+            return value;
+        };
+    }
+
+    //同名的变量只取一个值
+    private Function<String, Object> positional(Object[] values) {
+        if (values == null) throw new IllegalArgumentException("values is null");
+        List<String> names = new ArrayList<>();
+        for (String part : new String[]{scheme, userInfo, host, path, query, fragment}) {
+            if (part == null) continue;
+            Matcher variable = UriTemplate.VARIABLE.matcher(part);
+            while (variable.find()) if (!names.contains(variable.group(1))) names.add(variable.group(1));
+        }
+        if (values.length < names.size()) throw new IllegalArgumentException("expected " + names.size() + " values but got " + values.length);
+        Map<String, Object> named = new HashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            if (values[i] == null) throw new IllegalArgumentException("value of template " + names.get(i) + " is null");
+            named.put(names.get(i), values[i]);
+        }
+        return required(named);
+    }
+
+    private URI build(Function<String, Object> values, boolean encodeSlashInPath, boolean encoded) {
+        String uri = assemble(substitute(scheme, Part.SCHEME, values, encoded), substitute(userInfo, Part.USER_INFO, values, encoded),
+                substitute(host, Part.HOST, values, encoded), substitute(path, encodeSlashInPath ? Part.SEGMENT : Part.PATH, values, encoded),
+                substitute(query, Part.QUERY_PARAM, values, encoded), substitute(fragment, Part.FRAGMENT, values, encoded));
+        try {
+            return new URI(uri);
+        } catch (URISyntaxException e) {
+            throw new UriBuilderException(e);
+        }
+    }
+
+    @Override
+    public String toTemplate() {
+        return assemble(scheme, userInfo, host, path, query, fragment);
+    }
+
+    private String assemble(String scheme, String userInfo, String host, String path, String query, String fragment) {
+        StringBuilder uri = new StringBuilder();
+        if (scheme != null) uri.append(scheme).append(':');
+        if (host != null) {
+            uri.append("//");
+            if (userInfo != null) uri.append(userInfo).append('@');
+            uri.append(host);
+            if (port != -1) uri.append(':').append(port);
+            if (!path.isEmpty() && !path.startsWith("/")) uri.append('/');
+        }
+        uri.append(path);
+        if (query != null) uri.append('?').append(query);
+        if (fragment != null) uri.append('#').append(fragment);
+        return uri.toString();
+    }
+
+    private static String substitute(String template, Part part, Function<String, Object> values, boolean encoded) {
+        if (template == null || template.indexOf('{') < 0) return template;
+        Matcher variable = UriTemplate.VARIABLE.matcher(template);
+        StringBuilder result = new StringBuilder();
+        int last = 0;
+        while (variable.find()) {
+            result.append(template, last, variable.start());
+            result.append(encode(values.apply(variable.group(1)).toString(), part, false, encoded));
+            last = variable.end();
+        }
+        return result.append(template, last, template.length()).toString();
+    }
+
+    //这个部分里不允许的字符按UTF-8做百分号编码
+    private static String encode(String value, Part part, boolean keepTemplates, boolean keepEncoded) {
+        StringBuilder result = new StringBuilder(value.length());
+        Matcher variable = keepTemplates ? UriTemplate.VARIABLE.matcher(value) : null;
+        int i = 0;
+        while (i < value.length()) {
+            char c = value.charAt(i);
+            if (c == '{' && variable != null && variable.region(i, value.length()).lookingAt()) {
+                result.append(variable.group());
+                i = variable.end();
+            } else if (c == '%' && keepEncoded && i + 2 < value.length() && isHex(value.charAt(i + 1)) && isHex(value.charAt(i + 2))) {
+                result.append(value, i, i + 3);
+                i += 3;
+            } else if (c < 0x80 && part.allows(c)) {
+                result.append(c);
+                i++;
+            } else {
+                int codePoint = value.codePointAt(i);
+                for (byte b : new String(Character.toChars(codePoint)).getBytes(StandardCharsets.UTF_8))
+                    result.append('%').append(HEX[b >> 4 & 0xf]).append(HEX[b & 0xf]);
+                i += Character.charCount(codePoint);
+            }
+        }
+        return result.toString();
+    }
+
+    private static boolean isHex(char c) {
+        return c >= '0' && c <= '9' || c >= 'a' && c <= 'f' || c >= 'A' && c <= 'F';
+    }
+}
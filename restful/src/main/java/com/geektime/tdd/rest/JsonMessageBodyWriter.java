@@ -0,0 +1,241 @@
+package com.geektime.tdd.rest;
+
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.MultivaluedMap;
+import jakarta.ws.rs.ext.MessageBodyWriter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.stream.BaseStream;
+
+//边遍历边写：List、Stream、Iterator都是一个元素一个元素写进JsonOutput，不会先拼出整个JSON
+//每个类怎么写只算一次（ClassValue），record用组件的accessor，普通类用getter，没有getter的用字段，
+//属性名连同引号和冒号预先编码成字节，取值用MethodHandle，基本类型的属性不装箱
+@Produces(MediaType.APPLICATION_JSON)
+class JsonMessageBodyWriter implements MessageBodyWriter<Object> {
+    private static final ClassValue<ValueWriter> WRITERS = new ClassValue<>() {
+        @Override
+        protected ValueWriter computeValue(Class<?> type) {
+            return writerOf(type);
+        }
+    };
+
+    @Override
+    public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return true;
+    }
+
+    @Override
+    public void writeTo(Object entity, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType,
+                        MultivaluedMap<String, Object> headers, OutputStream out) throws IOException {
+        try (JsonOutput json = new JsonOutput(out)) {
+            write(entity, json);
+        }
+    }
+
+    static void write(Object value, JsonOutput json) throws IOException {
+        if (value == null) json.writeNull();
+        else WRITERS.get(value.getClass()).write(value, json);
+    }
+
+    @FunctionalInterface
+    interface ValueWriter {
+        void write(Object value, JsonOutput json) throws IOException;
+    }
+
+    private static ValueWriter writerOf(Class<?> type) {
+        if (CharSequence.class.isAssignableFrom(type) || type == Character.class)
+            return (value, json) -> json.writeString(value.toString());
+        if (type == Integer.class || type == Long.class || type == Short.class || type == Byte.class)
+            return (value, json) -> json.writeLong(((Number) value).longValue());
+        if (type == Double.class || type == Float.class)
+            return (value, json) -> json.writeDouble(((Number) value).doubleValue());
+        if (Number.class.isAssignableFrom(type)) return (value, json) -> json.writeAscii(value.toString());
+        if (type == Boolean.class) return (value, json) -> json.writeBoolean((Boolean) value);
+        if (type.isEnum() || Enum.class.isAssignableFrom(type))
+            return (value, json) -> json.writeString(((Enum<?>) value).name());
+        if (Optional.class == type) return (value, json) -> write(((Optional<?>) value).orElse(null), json);
+        if (Map.class.isAssignableFrom(type)) return JsonMessageBodyWriter::writeMap;
+        if (Iterable.class.isAssignableFrom(type))
+            return (value, json) -> writeElements(((Iterable<?>) value).iterator(), json);
+        if (Iterator.class.isAssignableFrom(type)) return (value, json) -> writeElements((Iterator<?>) value, json);
+        if (BaseStream.class.isAssignableFrom(type)) return (value, json) -> {
+            try (BaseStream<?, ?> stream = (BaseStream<?, ?>) value) {
+                writeElements(stream.iterator(), json);
+            }
+        };
+        if (type.isArray()) return JsonMessageBodyWriter::writeArray;
+        if (type.isRecord()) return new BeanWriter(recordProperties(type));
+        //java.time、UUID、URI这些JDK里的值类型按字符串写
+        if (type.getName().startsWith("java.")) return (value, json) -> json.writeString(value.toString());
+        return new BeanWriter(beanProperties(type));
+    }
+
+    private static void writeElements(Iterator<?> elements, JsonOutput json) throws IOException {
+        json.writeByte((byte) '[');
+        boolean first = true;
+        while (elements.hasNext()) {
+            if (!first) json.writeByte((byte) ',');
+            write(elements.next(), json);
+            first = false;
+        }
+        json.writeByte((byte) ']');
+    }
+
+    private static void writeArray(Object array, JsonOutput json) throws IOException {
+        json.writeByte((byte) '[');
+        int length = Array.getLength(array);
+        for (int i = 0; i < length; i++) {
+            if (i > 0) json.writeByte((byte) ',');
+            write(Array.get(array, i), json);
+        }
+        json.writeByte((byte) ']');
+    }
+
+    private static void writeMap(Object value, JsonOutput json) throws IOException {
+        json.writeByte((byte) '{');
+        boolean first = true;
+        for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+            if (!first) json.writeByte((byte) ',');
+            json.writeString(String.valueOf(entry.getKey()));
+            json.writeByte((byte) ':');
+            write(entry.getValue(), json);
+            first = false;
+        }
+        json.writeByte((byte) '}');
+    }
+
+    private static List<Property> recordProperties(Class<?> type) {
+        List<Property> properties = new ArrayList<>();
+        for (RecordComponent component : type.getRecordComponents())
+            properties.add(Property.of(component.getName(), unreflect(component.getAccessor())));
+        return properties;
+    }
+
+    private static List<Property> beanProperties(Class<?> type) {
+        List<Property> properties = new ArrayList<>();
+        for (Method method : type.getMethods()) {
+            if (Modifier.isStatic(method.getModifiers()) || method.getParameterCount() != 0
+                    || method.getReturnType() == void.class || method.getDeclaringClass() == Object.class) continue;
+            String name = propertyName(method);
+            if (name != null) properties.add(Property.of(name, unreflect(method)));
+        }
+        if (properties.isEmpty())
+            for (Class<?> current = type; current != Object.class && current != null; current = current.getSuperclass())
+                for (Field field : current.getDeclaredFields())
+                    if (!Modifier.isStatic(field.getModifiers()) && !Modifier.isTransient(field.getModifiers()) && !field.isSynthetic())
+                        properties.add(Property.of(field.getName(), unreflectGetter(field)));
+        properties.sort(Comparator.comparing(Property::name));
+        return properties;
+    }
+
+    private static String propertyName(Method method) {
+        String name = method.getName();
+        int prefix = name.startsWith("get") ? 3
+                : name.startsWith("is") && method.getReturnType() == boolean.class ? 2 : 0;
+        if (prefix == 0 || name.length() == prefix) return null;
+        return Character.toLowerCase(name.charAt(prefix)) + name.substring(prefix + 1);
+    }
+
+    private static MethodHandle unreflect(Method method) {
+        try {
+            method.trySetAccessible();
+            return MethodHandles.lookup().unreflect(method);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static MethodHandle unreflectGetter(Field field) {
+        try {
+            field.trySetAccessible();
+            return MethodHandles.lookup().unreflectGetter(field);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record BeanWriter(Property[] properties) implements ValueWriter {
+        BeanWriter(List<Property> properties) {
+            this(properties.toArray(Property[]::new));
+        }
+
+        @Override
+        public void write(Object value, JsonOutput json) throws IOException {
+            json.writeByte((byte) '{');
+            for (int i = 0; i < properties.length; i++) {
+                if (i > 0) json.writeByte((byte) ',');
+                properties[i].write(value, json);
+            }
+            json.writeByte((byte) '}');
+        }
+    }
+
+    private static abstract class Property {
+        private final String name;
+        private final byte[] prefix;
+        final MethodHandle getter;
+
+        Property(String name, MethodHandle getter, Class<?> type) {
+            this.name = name;
+            this.prefix = ('"' + name + "\":").getBytes(StandardCharsets.UTF_8);
+            this.getter = getter.asType(MethodType.methodType(type, Object.class));
+        }
+
+        static Property of(String name, MethodHandle getter) {
+            Class<?> type = getter.type().returnType();
+            if (type == long.class || type == int.class || type == short.class || type == byte.class)
+                return new Property(name, getter, long.class) {
+                    @Override
+                    void writeValue(Object bean, JsonOutput json) throws Throwable {
+                        json.writeLong((long) this.getter.invokeExact(bean));
+                    }
+                };
+            if (type == double.class || type == float.class)
+                return new Property(name, getter, double.class) {
+                    @Override
+                    void writeValue(Object bean, JsonOutput json) throws Throwable {
+                        json.writeDouble((double) this.getter.invokeExact(bean));
+                    }
+                };
+            if (type == boolean.class)
+                return new Property(name, getter, boolean.class) {
+                    @Override
+                    void writeValue(Object bean, JsonOutput json) throws Throwable {
+                        json.writeBoolean((boolean) this.getter.invokeExact(bean));
+                    }
+                };
+            return new Property(name, getter, Object.class) {
+                @Override
+                void writeValue(Object bean, JsonOutput json) throws Throwable {
+                    JsonMessageBodyWriter.write((Object) this.getter.invokeExact(bean), json);
+                }
+            };
+        }
+
+        String name() {
+            return name;
+        }
+
+        void write(Object bean, JsonOutput json) throws IOException {
+            json.writeBytes(prefix);
+            try {
+                writeValue(bean, json);
+            } catch (IOException | RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        abstract void writeValue(Object bean, JsonOutput json) throws Throwable;
+    }
+}
@@ -0,0 +1,157 @@
+package com.geektime.tdd.rest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+//直接把UTF-8字节写进一块从池里借来的byte[]，满了就写到底层的OutputStream，
+//所以不管实体多大，占用的只有这一块缓冲；close的时候把剩下的写出去，缓冲还回池里，但不关底层的流
+final class JsonOutput implements AutoCloseable {
+    static final int BUFFER = 8 * 1024;
+    private static final BlockingQueue<byte[]> POOL = new ArrayBlockingQueue<>(64);
+    private static final byte[] HEX = "0123456789abcdef".getBytes();
+    private static final byte[] NULL = {'n', 'u', 'l', 'l'};
+    private static final byte[] TRUE = {'t', 'r', 'u', 'e'};
+    private static final byte[] FALSE = {'f', 'a', 'l', 's', 'e'};
+    private static final byte[] MIN_LONG = Long.toString(Long.MIN_VALUE).getBytes();
+
+    private final OutputStream out;
+    private byte[] buffer;
+    private int position;
+
+    JsonOutput(OutputStream out) {
+        this.out = out;
+        byte[] pooled = POOL.poll();
+        this.buffer = pooled != null ? pooled : new byte[BUFFER];
+    }
+
+    void writeByte(byte b) throws IOException {
+        if (position == buffer.length) drain();
+        buffer[position++] = b;
+    }
+
+    void writeBytes(byte[] bytes) throws IOException {
+        if (bytes.length > buffer.length - position) {
+            drain();
+            if (bytes.length > buffer.length) {
+                out.write(bytes);
+                return;
+            }
+        }
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+    }
+
+    void writeNull() throws IOException {
+        writeBytes(NULL);
+    }
+
+    void writeBoolean(boolean value) throws IOException {
+        writeBytes(value ? TRUE : FALSE);
+    }
+
+    void writeLong(long value) throws IOException {
+        if (value == Long.MIN_VALUE) {
+            writeBytes(MIN_LONG);
+            return;
+        }
+        if (buffer.length - position < 20) drain();
+        if (value < 0) {
+            buffer[position++] = '-';
+            value = -value;
+        }
+        int end = position + digits(value);
+        for (int i = end - 1; i >= position; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        position = end;
+    }
+
+    //JSON里没有NaN和Infinity
+    void writeDouble(double value) throws IOException {
+        if (Double.isNaN(value) || Double.isInfinite(value)) writeNull();
+        else if (value == (long) value && Math.abs(value) < 1e15) writeLong((long) value);
+        else writeAscii(Double.toString(value));
+    }
+
+    void writeAscii(String value) throws IOException {
+        for (int i = 0; i < value.length(); i++) writeByte((byte) value.charAt(i));
+    }
+
+    void writeString(CharSequence value) throws IOException {
+        writeByte((byte) '"');
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (buffer.length - position < 6) drain();
+            if (c < 0x80) {
+                if (c >= 0x20 && c != '"' && c != '\\') buffer[position++] = (byte) c;
+                else escape(c);
+            } else if (c < 0x800) {
+                buffer[position++] = (byte) (0xc0 | c >> 6);
+                buffer[position++] = (byte) (0x80 | c & 0x3f);
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                buffer[position++] = (byte) (0xf0 | codePoint >> 18);
+                buffer[position++] = (byte) (0x80 | codePoint >> 12 & 0x3f);
+                buffer[position++] = (byte) (0x80 | codePoint >> 6 & 0x3f);
+                buffer[position++] = (byte) (0x80 | codePoint & 0x3f);
+            } else if (Character.isSurrogate(c)) {
+                buffer[position++] = '?';
+            } else {
+                buffer[position++] = (byte) (0xe0 | c >> 12);
+                buffer[position++] = (byte) (0x80 | c >> 6 & 0x3f);
+                buffer[position++] = (byte) (0x80 | c & 0x3f);
+            }
+        }
+        writeByte((byte) '"');
+    }
+
+    private void escape(char c) {
+        buffer[position++] = '\\';
+        switch (c) {
+            case '"' -> buffer[position++] = '"';
+            case '\\' -> buffer[position++] = '\\';
+            case '\n' -> buffer[position++] = 'n';
+            case '\r' -> buffer[position++] = 'r';
+            case '\t' -> buffer[position++] = 't';
+            case '\b' -> buffer[position++] = 'b';
+            case '\f' -> buffer[position++] = 'f';
+            default -> {
+                buffer[position++] = 'u';
+                buffer[position++] = '0';
+                buffer[position++] = '0';
+                buffer[position++] = HEX[c >> 4];
+                buffer[position++] = HEX[c & 0xf];
+            }
+        }
+    }
+
+    private static int digits(long value) {
+        int digits = 1;
+        while (value >= 10) {
+            value /= 10;
+            digits++;
+        }
+        return digits;
+    }
+
+    private void drain() throws IOException {
+        if (position == 0) return;
+        out.write(buffer, 0, position);
+        position = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (buffer == null) return;
+        try {
+            drain();
+        } finally {
+            POOL.offer(buffer);
+            buffer = null;
+        }
+    }
+}
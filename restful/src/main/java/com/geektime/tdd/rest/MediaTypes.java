@@ -0,0 +1,106 @@
+package com.geektime.tdd.rest;
+
+import jakarta.ws.rs.BadRequestException;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MediaType;
+
+import java.lang.reflect.AnnotatedElement;
+import java.util.*;
+
+final class MediaTypes {
+    static final List<MediaType> WILDCARD = List.of(MediaType.WILDCARD_TYPE);
+
+    private MediaTypes() {
+    }
+
+    static MediaType parse(String value) {
+        if (value == null) throw new IllegalArgumentException("media type is null");
+        String[] parts = value.split(";");
+        String name = parts[0].strip();
+        if (name.equals("*")) name = MediaType.WILDCARD;
+        int slash = name.indexOf('/');
+        if (slash <= 0 || slash == name.length() - 1) throw new IllegalArgumentException("illegal media type: " + value);
+        Map<String, String> parameters = new LinkedHashMap<>();
+        for (int i = 1; i < parts.length; i++) {
+            int equals = parts[i].indexOf('=');
+            if (equals <= 0) continue;
+            String parameter = parts[i].substring(equals + 1).strip();
+            if (parameter.length() > 1 && parameter.startsWith("\"") && parameter.endsWith("\""))
+                parameter = parameter.substring(1, parameter.length() - 1);
+            parameters.put(parts[i].substring(0, equals).strip().toLowerCase(Locale.ROOT), parameter);
+        }
+        return new MediaType(name.substring(0, slash).toLowerCase(Locale.ROOT),
+                name.substring(slash + 1).toLowerCase(Locale.ROOT), parameters);
+    }
+
+    static String toString(MediaType type) {
+        StringBuilder value = new StringBuilder(type.getType()).append('/').append(type.getSubtype());
+        type.getParameters().forEach((name, parameter) -> {
+            value.append(';').append(name).append('=');
+            if (parameter.chars().allMatch(c -> Character.isLetterOrDigit(c) || "-._".indexOf(c) >= 0))
+                value.append(parameter);
+            else value.append('"').append(parameter.replace("\"", "\\\"")).append('"');
+        });
+        return value.toString();
+    }
+
+    //按q从高到低，q相同的时候具体的类型排在通配符前面；q=0的类型表示不接受，直接去掉
+    //Accept是客户端给的，格式不对是请求的错，返回400
+    static List<MediaType> accept(String header) {
+        if (header == null || header.isBlank()) return WILDCARD;
+        List<Map.Entry<MediaType, Double>> types = new ArrayList<>();
+        for (String value : header.split(",")) {
+            if (value.isBlank()) continue;
+            MediaType type = request(HttpHeaders.ACCEPT, value);
+            double quality = quality(type.getParameters().get("q"));
+            if (quality <= 0) continue;
+            Map<String, String> parameters = new LinkedHashMap<>(type.getParameters());
+            parameters.remove("q");
+            types.add(Map.entry(new MediaType(type.getType(), type.getSubtype(), parameters), quality));
+        }
+        types.sort(Comparator.<Map.Entry<MediaType, Double>>comparingDouble(Map.Entry::getValue).reversed()
+                .thenComparingInt(entry -> wildcards(entry.getKey())));
+        return types.stream().map(Map.Entry::getKey).toList();
+    }
+
+    static MediaType request(String header, String value) {
+        try {
+            return parse(value);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("illegal " + header + " header: " + value, e);
+        }
+    }
+
+    static List<MediaType> produces(AnnotatedElement... elements) {
+        for (AnnotatedElement element : elements) {
+            Produces produces = element.getAnnotation(Produces.class);
+            if (produces != null)
+                return Arrays.stream(produces.value()).flatMap(value -> Arrays.stream(value.split(",")))
+                        .map(MediaTypes::parse).toList();
+        }
+        return WILDCARD;
+    }
+
+    //两个兼容的类型里取更具体的那个
+    static MediaType mostSpecific(MediaType first, MediaType second) {
+        return wildcards(second) < wildcards(first) ? second : first;
+    }
+
+    static boolean isConcrete(MediaType type) {
+        return !type.isWildcardType() && !type.isWildcardSubtype();
+    }
+
+    private static int wildcards(MediaType type) {
+        return (type.isWildcardType() ? 1 : 0) + (type.isWildcardSubtype() ? 1 : 0);
+    }
+
+    private static double quality(String value) {
+        if (value == null) return 1;
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            return 1;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.geektime.tdd.rest;
+
+import jakarta.ws.rs.InternalServerErrorException;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.MultivaluedMap;
+import jakarta.ws.rs.ext.MessageBodyWriter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+//自己注册的writer排在内置的前面；选中的结果按(类型, 泛型, media type)缓存，同一种返回值只查一次
+final class MessageBodyWriters {
+    private final List<Candidate> candidates;
+    private final Map<Key, Selected> selected = new ConcurrentHashMap<>();
+
+    MessageBodyWriters(List<MessageBodyWriter<?>> writers) {
+        this.candidates = new ArrayList<>();
+        for (MessageBodyWriter<?> writer : writers) candidates.add(new Candidate(writer));
+        candidates.add(new Candidate(new StringWriter()));
+        candidates.add(new Candidate(new ByteArrayWriter()));
+        candidates.add(new Candidate(new JsonMessageBodyWriter()));
+        candidates.add(new Candidate(new Metrics.PrometheusWriter()));
+    }
+
+    Selected select(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return selected.computeIfAbsent(new Key(type, genericType, mediaType), key -> find(key, annotations));
+    }
+
+    private Selected find(Key key, Annotation[] annotations) {
+        for (Candidate candidate : candidates) {
+            for (MediaType produces : candidate.produces()) {
+                if (!produces.isCompatible(key.mediaType())) continue;
+                MediaType actual = MediaTypes.mostSpecific(key.mediaType(), produces);
+                if (!MediaTypes.isConcrete(actual)) actual = MediaType.APPLICATION_OCTET_STREAM_TYPE;
+                if (candidate.writer().isWriteable(key.type(), key.genericType(), annotations, actual))
+                    return new Selected(candidate.writer(), actual);
+            }
+        }
+        throw new InternalServerErrorException("no MessageBodyWriter for " + key.type().getName() + " as " + key.mediaType());
+    }
+
+    record Selected(MessageBodyWriter<?> writer, MediaType mediaType) {
+        void writeTo(Object entity, Type genericType, Annotation[] annotations, MultivaluedMap<String, Object> headers,
+                     OutputStream out) throws IOException {
+            write(writer, entity, genericType, annotations, mediaType, headers, out);
+        }
+
+        //选的时候已经按实体的类型问过isWriteable，这里转成T是安全的；MessageBodyWriter<?>拿不到T，只能在这一处unchecked
+        @SuppressWarnings("unchecked")
+        private static <T> void write(MessageBodyWriter<T> writer, Object entity, Type genericType, Annotation[] annotations,
+                                      MediaType mediaType, MultivaluedMap<String, Object> headers, OutputStream out) throws IOException {
+            writer.writeTo((T) entity, entity.getClass(), genericType, annotations, mediaType, headers, out);
+        }
+    }
+
+    private record Key(Class<?> type, Type genericType, MediaType mediaType) {
+    }
+
+    private record Candidate(MessageBodyWriter<?> writer, List<MediaType> produces) {
+        Candidate(MessageBodyWriter<?> writer) {
+            this(writer, MediaTypes.produces(writer.getClass()));
+        }
+    }
+
+    static Charset charset(MediaType mediaType) {
+        String charset = mediaType.getParameters().get(MediaType.CHARSET_PARAMETER);
+        return charset == null ? StandardCharsets.UTF_8 : Charset.forName(charset);
+    }
+
+    @Produces({MediaType.TEXT_PLAIN, MediaType.WILDCARD})
+    static class StringWriter implements MessageBodyWriter<String> {
+        @Override
+        public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+            return type == String.class;
+        }
+
+        @Override
+        public void writeTo(String entity, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType,
+                            MultivaluedMap<String, Object> headers, OutputStream out) throws IOException {
+            out.write(entity.getBytes(charset(mediaType)));
+        }
+    }
+
+    @Produces(MediaType.WILDCARD)
+    static class ByteArrayWriter implements MessageBodyWriter<byte[]> {
+        @Override
+        public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+            return type == byte[].class;
+        }
+
+        @Override
+        public void writeTo(byte[] entity, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType,
+                            MultivaluedMap<String, Object> headers, OutputStream out) throws IOException {
+            out.write(entity);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.geektime.tdd.rest;
+
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.MultivaluedMap;
+import jakarta.ws.rs.ext.MessageBodyWriter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+//所有路由的指标，按Prometheus的文本格式输出
+//指标名、标签、le的值都预先编码成字节，数字直接写进JsonOutput的缓冲里，输出的时候不按指标分配对象
+final class Metrics {
+    static final String CONTENT_TYPE = "text/plain; version=0.0.4";
+    private static final byte[] REQUESTS = bytes("""
+            # HELP http_requests_total Requests by route and status.
+            # TYPE http_requests_total counter
+            """);
+    private static final byte[] DURATION = bytes("""
+            # HELP http_request_duration_seconds Request latency by route.
+            # TYPE http_request_duration_seconds histogram
+            """);
+    private static final byte[] IN_FLIGHT = bytes("""
+            # HELP http_requests_in_flight Requests being processed by route.
+            # TYPE http_requests_in_flight gauge
+            """);
+    private static final byte[] REQUESTS_SAMPLE = bytes("http_requests_total{");
+    private static final byte[] BUCKET_SAMPLE = bytes("http_request_duration_seconds_bucket{");
+    private static final byte[] SUM_SAMPLE = bytes("http_request_duration_seconds_sum{");
+    private static final byte[] COUNT_SAMPLE = bytes("http_request_duration_seconds_count{");
+    private static final byte[] IN_FLIGHT_SAMPLE = bytes("http_requests_in_flight{");
+    private static final byte[] STATUS = bytes(",status=\"");
+    private static final byte[] CLOSE = bytes("\"} ");
+    private static final byte[] END = bytes("} ");
+    private static final byte[][] LE = new byte[RouteMetrics.BOUNDS.length + 1][];
+    private static final byte[][] CACHE = {
+            bytes("# TYPE http_response_cache_hits_total counter\nhttp_response_cache_hits_total "),
+            bytes("# TYPE http_response_cache_misses_total counter\nhttp_response_cache_misses_total "),
+            bytes("# TYPE http_response_cache_not_modified_total counter\nhttp_response_cache_not_modified_total "),
+            bytes("# TYPE http_response_cache_bytes_saved_total counter\nhttp_response_cache_bytes_saved_total "),
+            bytes("# TYPE http_response_cache_entries gauge\nhttp_response_cache_entries "),
+            bytes("# TYPE http_response_cache_bytes gauge\nhttp_response_cache_bytes ")};
+
+    static {
+        for (int i = 0; i < RouteMetrics.BOUNDS.length; i++)
+            LE[i] = bytes(",le=\"" + BigDecimal.valueOf(RouteMetrics.BOUNDS[i], 9).stripTrailingZeros().toPlainString() + "\"} ");
+        LE[RouteMetrics.BOUNDS.length] = bytes(",le=\"+Inf\"} ");
+    }
+
+    private final List<RouteMetrics> routes = new CopyOnWriteArrayList<>();
+    private final RouteMetrics unmatched = new RouteMetrics("", "");
+    private final ResponseCache cache;
+
+    Metrics(ResponseCache cache) {
+        this.cache = cache;
+        routes.add(unmatched);
+    }
+
+    void register(List<ResourceMethod> methods) {
+        for (ResourceMethod method : methods) routes.add(method.metrics());
+    }
+
+    //路径没匹配上、方法不允许、Accept不满足的请求记在method和route都为空的这一份上
+    RouteMetrics unmatched() {
+        return unmatched;
+    }
+
+    void writeTo(JsonOutput out) throws IOException {
+        out.writeBytes(REQUESTS);
+        for (RouteMetrics route : routes)
+            for (int status = 0; status < route.statuses(); status++) {
+                long count = route.status(status);
+                if (count == 0) continue;
+                out.writeBytes(REQUESTS_SAMPLE);
+                out.writeBytes(route.labels());
+                out.writeBytes(STATUS);
+                out.writeLong(status);
+                out.writeBytes(CLOSE);
+                out.writeLong(count);
+                out.writeByte((byte) '\n');
+            }
+        out.writeBytes(DURATION);
+        for (RouteMetrics route : routes) {
+            long cumulative = 0;
+            for (int bucket = 0; bucket < LE.length; bucket++) {
+                cumulative += route.bucket(bucket);
+                sample(out, BUCKET_SAMPLE, route, LE[bucket]);
+                out.writeLong(cumulative);
+                out.writeByte((byte) '\n');
+            }
+            sample(out, SUM_SAMPLE, route, END);
+            writeSeconds(out, route.nanos());
+            out.writeByte((byte) '\n');
+            sample(out, COUNT_SAMPLE, route, END);
+            out.writeLong(cumulative);
+            out.writeByte((byte) '\n');
+        }
+        out.writeBytes(IN_FLIGHT);
+        for (RouteMetrics route : routes) {
+            sample(out, IN_FLIGHT_SAMPLE, route, END);
+            out.writeLong(route.inFlight());
+            out.writeByte((byte) '\n');
+        }
+        ResponseCache.Statistics statistics = cache.statistics();
+        long[] values = {statistics.hits(), statistics.misses(), statistics.notModified(), statistics.bytesSaved(),
+                statistics.entries(), statistics.bytes()};
+        for (int i = 0; i < CACHE.length; i++) {
+            out.writeBytes(CACHE[i]);
+            out.writeLong(values[i]);
+            out.writeByte((byte) '\n');
+        }
+    }
+
+    private static void sample(JsonOutput out, byte[] name, RouteMetrics route, byte[] end) throws IOException {
+        out.writeBytes(name);
+        out.writeBytes(route.labels());
+        out.writeBytes(end);
+    }
+
+    //纳秒按秒写成定点小数，不经过double和字符串
+    private static void writeSeconds(JsonOutput out, long nanos) throws IOException {
+        out.writeLong(nanos / 1_000_000_000);
+        out.writeByte((byte) '.');
+        long fraction = nanos % 1_000_000_000;
+        for (long digit = 100_000_000; digit > fraction && digit > 1; digit /= 10) out.writeByte((byte) '0');
+        out.writeLong(fraction);
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Produces(MediaType.TEXT_PLAIN)
+    static class PrometheusWriter implements MessageBodyWriter<Metrics> {
+        @Override
+        public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+            return type == Metrics.class;
+        }
+
+        @Override
+        public void writeTo(Metrics metrics, Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType,
+                            MultivaluedMap<String, Object> headers, OutputStream out) throws IOException {
+            try (JsonOutput output = new JsonOutput(out)) {
+                metrics.writeTo(output);
+            }
+        }
+    }
+}
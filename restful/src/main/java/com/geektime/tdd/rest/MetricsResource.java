@@ -0,0 +1,21 @@
+package com.geektime.tdd.rest;
+
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+
+//servlet自己带的资源，不从容器里取，直接用这个实例
+@Path("/metrics")
+final class MetricsResource {
+    private final Metrics metrics;
+
+    MetricsResource(Metrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @GET
+    @Produces(Metrics.CONTENT_TYPE)
+    public Metrics metrics() {
+        return metrics;
+    }
+}
@@ -0,0 +1,227 @@
+package com.geektime.tdd.rest;
+
+import jakarta.ws.rs.core.*;
+import jakarta.ws.rs.ext.RuntimeDelegate;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.net.URI;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.stream.Collectors;
+
+//只在服务端往外写，所以readEntity之类入站的方法都不支持
+class OutboundResponse extends Response {
+    private final int status;
+    private final String reasonPhrase;
+    private final Object entity;
+    private final Type genericType;
+    private final Annotation[] annotations;
+    private final MultivaluedMap<String, Object> headers;
+
+    OutboundResponse(int status, String reasonPhrase, Object entity, Type genericType, Annotation[] annotations,
+                     MultivaluedMap<String, Object> headers) {
+        this.status = status;
+        this.reasonPhrase = reasonPhrase;
+        this.entity = entity;
+        this.genericType = genericType;
+        this.annotations = annotations;
+        this.headers = headers;
+    }
+
+    static OutboundResponse of(Object entity, Type genericType, Annotation[] annotations) {
+        if (entity == null) return new OutboundResponse(204, null, null, null, annotations, new MultivaluedHashMap<>());
+        return new OutboundResponse(200, null, entity, genericType, annotations, new MultivaluedHashMap<>());
+    }
+
+    Type getGenericType() {
+        return genericType;
+    }
+
+    Annotation[] getAnnotations() {
+        return annotations;
+    }
+
+    @Override
+    public int getStatus() {
+        return status;
+    }
+
+    @Override
+    public StatusType getStatusInfo() {
+        Status known = Status.fromStatusCode(status);
+        if (known != null && reasonPhrase == null) return known;
+        return new StatusType() {
+            @Override
+            public int getStatusCode() {
+                return status;
+            }
+
+            @Override
+            public Status.Family getFamily() {
+                return Status.Family.familyOf(status);
+            }
+
+            @Override
+            public String getReasonPhrase() {
+                return reasonPhrase != null ? reasonPhrase : known != null ? known.getReasonPhrase() : "";
+            }
+        };
+    }
+
+    @Override
+    public Object getEntity() {
+        return entity;
+    }
+
+    @Override
+    public <T> T readEntity(Class<T> entityType) {
+        throw new IllegalStateException("outbound response");
+    }
+
+    @Override
+    public <T> T readEntity(GenericType<T> entityType) {
+        throw new IllegalStateException("outbound response");
+    }
+
+    @Override
+    public <T> T readEntity(Class<T> entityType, Annotation[] annotations) {
+        throw new IllegalStateException("outbound response");
+    }
+
+    @Override
+    public <T> T readEntity(GenericType<T> entityType, Annotation[] annotations) {
+        throw new IllegalStateException("outbound response");
+    }
+
+    @Override
+    public boolean hasEntity() {
+        return entity != null;
+    }
+
+    @Override
+    public boolean bufferEntity() {
+        return false;
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public MediaType getMediaType() {
+        Object type = headers.getFirst(HttpHeaders.CONTENT_TYPE);
+        return type == null || type instanceof MediaType ? (MediaType) type : MediaTypes.parse(type.toString());
+    }
+
+    @Override
+    public Locale getLanguage() {
+        Object language = headers.getFirst(HttpHeaders.CONTENT_LANGUAGE);
+        return language == null || language instanceof Locale ? (Locale) language : Locale.forLanguageTag(language.toString());
+    }
+
+    @Override
+    public int getLength() {
+        Object length = headers.getFirst(HttpHeaders.CONTENT_LENGTH);
+        return length == null ? -1 : Integer.parseInt(length.toString());
+    }
+
+    @Override
+    public Set<String> getAllowedMethods() {
+        List<Object> allowed = headers.get(HttpHeaders.ALLOW);
+        if (allowed == null) return Set.of();
+        return allowed.stream().flatMap(value -> Arrays.stream(value.toString().split(",")))
+                .map(String::strip).filter(value -> !value.isEmpty()).collect(Collectors.toSet());
+    }
+
+    //Set-Cookie和Link头不解析，直接用header()写成字符串的不算在里面
+    @Override
+    public Map<String, NewCookie> getCookies() {
+        List<Object> cookies = headers.get(HttpHeaders.SET_COOKIE);
+        if (cookies == null) return Map.of();
+        Map<String, NewCookie> byName = new LinkedHashMap<>();
+        for (Object value : cookies) if (value instanceof NewCookie cookie) byName.put(cookie.getName(), cookie);
+        return byName;
+    }
+
+    @Override
+    public EntityTag getEntityTag() {
+        Object tag = headers.getFirst(HttpHeaders.ETAG);
+        return tag == null || tag instanceof EntityTag ? (EntityTag) tag : DefaultRuntimeDelegate.parseEntityTag(tag.toString());
+    }
+
+    @Override
+    public Date getDate() {
+        return (Date) headers.getFirst(HttpHeaders.DATE);
+    }
+
+    @Override
+    public Date getLastModified() {
+        return (Date) headers.getFirst(HttpHeaders.LAST_MODIFIED);
+    }
+
+    @Override
+    public URI getLocation() {
+        Object location = headers.getFirst(HttpHeaders.LOCATION);
+        return location == null || location instanceof URI ? (URI) location : URI.create(location.toString());
+    }
+
+    @Override
+    public Set<Link> getLinks() {
+        List<Object> links = headers.get(HttpHeaders.LINK);
+        if (links == null) return Set.of();
+        Set<Link> all = new LinkedHashSet<>();
+        for (Object value : links) if (value instanceof Link link) all.add(link);
+        return all;
+    }
+
+    @Override
+    public boolean hasLink(String relation) {
+        return getLink(relation) != null;
+    }
+
+    @Override
+    public Link getLink(String relation) {
+        return getLinks().stream().filter(link -> link.getRels().contains(relation)).findFirst().orElse(null);
+    }
+
+    @Override
+    public Link.Builder getLinkBuilder(String relation) {
+        Link link = getLink(relation);
+        return link == null ? null : Link.fromLink(link);
+    }
+
+    @Override
+    public MultivaluedMap<String, Object> getMetadata() {
+        return headers;
+    }
+
+    @Override
+    public MultivaluedMap<String, String> getStringHeaders() {
+        MultivaluedMap<String, String> strings = new MultivaluedHashMap<>();
+        headers.forEach((name, values) -> values.forEach(value -> strings.add(name, headerValue(value))));
+        return strings;
+    }
+
+    @Override
+    public String getHeaderString(String name) {
+        List<Object> values = headers.get(name);
+        if (values == null) return null;
+        return values.stream().map(OutboundResponse::headerValue).collect(Collectors.joining(","));
+    }
+
+    //MediaType和Date每个响应都会写，不用每次都去找HeaderDelegate
+    static String headerValue(Object value) {
+        if (value instanceof String string) return string;
+        if (value instanceof MediaType mediaType) return MediaTypes.toString(mediaType);
+        if (value instanceof Date date)
+            return DateTimeFormatter.RFC_1123_DATE_TIME.format(date.toInstant().atOffset(ZoneOffset.UTC));
+        return format(value.getClass(), value);
+    }
+
+    private static <T> String format(Class<T> type, Object value) {
+        RuntimeDelegate.HeaderDelegate<T> delegate = RuntimeDelegate.getInstance().createHeaderDelegate(type);
+        return delegate != null ? delegate.toString(type.cast(value)) : value.toString();
+    }
+}
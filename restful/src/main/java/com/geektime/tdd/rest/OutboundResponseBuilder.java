@@ -0,0 +1,207 @@
+package com.geektime.tdd.rest;
+
+import jakarta.ws.rs.core.*;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.net.URI;
+import java.util.*;
+import java.util.function.Function;
+
+class OutboundResponseBuilder extends Response.ResponseBuilder {
+    private int status = -1;
+    private String reasonPhrase;
+    private Object entity;
+    private Type genericType;
+    private Annotation[] annotations = new Annotation[0];
+    private MultivaluedMap<String, Object> headers = new MultivaluedHashMap<>();
+
+    //没设置status的时候按有没有entity决定是200还是204
+    @Override
+    public Response build() {
+        int actual = status != -1 ? status : entity != null ? 200 : 204;
+        return new OutboundResponse(actual, reasonPhrase, entity, genericType, annotations, headers);
+    }
+
+    @Override
+    public Response.ResponseBuilder clone() {
+        OutboundResponseBuilder builder = new OutboundResponseBuilder();
+        builder.status = status;
+        builder.reasonPhrase = reasonPhrase;
+        builder.entity = entity;
+        builder.genericType = genericType;
+        builder.annotations = annotations;
+        builder.headers = new MultivaluedHashMap<>(headers);
+        return builder;
+    }
+
+    @Override
+    public Response.ResponseBuilder status(int status, String reasonPhrase) {
+        if (status < 100 || status > 599) throw new IllegalArgumentException("illegal status " + status);
+        this.status = status;
+        this.reasonPhrase = reasonPhrase;
+        return this;
+    }
+
+    @Override
+    public Response.ResponseBuilder status(int status) {
+        return status(status, null);
+    }
+
+    @Override
+    public Response.ResponseBuilder entity(Object entity) {
+        return entity(entity, annotations);
+    }
+
+    @Override
+    public Response.ResponseBuilder entity(Object entity, Annotation[] annotations) {
+        if (entity instanceof GenericEntity<?> generic) {
+            this.entity = generic.getEntity();
+            this.genericType = generic.getType();
+        } else {
+            this.entity = entity;
+            this.genericType = entity == null ? null : entity.getClass();
+        }
+        this.annotations = annotations == null ? new Annotation[0] : annotations;
+        return this;
+    }
+
+    @Override
+    public Response.ResponseBuilder allow(String... methods) {
+        return allow(methods == null ? null : new LinkedHashSet<>(Arrays.asList(methods)));
+    }
+
+    @Override
+    public Response.ResponseBuilder allow(Set<String> methods) {
+        return replace(HttpHeaders.ALLOW, methods == null ? null : String.join(",", methods));
+    }
+
+    @Override
+    public Response.ResponseBuilder cacheControl(CacheControl cacheControl) {
+        return replace(HttpHeaders.CACHE_CONTROL, cacheControl);
+    }
+
+    @Override
+    public Response.ResponseBuilder encoding(String encoding) {
+        return replace(HttpHeaders.CONTENT_ENCODING, encoding);
+    }
+
+    @Override
+    public Response.ResponseBuilder header(String name, Object value) {
+        if (value == null) headers.remove(name);
+        else headers.add(name, value);
+        return this;
+    }
+
+    @Override
+    public Response.ResponseBuilder replaceAll(MultivaluedMap<String, Object> headers) {
+        this.headers = headers == null ? new MultivaluedHashMap<>() : new MultivaluedHashMap<>(headers);
+        return this;
+    }
+
+    @Override
+    public Response.ResponseBuilder language(String language) {
+        return replace(HttpHeaders.CONTENT_LANGUAGE, language);
+    }
+
+    @Override
+    public Response.ResponseBuilder language(Locale language) {
+        return replace(HttpHeaders.CONTENT_LANGUAGE, language == null ? null : language.toLanguageTag());
+    }
+
+    @Override
+    public Response.ResponseBuilder type(MediaType type) {
+        return replace(HttpHeaders.CONTENT_TYPE, type);
+    }
+
+    @Override
+    public Response.ResponseBuilder type(String type) {
+        return type(type == null ? null : MediaTypes.parse(type));
+    }
+
+    @Override
+    public Response.ResponseBuilder variant(Variant variant) {
+        if (variant == null) return type((MediaType) null).language((Locale) null).encoding(null);
+        return type(variant.getMediaType()).language(variant.getLanguage()).encoding(variant.getEncoding());
+    }
+
+    @Override
+    public Response.ResponseBuilder contentLocation(URI location) {
+        return replace(HttpHeaders.CONTENT_LOCATION, location);
+    }
+
+    @Override
+    public Response.ResponseBuilder cookie(NewCookie... cookies) {
+        if (cookies == null) return replace(HttpHeaders.SET_COOKIE, null);
+        for (NewCookie cookie : cookies) headers.add(HttpHeaders.SET_COOKIE, cookie);
+        return this;
+    }
+
+    @Override
+    public Response.ResponseBuilder expires(Date expires) {
+        return replace(HttpHeaders.EXPIRES, expires);
+    }
+
+    @Override
+    public Response.ResponseBuilder lastModified(Date lastModified) {
+        return replace(HttpHeaders.LAST_MODIFIED, lastModified);
+    }
+
+    @Override
+    public Response.ResponseBuilder location(URI location) {
+        return replace(HttpHeaders.LOCATION, location);
+    }
+
+    @Override
+    public Response.ResponseBuilder tag(EntityTag tag) {
+        return replace(HttpHeaders.ETAG, tag);
+    }
+
+    @Override
+    public Response.ResponseBuilder tag(String tag) {
+        return tag(tag == null ? null : new EntityTag(tag));
+    }
+
+    @Override
+    public Response.ResponseBuilder variants(Variant... variants) {
+        return variants(variants == null ? null : Arrays.asList(variants));
+    }
+
+    //variant之间哪一维不一样，Vary里就带上对应的请求头
+    @Override
+    public Response.ResponseBuilder variants(List<Variant> variants) {
+        if (variants == null) return replace(HttpHeaders.VARY, null);
+        List<String> vary = new ArrayList<>();
+        if (differ(variants, Variant::getMediaType)) vary.add(HttpHeaders.ACCEPT);
+        if (differ(variants, Variant::getLanguage)) vary.add(HttpHeaders.ACCEPT_LANGUAGE);
+        if (differ(variants, Variant::getEncoding)) vary.add(HttpHeaders.ACCEPT_ENCODING);
+        return replace(HttpHeaders.VARY, vary.isEmpty() ? null : String.join(",", vary));
+    }
+
+    private static boolean differ(List<Variant> variants, Function<Variant, Object> dimension) {
+        return variants.stream().map(dimension).distinct().count() > 1;
+    }
+
+    @Override
+    public Response.ResponseBuilder links(Link... links) {
+        if (links == null) return replace(HttpHeaders.LINK, null);
+        for (Link link : links) headers.add(HttpHeaders.LINK, link);
+        return this;
+    }
+
+    @Override
+    public Response.ResponseBuilder link(URI uri, String rel) {
+        return links(Link.fromUri(uri).rel(rel).build());
+    }
+
+    @Override
+    public Response.ResponseBuilder link(String uri, String rel) {
+        return links(Link.fromUri(uri).rel(rel).build());
+    }
+
+    private Response.ResponseBuilder replace(String name, Object value) {
+        headers.remove(name);
+        if (value != null) headers.add(name, value);
+        return this;
+    }
+}
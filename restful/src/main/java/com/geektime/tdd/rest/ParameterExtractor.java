@@ -0,0 +1,11 @@
+package com.geektime.tdd.rest;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+import java.io.IOException;
+
+//每个资源方法参数在启动的时候确定一个extractor，请求进来只按下标取值、转换
+@FunctionalInterface
+interface ParameterExtractor {
+    Object extract(HttpServletRequest request, String[] pathValues) throws IOException;
+}
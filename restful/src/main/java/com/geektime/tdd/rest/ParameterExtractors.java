@@ -0,0 +1,179 @@
+package com.geektime.tdd.rest;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.ws.rs.BadRequestException;
+import jakarta.ws.rs.DefaultValue;
+import jakarta.ws.rs.HeaderParam;
+import jakarta.ws.rs.NotFoundException;
+import jakarta.ws.rs.PathParam;
+import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.container.AsyncResponse;
+import jakarta.ws.rs.container.Suspended;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.UriInfo;
+
+import java.io.InputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.*;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.function.Function;
+
+//从请求里取字符串、转换成参数类型的办法都在启动的时候定下来，请求里不再查找转换器，也不走反射
+final class ParameterExtractors {
+    private static final Map<Class<?>, Function<String, Object>> PRIMITIVES = Map.of(
+            double.class, Double::valueOf, Double.class, Double::valueOf,
+            float.class, Float::valueOf, Float.class, Float::valueOf,
+            boolean.class, Boolean::valueOf, Boolean.class, Boolean::valueOf,
+            short.class, Short::valueOf, Short.class, Short::valueOf,
+            byte.class, Byte::valueOf, Byte.class, Byte::valueOf);
+
+    private static final MethodType FACTORY = MethodType.methodType(Object.class, String.class);
+
+    private ParameterExtractors() {
+    }
+
+    static ParameterExtractor of(Parameter parameter, UriTemplate template) {
+        Class<?> type = parameter.getType();
+        PathParam path = parameter.getAnnotation(PathParam.class);
+        if (path != null) {
+            int index = template.indexOf(path.value());
+            if (index < 0)
+                throw new IllegalArgumentException("@PathParam(\"" + path.value() + "\") is not declared in " + template);
+            return converted(parameter, (request, values) -> values[index], NotFoundException::new);
+        }
+        QueryParam query = parameter.getAnnotation(QueryParam.class);
+        if (query != null) {
+            String name = query.value();
+            return converted(parameter, (request, values) -> request.getParameter(name), NotFoundException::new);
+        }
+        HeaderParam header = parameter.getAnnotation(HeaderParam.class);
+        if (header != null) {
+            String name = header.value();
+            return converted(parameter, (request, values) -> request.getHeader(name), BadRequestException::new);
+        }
+        if (parameter.isAnnotationPresent(Suspended.class)) {
+            if (type == AsyncResponse.class) return (request, values) -> request.getAttribute(ServletAsyncResponse.ATTRIBUTE);
+            throw new IllegalArgumentException("@Suspended parameter must be AsyncResponse: " + parameter.getDeclaringExecutable());
+        }
+        if (parameter.isAnnotationPresent(Context.class)) {
+            if (type == HttpServletRequest.class) return (request, values) -> request;
+            if (type == HttpHeaders.class) return (request, values) -> RequestScope.current().headers();
+            if (type == UriInfo.class) return (request, values) -> RequestScope.current().uriInfo();
+            throw new IllegalArgumentException("unsupported @Context type " + type.getName());
+        }
+        if (type == InputStream.class) return (request, values) -> request.getInputStream();
+        if (type == String.class)
+            return (request, values) -> new String(request.getInputStream().readAllBytes(), charset(request));
+        throw new IllegalArgumentException("unsupported parameter " + parameter + " of " + parameter.getDeclaringExecutable());
+    }
+
+    //请求里没有这个值的时候用missing：@DefaultValue启动的时候就转换好，每次都用同一个对象，所以参数类型应该是不可变的；
+    //没有@DefaultValue的基本类型是0/false，其余是null
+    //long和int是最常见的路径参数，直接parse，不经过通用的转换器
+    private static ParameterExtractor converted(Parameter parameter, ParameterExtractor source,
+                                                Function<Throwable, WebApplicationException> failure) {
+        Class<?> type = parameter.getType();
+        Object missing = missing(parameter, type);
+        if (type == long.class || type == Long.class) return (request, values) -> {
+            String value = (String) source.extract(request, values);
+            if (value == null) return missing;
+            try {
+                return Long.parseLong(value);
+            } catch (NumberFormatException e) {
+                throw failure.apply(e);
+            }
+        };
+        if (type == int.class || type == Integer.class) return (request, values) -> {
+            String value = (String) source.extract(request, values);
+            if (value == null) return missing;
+            try {
+                return Integer.parseInt(value);
+            } catch (NumberFormatException e) {
+                throw failure.apply(e);
+            }
+        };
+        if (type == String.class) return (request, values) -> {
+            Object value = source.extract(request, values);
+            return value == null ? missing : value;
+        };
+        Function<String, Object> converter = converter(type);
+        return (request, values) -> {
+            String value = (String) source.extract(request, values);
+            if (value == null) return missing;
+            try {
+                return converter.apply(value);
+            } catch (IllegalArgumentException e) {
+                throw failure.apply(e);
+            }
+        };
+    }
+
+    private static Object missing(Parameter parameter, Class<?> type) {
+        DefaultValue defaultValue = parameter.getAnnotation(DefaultValue.class);
+        if (defaultValue == null) return type.isPrimitive() ? Array.get(Array.newInstance(type, 1), 0) : null;
+        try {
+            return converter(type).apply(defaultValue.value());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("@DefaultValue(\"" + defaultValue.value() + "\") can not be converted to "
+                    + type.getName() + " for " + parameter.getDeclaringExecutable(), e);
+        }
+    }
+
+    //JAX-RS（3.2节）规定的顺序：基本类型，然后是String构造函数，最后是static valueOf(String)或fromString(String)，
+    //两个都有的时候用valueOf，枚举用fromString；找到的方法先做成(String)Object的MethodHandle
+    static Function<String, Object> converter(Class<?> type) {
+        if (type == String.class) return value -> value;
+        if (type == long.class || type == Long.class) return Long::valueOf;
+        if (type == int.class || type == Integer.class) return Integer::valueOf;
+        Function<String, Object> primitive = PRIMITIVES.get(type);
+        if (primitive != null) return primitive;
+        MethodHandle factory = factory(type);
+        return value -> {
+            try {
+                return (Object) factory.invokeExact(value);
+            } catch (IllegalArgumentException e) {
+                throw e;
+            } catch (Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalArgumentException(e);
+            }
+        };
+    }
+
+    private static MethodHandle factory(Class<?> type) {
+        try {
+            try {
+                Constructor<?> constructor = type.getConstructor(String.class);
+                constructor.trySetAccessible();
+                return MethodHandles.lookup().unreflectConstructor(constructor).asType(FACTORY);
+            } catch (NoSuchMethodException ignored) {
+            }
+            String[] names = type.isEnum() ? new String[]{"fromString", "valueOf"} : new String[]{"valueOf", "fromString"};
+            for (String name : names) {
+                try {
+                    Method method = type.getMethod(name, String.class);
+                    if (Modifier.isStatic(method.getModifiers()) && type.isAssignableFrom(method.getReturnType())) {
+                        method.trySetAccessible();
+                        return MethodHandles.lookup().unreflect(method).asType(FACTORY);
+                    }
+                } catch (NoSuchMethodException ignored) {
+                }
+            }
+            throw new IllegalArgumentException("can not convert String to " + type.getName());
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("can not access String converter of " + type.getName(), e);
+        }
+    }
+
+    private static Charset charset(HttpServletRequest request) {
+        String encoding = request.getCharacterEncoding();
+        return encoding == null ? StandardCharsets.UTF_8 : Charset.forName(encoding);
+    }
+}
@@ -0,0 +1,100 @@
+package com.geektime.tdd.rest;
+
+import com.geektime.tdd.ContextConfig;
+import jakarta.inject.Provider;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.UriInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+//在ContextConfig上注册@RequestScoped，并把UriInfo、HttpHeaders绑定成当前请求的
+//当前请求放在ThreadLocal里，只在调用资源方法的线程上挂着；对象都是第一次用到的时候才建
+public final class RequestScope {
+    private static final Logger logger = LoggerFactory.getLogger(RequestScope.class);
+    private static final ThreadLocal<Instances> CURRENT = new ThreadLocal<>();
+
+    private RequestScope() {
+    }
+
+    public static void install(ContextConfig config) {
+        config.scope(RequestScoped.class, (key, creator) -> current().get(key, creator));
+        config.bindProvider(HttpHeaders.class, () -> current().headers());
+        config.bindProvider(UriInfo.class, () -> current().uriInfo());
+    }
+
+    static Instances open(HttpServletRequest request, ResourceRouter.Match match) {
+        return new Instances(request, match);
+    }
+
+    static Instances current() {
+        Instances instances = CURRENT.get();
+        if (instances == null) throw new IllegalStateException("no request is being dispatched on " + Thread.currentThread());
+        return instances;
+    }
+
+    //一个请求的对象；同步请求和servlet线程一样长，异步请求到响应写完为止
+    static final class Instances implements AutoCloseable {
+        private final HttpServletRequest request;
+        private final ResourceRouter.Match match;
+        private HttpHeaders headers;
+        private UriInfo uriInfo;
+        //一个请求里的组件一般只有几个，线性找比建HashMap便宜
+        private List<Object> scoped;
+
+        private Instances(HttpServletRequest request, ResourceRouter.Match match) {
+            this.request = request;
+            this.match = match;
+        }
+
+        Instances attach() {
+            CURRENT.set(this);
+            return this;
+        }
+
+        void detach() {
+            if (CURRENT.get() == this) CURRENT.remove();
+        }
+
+        HttpHeaders headers() {
+            if (headers == null) headers = new ServletHttpHeaders(request);
+            return headers;
+        }
+
+        UriInfo uriInfo() {
+            if (uriInfo == null) uriInfo = new ServletUriInfo(request, match);
+            return uriInfo;
+        }
+
+        //scoped里按容器给的key、实例交替放
+        private synchronized Object get(Object key, Provider<?> creator) {
+            if (scoped == null) scoped = new ArrayList<>(4);
+            for (int i = 0; i < scoped.size(); i += 2)
+                if (scoped.get(i) == key) return scoped.get(i + 1);
+            Object instance = creator.get();
+            scoped.add(key);
+            scoped.add(instance);
+            return instance;
+        }
+
+        @Override
+        public void close() {
+            detach();
+            List<Object> instances;
+            synchronized (this) {
+                instances = scoped;
+                scoped = null;
+            }
+            if (instances == null) return;
+            for (int i = 1; i < instances.size(); i += 2)
+                if (instances.get(i) instanceof AutoCloseable closeable) try {
+                    closeable.close();
+                } catch (Exception e) {
+                    logger.warn("failed to close request scoped {}", closeable, e);
+                }
+        }
+    }
+}
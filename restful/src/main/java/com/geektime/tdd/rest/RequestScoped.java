@@ -0,0 +1,15 @@
+package com.geektime.tdd.rest;
+
+import jakarta.inject.Scope;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+//一个请求里只创建一次，请求结束的时候丢掉，实现了AutoCloseable的会被关掉；要先用RequestScope.install注册
+@Scope
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface RequestScoped {
+}
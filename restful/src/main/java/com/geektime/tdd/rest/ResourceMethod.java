@@ -0,0 +1,181 @@
+package com.geektime.tdd.rest;
+
+import com.geektime.tdd.Context;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.ws.rs.HttpMethod;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.container.Suspended;
+import jakarta.ws.rs.core.GenericEntity;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletionStage;
+
+//启动的时候把资源方法的反射信息全部算好：模板、参数extractor、调用用的MethodHandle、
+//返回值类型固定的话连writer也先选好，请求里只剩取资源对象和调用
+final class ResourceMethod {
+    private final String httpMethod;
+    private final UriTemplate template;
+    private final Method method;
+    private final ResourceProvider resources;
+    private final MethodHandle invoker;
+    private final ParameterExtractor[] extractors;
+    private final List<MediaType> produces;
+    private final Annotation[] annotations;
+    private final MessageBodyWriters.Selected[] writers;
+    private final boolean suspended;
+    private final boolean async;
+    private final VirtualThreadExecutor executor;
+    private final long cacheNanos;
+    private final Type entityType;
+    private final Class<?> entityClass;
+    private final RouteMetrics metrics;
+
+    private ResourceMethod(String httpMethod, UriTemplate template, Class<?> resourceClass, ResourceProvider resources,
+                           Method method, MessageBodyWriters writers, VirtualThreadExecutor classExecutor) {
+        this.httpMethod = httpMethod;
+        this.template = template;
+        this.method = method;
+        this.resources = resources;
+        this.metrics = new RouteMetrics(httpMethod, template.toString());
+        this.invoker = invoker(method);
+        Parameter[] parameters = method.getParameters();
+        this.extractors = new ParameterExtractor[parameters.length];
+        for (int i = 0; i < parameters.length; i++) extractors[i] = ParameterExtractors.of(parameters[i], template);
+        this.produces = MediaTypes.produces(method, resourceClass);
+        this.annotations = method.getAnnotations();
+        this.suspended = Arrays.stream(parameters).anyMatch(parameter -> parameter.isAnnotationPresent(Suspended.class));
+        boolean stage = CompletionStage.class.isAssignableFrom(method.getReturnType());
+        this.executor = method.isAnnotationPresent(RunOnVirtualThread.class)
+                ? VirtualThreadExecutor.of(method.getAnnotation(RunOnVirtualThread.class)) : classExecutor;
+        this.async = suspended || stage || executor != null;
+        Cacheable cacheable = method.getAnnotation(Cacheable.class);
+        if (cacheable != null && async)
+            throw new IllegalArgumentException("@Cacheable is not supported on async resource method " + method);
+        this.cacheNanos = cacheable == null ? 0 : cacheable.unit().toNanos(cacheable.ttl());
+        this.entityType = stage ? stageType(method.getGenericReturnType()) : suspended ? null : method.getGenericReturnType();
+        this.entityClass = entityType instanceof ParameterizedType type ? (Class<?>) type.getRawType() : (Class<?>) entityType;
+        this.writers = new MessageBodyWriters.Selected[produces.size()];
+        if (entityClass != null && hasFixedEntityType(entityClass))
+            for (int i = 0; i < this.writers.length; i++)
+                this.writers[i] = writers.select(entityClass, entityType, annotations, produces.get(i));
+    }
+
+    static Optional<ResourceMethod> of(Class<?> resourceClass, ResourceProvider resources, Method method,
+                                       MessageBodyWriters writers, VirtualThreadExecutor executor) {
+        return httpMethod(method).map(httpMethod -> new ResourceMethod(httpMethod, UriTemplate.of(
+                resourceClass.getAnnotation(Path.class).value(),
+                method.isAnnotationPresent(Path.class) ? method.getAnnotation(Path.class).value() : null),
+                resourceClass, resources, method, writers, executor));
+    }
+
+    private static Optional<String> httpMethod(Method method) {
+        return Arrays.stream(method.getAnnotations())
+                .map(annotation -> annotation.annotationType().getAnnotation(HttpMethod.class))
+                .filter(annotation -> annotation != null).map(HttpMethod::value).findFirst();
+    }
+
+    //统一成(Object, Object[])Object，调用的时候不用再看方法签名
+    private static MethodHandle invoker(Method method) {
+        try {
+            method.trySetAccessible();
+            MethodHandle handle = MethodHandles.lookup().unreflect(method);
+            return handle.asType(handle.type().generic()).asSpreader(Object[].class, method.getParameterCount());
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("resource method is not accessible: " + method, e);
+        }
+    }
+
+    private static boolean hasFixedEntityType(Class<?> type) {
+        return type != void.class && type != Object.class
+                && !Response.class.isAssignableFrom(type) && !GenericEntity.class.isAssignableFrom(type);
+    }
+
+    //CompletionStage<T>的实体类型取T，T是类型变量或者通配符的时候只能看实际的值
+    private static Type stageType(Type returnType) {
+        if (!(returnType instanceof ParameterizedType type)) return null;
+        Type argument = type.getActualTypeArguments()[0];
+        return argument instanceof Class<?> || argument instanceof ParameterizedType ? argument : null;
+    }
+
+    OutboundResponse call(Context context, HttpServletRequest request, String[] pathValues) throws Throwable {
+        return response(invoke(context, request, pathValues));
+    }
+
+    Object invoke(Context context, HttpServletRequest request, String[] pathValues) throws Throwable {
+        Object[] arguments = new Object[extractors.length];
+        for (int i = 0; i < extractors.length; i++) arguments[i] = extractors[i].extract(request, pathValues);
+        Object resource = resources.acquire(context);
+        try {
+            return (Object) invoker.invokeExact(resource, arguments);
+        } finally {
+            resources.release(resource);
+        }
+    }
+
+    //异步方法resume回来的值、CompletionStage完成的值也走这里
+    OutboundResponse response(Object result) {
+        if (result instanceof OutboundResponse response) return response;
+        if (result instanceof GenericEntity<?> entity)
+            return OutboundResponse.of(entity.getEntity(), entity.getType(), annotations);
+        return OutboundResponse.of(result, entityType != null || result == null ? entityType : result.getClass(), annotations);
+    }
+
+    MessageBodyWriters.Selected writer(MessageBodyWriters writers, OutboundResponse response, MediaType mediaType) {
+        Object entity = response.getEntity();
+        if (entity.getClass() == entityClass && response.getGenericType() == entityType)
+            for (int i = 0; i < produces.size(); i++)
+                if (this.writers[i] != null && produces.get(i).equals(mediaType)) return this.writers[i];
+        return writers.select(entity.getClass(), response.getGenericType(), response.getAnnotations(), mediaType);
+    }
+
+    //有@Suspended AsyncResponse参数、返回CompletionStage或者要在虚拟线程上调用
+    boolean isAsync() {
+        return async;
+    }
+
+    boolean isSuspended() {
+        return suspended;
+    }
+
+    RouteMetrics metrics() {
+        return metrics;
+    }
+
+    //没有标@Cacheable的是0
+    long cacheNanos() {
+        return cacheNanos;
+    }
+
+    //没有标@RunOnVirtualThread的是null，在容器线程上调用
+    VirtualThreadExecutor executor() {
+        return executor;
+    }
+
+    String httpMethod() {
+        return httpMethod;
+    }
+
+    UriTemplate template() {
+        return template;
+    }
+
+    List<MediaType> produces() {
+        return produces;
+    }
+
+    @Override
+    public String toString() {
+        return httpMethod + " " + template + " " + method.getDeclaringClass().getSimpleName() + "." + method.getName();
+    }
+}
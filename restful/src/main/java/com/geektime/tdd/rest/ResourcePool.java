@@ -0,0 +1,33 @@
+package com.geektime.tdd.rest;
+
+import com.geektime.tdd.Context;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+//池空的时候找容器要一个新的，池满了还回来的就丢掉；同一个对象同一时间只给一个请求用
+final class ResourcePool implements ResourceProvider {
+    private final ResourceProvider factory;
+    private final BlockingQueue<Object> idle;
+
+    ResourcePool(ResourceProvider factory, int size) {
+        if (size <= 0) throw new IllegalArgumentException("pool size must be positive: " + size);
+        this.factory = factory;
+        this.idle = new ArrayBlockingQueue<>(size);
+    }
+
+    @Override
+    public Object acquire(Context context) {
+        Object resource = idle.poll();
+        return resource != null ? resource : factory.acquire(context);
+    }
+
+    @Override
+    public void release(Object resource) {
+        idle.offer(resource);
+    }
+
+    int idle() {
+        return idle.size();
+    }
+}
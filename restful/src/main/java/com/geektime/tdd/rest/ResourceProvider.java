@@ -0,0 +1,21 @@
+package com.geektime.tdd.rest;
+
+import com.geektime.tdd.ComponentRef;
+import com.geektime.tdd.Context;
+
+//资源对象从哪来：servlet内置的资源用固定的实例，标了@Reusable的从池里借，其余每次从容器里取
+interface ResourceProvider {
+    Object acquire(Context context);
+
+    default void release(Object resource) {
+    }
+
+    static ResourceProvider of(Class<?> resourceClass, Object instance) {
+        if (instance != null) return context -> instance;
+        ComponentRef<?> ref = ComponentRef.of(resourceClass);
+        ResourceProvider container = context -> context.get(ref).orElseThrow(() ->
+                new IllegalStateException("resource is not bound in context: " + resourceClass.getName()));
+        Reusable reusable = resourceClass.getAnnotation(Reusable.class);
+        return reusable == null ? container : new ResourcePool(container, reusable.pool());
+    }
+}
@@ -0,0 +1,89 @@
+package com.geektime.tdd.rest;
+
+import jakarta.ws.rs.HttpMethod;
+import jakarta.ws.rs.NotAcceptableException;
+import jakarta.ws.rs.NotAllowedException;
+import jakarta.ws.rs.NotFoundException;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.core.MediaType;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.*;
+
+//同一个模板（正则相同）的资源方法归成一条路由，路由按JAX-RS的优先级排好序，名次放进RouteTree，
+//请求先找优先级最高的匹配路径的路由，再在里面按HTTP方法和Accept挑方法
+final class ResourceRouter {
+    private final List<Route> routes;
+    private final RouteTree<Route> tree = new RouteTree<>();
+
+    ResourceRouter(List<ResourceMethod> methods) {
+        Map<UriTemplate, Route> routes = new TreeMap<>(UriTemplate.PRECEDENCE);
+        for (ResourceMethod method : methods)
+            routes.computeIfAbsent(method.template(), Route::new).add(method);
+        this.routes = List.copyOf(routes.values());
+        for (int rank = 0; rank < this.routes.size(); rank++)
+            tree.add(this.routes.get(rank).template(), rank, this.routes.get(rank));
+    }
+
+    static ResourceRouter of(MessageBodyWriters writers, Class<?>... resourceClasses) {
+        return of(writers, List.of(), resourceClasses);
+    }
+
+    //instances是servlet内置的资源对象，比如/metrics
+    static ResourceRouter of(MessageBodyWriters writers, List<Object> instances, Class<?>... resourceClasses) {
+        List<ResourceMethod> methods = new ArrayList<>();
+        for (Object instance : instances) add(methods, writers, instance.getClass(), instance);
+        for (Class<?> resourceClass : resourceClasses) add(methods, writers, resourceClass, null);
+        return new ResourceRouter(methods);
+    }
+
+    private static void add(List<ResourceMethod> methods, MessageBodyWriters writers, Class<?> resourceClass, Object instance) {
+        if (!resourceClass.isAnnotationPresent(Path.class))
+            throw new IllegalArgumentException(resourceClass.getName() + " is not annotated with @Path");
+        VirtualThreadExecutor executor = VirtualThreadExecutor.of(resourceClass.getAnnotation(RunOnVirtualThread.class));
+        ResourceProvider resources = ResourceProvider.of(resourceClass, instance);
+        for (Method method : resourceClass.getMethods())
+            if (!Modifier.isStatic(method.getModifiers()))
+                ResourceMethod.of(resourceClass, resources, method, writers, executor).ifPresent(methods::add);
+    }
+
+    Match match(String httpMethod, String path, String accept) {
+        RouteTree.Found<Route> found = tree.match(path);
+        if (found == null) throw new NotFoundException();
+        return found.value().match(httpMethod, found.values(), accept);
+    }
+
+    List<ResourceMethod> methods() {
+        return routes.stream().flatMap(route -> route.methods().values().stream().flatMap(List::stream)).toList();
+    }
+
+    record Match(ResourceMethod method, String[] values, MediaType mediaType) {
+    }
+
+    private record Route(UriTemplate template, Map<String, List<ResourceMethod>> methods) {
+        Route(UriTemplate template) {
+            this(template, new LinkedHashMap<>());
+        }
+
+        void add(ResourceMethod method) {
+            methods.computeIfAbsent(method.httpMethod(), m -> new ArrayList<>()).add(method);
+        }
+
+        //HEAD没有单独声明的话用GET的方法，不写body
+        Match match(String httpMethod, String[] values, String accept) {
+            List<ResourceMethod> candidates = methods.get(httpMethod);
+            if (candidates == null && HttpMethod.HEAD.equals(httpMethod)) candidates = methods.get(HttpMethod.GET);
+            if (candidates == null) {
+                String[] allowed = methods.keySet().toArray(String[]::new);
+                throw new NotAllowedException(allowed[0], Arrays.copyOfRange(allowed, 1, allowed.length));
+            }
+            for (MediaType acceptable : MediaTypes.accept(accept))
+                for (ResourceMethod candidate : candidates)
+                    for (MediaType produced : candidate.produces())
+                        if (produced.isCompatible(acceptable))
+                            return new Match(candidate, values, MediaTypes.mostSpecific(produced, acceptable));
+            throw new NotAcceptableException();
+        }
+    }
+}
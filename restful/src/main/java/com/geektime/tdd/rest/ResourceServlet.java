@@ -0,0 +1,253 @@
+package com.geektime.tdd.rest;
+
+import com.geektime.tdd.Context;
+import com.geektime.tdd.ContextConfig;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.ws.rs.HttpMethod;
+import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.ext.MessageBodyWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.BaseStream;
+
+//资源类要先用ResourceServlet.bind绑定到ContextConfig里，servlet只负责路由、取参数、调用和写回
+//路由表、参数extractor、writer都在构造的时候算好，请求里没有反射扫描，容器里只取资源对象本身
+//异步的资源方法要求servlet注册时打开asyncSupported
+public class ResourceServlet extends HttpServlet {
+    private static final long serialVersionUID = 1L;
+    private static final Logger logger = LoggerFactory.getLogger(ResourceServlet.class);
+
+    private final Context context;
+    private final MessageBodyWriters writers;
+    private final ResponseCache cache = new ResponseCache();
+    private final Metrics metrics = new Metrics(cache);
+    private final ResourceRouter router;
+
+    public ResourceServlet(Context context, Class<?>... resourceClasses) {
+        this(context, List.of(resourceClasses), List.of());
+    }
+
+    public ResourceServlet(Context context, List<Class<?>> resourceClasses, List<MessageBodyWriter<?>> writers) {
+        this.context = context;
+        this.writers = new MessageBodyWriters(writers);
+        this.router = ResourceRouter.of(this.writers, List.of(new MetricsResource(metrics)), resourceClasses.toArray(Class<?>[]::new));
+        metrics.register(router.methods());
+    }
+
+    //资源类上的@Path这些注解不是qualifier也不是scope，ContextConfig.bind(type, implementation)会拒绝；这里只让容器用类上的scope
+    public static void bind(ContextConfig config, Class<?>... resourceClasses) {
+        for (Class<?> resourceClass : resourceClasses) bindResource(config, resourceClass);
+    }
+
+    private static <T> void bindResource(ContextConfig config, Class<T> resourceClass) {
+        config.bind(resourceClass, resourceClass, new Annotation[0]);
+    }
+
+    @Override
+    protected void service(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        String path = path(req);
+        ResourceRouter.Match match;
+        try {
+            match = router.match(req.getMethod(), path, req.getHeader(HttpHeaders.ACCEPT));
+        } catch (WebApplicationException e) {
+            RouteMetrics unmatched = metrics.unmatched();
+            long start = unmatched.start();
+            unmatched.end(start, write(req, resp, prepare(null, (OutboundResponse) e.getResponse())));
+            return;
+        }
+        RouteMetrics route = match.method().metrics();
+        long start = route.start();
+        if (match.method().isAsync()) {
+            new ServletAsyncResponse(this, req, resp, match, start).dispatch();
+            return;
+        }
+        int status = RouteMetrics.CLOSED;
+        RequestScope.Instances scope = RequestScope.open(req, match).attach();
+        try {
+            if (safe(req) && match.method().cacheNanos() > 0) status = cached(req, resp, match, path);
+            else {
+                Prepared prepared = invoke(req, match);
+                invalidate(req);
+                status = write(req, resp, prepared);
+            }
+        } finally {
+            scope.close();
+            route.end(start, status);
+        }
+    }
+
+    private Prepared invoke(HttpServletRequest req, ResourceRouter.Match match) {
+        try {
+            return prepare(match, match.method().call(context, req, match.values()));
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable e) {
+            return prepare(null, failure(req, e));
+        }
+    }
+
+    //缓存里有没过期的就不调用资源方法；只缓存200，HEAD没有响应体，不往缓存里填
+    private int cached(HttpServletRequest req, HttpServletResponse resp, ResourceRouter.Match match, String path) throws IOException {
+        long now = System.nanoTime();
+        ResponseCache.Key key = new ResponseCache.Key(path, req.getQueryString(), req.getHeader(HttpHeaders.ACCEPT));
+        ResponseCache.Entry entry = cache.get(key, now);
+        if (entry == null) {
+            long stamp = cache.stamp();
+            Prepared prepared = invoke(req, match);
+            if (prepared.response().getStatus() != 200 || !hasBody(req, prepared))
+                return write(req, resp, prepared);
+            entry = entry(prepared, now + match.method().cacheNanos());
+            if (ResponseCache.storable(entry.headers())) cache.put(key, entry, stamp);
+        }
+        if (ResponseCache.matches(req.getHeader(HttpHeaders.IF_NONE_MATCH), entry.etag())) {
+            resp.setStatus(Response.Status.NOT_MODIFIED.getStatusCode());
+            resp.addHeader(HttpHeaders.ETAG, entry.etag());
+            cache.notModified(entry);
+            return Response.Status.NOT_MODIFIED.getStatusCode();
+        }
+        resp.setStatus(Response.Status.OK.getStatusCode());
+        for (Map.Entry<String, String> header : entry.headers()) resp.addHeader(header.getKey(), header.getValue());
+        if (HttpMethod.HEAD.equals(req.getMethod())) {
+            resp.setContentLength(entry.body().length);
+            return Response.Status.OK.getStatusCode();
+        }
+        OutputStream out = resp.getOutputStream();
+        OutputStream body = encoded(req, resp, entry.mediaType(), out);
+        if (body == out || entry.body().length <= ContentEncoding.THRESHOLD) resp.setContentLength(entry.body().length);
+        try {
+            body.write(entry.body());
+        } finally {
+            if (body != out) body.close();
+        }
+        return Response.Status.OK.getStatusCode();
+    }
+
+    private static ResponseCache.Entry entry(Prepared prepared, long expiresAt) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        prepared.writeBody(body);
+        byte[] bytes = body.toByteArray();
+        Object tag = prepared.response().getMetadata().getFirst(HttpHeaders.ETAG);
+        String etag = tag != null ? OutboundResponse.headerValue(tag) : ResponseCache.etag(bytes);
+        List<Map.Entry<String, String>> headers = new ArrayList<>();
+        prepared.response().getMetadata().forEach((name, values) -> {
+            for (Object value : values) headers.add(Map.entry(name, OutboundResponse.headerValue(value)));
+        });
+        if (tag == null) headers.add(Map.entry(HttpHeaders.ETAG, etag));
+        return new ResponseCache.Entry(bytes, etag, prepared.writer().mediaType(), List.copyOf(headers), expiresAt);
+    }
+
+    //不安全的方法执行完才清缓存，失败了也清；在写响应之前清，客户端拿到响应再GET不会读到旧的
+    void invalidate(HttpServletRequest req) {
+        if (!safe(req)) cache.invalidate(path(req));
+    }
+
+    private static boolean safe(HttpServletRequest req) {
+        return HttpMethod.GET.equals(req.getMethod()) || HttpMethod.HEAD.equals(req.getMethod());
+    }
+
+    ResponseCache.Statistics cacheStatistics() {
+        return cache.statistics();
+    }
+
+    Metrics metrics() {
+        return metrics;
+    }
+
+    Context context() {
+        return context;
+    }
+
+    //选writer失败（比如没有能写的writer）也算请求失败，这时候还没写任何东西，可以换成错误响应
+    Prepared prepare(ResourceRouter.Match match, OutboundResponse response) {
+        if (match == null || !response.hasEntity()) return new Prepared(response, null);
+        try {
+            return new Prepared(response, writer(match, response));
+        } catch (WebApplicationException e) {
+            release(response);
+            return new Prepared((OutboundResponse) e.getResponse(), null);
+        }
+    }
+
+    //Stream实体一般背后开着游标或者事务，正常是writer写完关掉；HEAD、选不到writer这些不写响应体的时候在这里关
+    static void release(OutboundResponse response) {
+        if (response.getEntity() instanceof BaseStream<?, ?> stream) stream.close();
+    }
+
+    static OutboundResponse failure(HttpServletRequest req, Throwable e) {
+        if (e instanceof WebApplicationException exception) return (OutboundResponse) exception.getResponse();
+        logger.error("failed to dispatch {} {}", req.getMethod(), req.getRequestURI(), e);
+        return (OutboundResponse) Response.serverError().build();
+    }
+
+    private MessageBodyWriters.Selected writer(ResourceRouter.Match match, OutboundResponse response) {
+        MediaType declared = response.getMediaType();
+        MessageBodyWriters.Selected writer = match.method().writer(writers, response, declared != null ? declared : match.mediaType());
+        if (declared == null) response.getMetadata().putSingle(HttpHeaders.CONTENT_TYPE, writer.mediaType());
+        return writer;
+    }
+
+    //返回写出去的状态码，记指标用
+    private static int write(HttpServletRequest req, HttpServletResponse resp, Prepared prepared) throws IOException {
+        writeHead(resp, prepared.response());
+        if (hasBody(req, prepared)) writeBody(req, resp, prepared, resp.getOutputStream());
+        else release(prepared.response());
+        return prepared.response().getStatus();
+    }
+
+    //头要先写好：压缩开始的时候才补Content-Encoding，并把强ETag改成弱的
+    //写到一半失败也要close，池里的Deflater和缓冲才会还回去
+    static void writeBody(HttpServletRequest req, HttpServletResponse resp, Prepared prepared, OutputStream out) throws IOException {
+        OutputStream body = encoded(req, resp, prepared.writer().mediaType(), out);
+        try {
+            prepared.writeBody(body);
+        } finally {
+            if (body != out) body.close();
+        }
+    }
+
+    //资源自己设了Content-Encoding的不再压；可压缩的类型都带上Vary，不管这次有没有压
+    private static OutputStream encoded(HttpServletRequest req, HttpServletResponse resp, MediaType mediaType, OutputStream out) {
+        if (!ContentEncoding.compressible(mediaType) || resp.containsHeader(HttpHeaders.CONTENT_ENCODING)) return out;
+        resp.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        String encoding = ContentEncoding.negotiate(req.getHeader(HttpHeaders.ACCEPT_ENCODING));
+        return encoding == null ? out : ContentEncoding.encode(resp, out, encoding);
+    }
+
+    static void writeHead(HttpServletResponse resp, OutboundResponse response) {
+        resp.setStatus(response.getStatus());
+        response.getMetadata().forEach((name, values) -> {
+            for (Object value : values) resp.addHeader(name, OutboundResponse.headerValue(value));
+        });
+    }
+
+    static boolean hasBody(HttpServletRequest req, Prepared prepared) {
+        return prepared.writer() != null && !HttpMethod.HEAD.equals(req.getMethod());
+    }
+
+    record Prepared(OutboundResponse response, MessageBodyWriters.Selected writer) {
+        void writeBody(OutputStream out) throws IOException {
+            Object entity = response.getEntity();
+            writer.writeTo(entity, response.getGenericType(), response.getAnnotations(), response.getMetadata(), out);
+        }
+    }
+
+    //servlet映射成/*的时候路径在pathInfo里，映射成/的时候在servletPath里
+    private static String path(HttpServletRequest request) {
+        String path = request.getPathInfo();
+        if (path == null) path = request.getServletPath();
+        return path == null || path.isEmpty() ? "/" : path;
+    }
+}
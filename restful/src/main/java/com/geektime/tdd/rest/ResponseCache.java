@@ -0,0 +1,158 @@
+package com.geektime.tdd.rest;
+
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MediaType;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+//按访问顺序的LinkedHashMap做LRU，条数和总字节数两个上限，过期的在读到的时候删掉
+//GET、HEAD以外的请求执行完把这个路径和它下面的缓存都清掉；填缓存的GET在调用资源方法之前取stamp，
+//这中间有过清除的就不填，执行期间并发的GET读到的旧数据不会留在缓存里
+//带Set-Cookie、Cache-Control: private/no-store或者按Accept以外的请求头Vary的响应是给某个客户端的，不缓存
+final class ResponseCache {
+    static final int MAX_ENTRIES = 10_000;
+    static final long MAX_BYTES = 64L * 1024 * 1024;
+
+    private final int maxEntries;
+    private final long maxBytes;
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+    private long invalidations;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder notModified = new LongAdder();
+    private final LongAdder bytesSaved = new LongAdder();
+
+    ResponseCache() {
+        this(MAX_ENTRIES, MAX_BYTES);
+    }
+
+    ResponseCache(int maxEntries, long maxBytes) {
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+    }
+
+    record Key(String path, String query, String accept) {
+    }
+
+    //headers里已经是写到响应上的字符串，包括Content-Type和ETag；mediaType用来决定要不要压缩
+    record Entry(byte[] body, String etag, MediaType mediaType, List<Map.Entry<String, String>> headers, long expiresAt) {
+    }
+
+    record Statistics(long hits, long misses, long notModified, long bytesSaved, int entries, long bytes) {
+        double hitRate() {
+            long total = hits + misses;
+            return total == 0 ? 0 : (double) hits / total;
+        }
+    }
+
+    Entry get(Key key, long now) {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+            if (entry != null && entry.expiresAt() - now <= 0) {
+                entries.remove(key);
+                bytes -= entry.body().length;
+                entry = null;
+            }
+        }
+        (entry == null ? misses : hits).increment();
+        return entry;
+    }
+
+    synchronized long stamp() {
+        return invalidations;
+    }
+
+    synchronized void put(Key key, Entry entry) {
+        put(key, entry, invalidations);
+    }
+
+    synchronized void put(Key key, Entry entry, long stamp) {
+        if (stamp != invalidations || entry.body().length > maxBytes) return;
+        Entry previous = entries.put(key, entry);
+        if (previous != null) bytes -= previous.body().length;
+        bytes += entry.body().length;
+        Iterator<Entry> eldest = entries.values().iterator();
+        while ((entries.size() > maxEntries || bytes > maxBytes) && eldest.hasNext()) {
+            bytes -= eldest.next().body().length;
+            eldest.remove();
+        }
+    }
+
+    synchronized void invalidate(String path) {
+        invalidations++;
+        Iterator<Map.Entry<Key, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Key, Entry> entry = iterator.next();
+            String cached = entry.getKey().path();
+            if (cached.equals(path) || cached.startsWith(path.endsWith("/") ? path : path + "/")) {
+                bytes -= entry.getValue().body().length;
+                iterator.remove();
+            }
+        }
+    }
+
+    static boolean storable(List<Map.Entry<String, String>> headers) {
+        for (Map.Entry<String, String> header : headers) {
+            String name = header.getKey();
+            String value = header.getValue().toLowerCase(Locale.ROOT);
+            if (name.equalsIgnoreCase(HttpHeaders.SET_COOKIE)) return false;
+            if (name.equalsIgnoreCase(HttpHeaders.CACHE_CONTROL) && (value.contains("private") || value.contains("no-store")))
+                return false;
+            if (name.equalsIgnoreCase(HttpHeaders.VARY)) {
+                for (String vary : value.split(",")) {
+                    vary = vary.trim();
+                    if (!vary.equals("accept") && !vary.equals("accept-encoding")) return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    //304少写的就是响应体
+    void notModified(Entry entry) {
+        notModified.increment();
+        bytesSaved.add(entry.body().length);
+    }
+
+    Statistics statistics() {
+        synchronized (this) {
+            return new Statistics(hits.sum(), misses.sum(), notModified.sum(), bytesSaved.sum(), entries.size(), bytes);
+        }
+    }
+
+    //强ETag：响应体SHA-256的前16个字节
+    static String etag(byte[] body) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+            StringBuilder etag = new StringBuilder(34).append('"');
+            for (int i = 0; i < 16; i++) etag.append(Character.forDigit(digest[i] >> 4 & 0xf, 16)).append(Character.forDigit(digest[i] & 0xf, 16));
+            return etag.append('"').toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    //If-None-Match用弱比较：忽略W/前缀，*匹配任何已有的表示
+    static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || etag == null) return false;
+        String opaque = opaque(etag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.equals("*") || opaque(candidate).equals(opaque)) return true;
+        }
+        return false;
+    }
+
+    private static String opaque(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+}
@@ -0,0 +1,14 @@
+package com.geektime.tdd.rest;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+//资源类没有跟请求相关的状态，对象用完放回池里给后面的请求，不用每次都让容器反射构造、注入
+//池里的对象不会再注入，所以不能依赖@RequestScoped的组件，请求相关的东西用@Context参数拿
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface Reusable {
+    int pool() default 64;
+}
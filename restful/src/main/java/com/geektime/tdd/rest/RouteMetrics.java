@@ -0,0 +1,68 @@
+package com.geektime.tdd.rest;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+//一个资源方法（HTTP方法+@Path模板）一份，启动的时候建好，请求里只做原子加，没有查表和锁
+//延迟直方图的桶是固定的，计数不累加，输出的时候再按Prometheus的le累加
+final class RouteMetrics {
+    static final long[] BOUNDS = {500_000, 1_000_000, 2_500_000, 5_000_000, 10_000_000, 25_000_000, 50_000_000,
+            100_000_000, 250_000_000, 500_000_000, 1_000_000_000, 2_500_000_000L, 5_000_000_000L, 10_000_000_000L};
+    //响应还没写出去客户端就断开了，沿用nginx的499
+    static final int CLOSED = 499;
+    private static final int STATUSES = 600;
+
+    private final byte[] labels;
+    private final AtomicLongArray statuses = new AtomicLongArray(STATUSES);
+    private final AtomicLongArray buckets = new AtomicLongArray(BOUNDS.length + 1);
+    private final LongAdder nanos = new LongAdder();
+    private final LongAdder inFlight = new LongAdder();
+
+    RouteMetrics(String httpMethod, String route) {
+        this.labels = ("method=\"" + escape(httpMethod) + "\",route=\"" + escape(route) + "\"").getBytes(StandardCharsets.UTF_8);
+    }
+
+    long start() {
+        inFlight.increment();
+        return System.nanoTime();
+    }
+
+    void end(long start, int status) {
+        long elapsed = System.nanoTime() - start;
+        inFlight.decrement();
+        statuses.incrementAndGet(status >= 0 && status < STATUSES ? status : 0);
+        int bucket = 0;
+        while (bucket < BOUNDS.length && elapsed > BOUNDS[bucket]) bucket++;
+        buckets.incrementAndGet(bucket);
+        nanos.add(elapsed);
+    }
+
+    byte[] labels() {
+        return labels;
+    }
+
+    int statuses() {
+        return STATUSES;
+    }
+
+    long status(int status) {
+        return statuses.get(status);
+    }
+
+    long bucket(int bucket) {
+        return buckets.get(bucket);
+    }
+
+    long nanos() {
+        return nanos.sum();
+    }
+
+    long inFlight() {
+        return inFlight.sum();
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
@@ -0,0 +1,137 @@
+package com.geektime.tdd.rest;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+//按路径段组织的前缀树：字面量段走HashMap，变量段按类型分成任意段、纯数字段、自定义正则段三种边，
+//匹配只沿着路径往下走一遍，和路由数量无关
+//一个路径可能同时匹配多个模板，rank就是模板在JAX-RS优先级里的名次，越小越优先；
+//每个节点记下子树里最好的rank，已经找到更好的结果就不再进这个子树
+//拆不成段的模板（{id}.json这种，或者正则能跨/的）放在fallback里按正则匹配，一样参与rank比较
+final class RouteTree<T> {
+    private static final String[] NO_SEGMENTS = new String[0];
+
+    private final Node<T> root = new Node<>();
+    private final List<Fallback<T>> fallbacks = new ArrayList<>();
+
+    void add(UriTemplate template, int rank, T value) {
+        List<UriTemplate.Segment> segments = template.segments();
+        if (segments == null) {
+            fallbacks.add(new Fallback<>(template, rank, value));
+            return;
+        }
+        int[] variables = new int[template.names().size()];
+        Node<T> node = root;
+        node.best = Math.min(node.best, rank);
+        for (int depth = 0; depth < segments.size(); depth++) {
+            UriTemplate.Segment segment = segments.get(depth);
+            if (!segment.isLiteral()) variables[segment.variable()] = depth;
+            node = node.child(segment);
+            node.best = Math.min(node.best, rank);
+        }
+        if (node.leaf == null || rank < node.leaf.rank()) node.leaf = new Leaf<>(rank, value, variables);
+    }
+
+    Found<T> match(String path) {
+        String[] segments = split(path);
+        if (segments == null) return null;
+        Search<T> search = new Search<>(segments);
+        search.visit(root, 0);
+        for (Fallback<T> fallback : fallbacks) {
+            if (search.leaf != null && search.leaf.rank() < fallback.rank()) continue;
+            String[] values = fallback.template().match(path);
+            if (values != null && (search.found == null || fallback.rank() < search.found.rank()))
+                search.found = new Found<>(fallback.rank(), fallback.value(), values);
+        }
+        if (search.found != null) return search.found;
+        if (search.leaf == null) return null;
+        int[] variables = search.leaf.variables();
+        String[] values = new String[variables.length];
+        for (int i = 0; i < variables.length; i++) values[i] = segments[variables[i]];
+        return new Found<>(search.leaf.rank(), search.leaf.value(), values);
+    }
+
+    //和UriTemplate的正则一样：允许末尾多一个/，中间出现空段就匹配不上
+    private static String[] split(String path) {
+        int end = path.length();
+        if (end > 1 && path.charAt(end - 1) == '/') end--;
+        if (end == 0 || path.charAt(0) != '/') return null;
+        if (end == 1) return NO_SEGMENTS;
+        int count = 1;
+        for (int i = 1; i < end; i++) if (path.charAt(i) == '/') count++;
+        String[] segments = new String[count];
+        int start = 1;
+        for (int i = 0; i < count; i++) {
+            int slash = path.indexOf('/', start);
+            int stop = slash < 0 || slash > end ? end : slash;
+            segments[i] = path.substring(start, stop);
+            start = stop + 1;
+        }
+        return segments;
+    }
+
+    record Found<T>(int rank, T value, String[] values) {
+    }
+
+    private record Leaf<T>(int rank, T value, int[] variables) {
+    }
+
+    private record Fallback<T>(UriTemplate template, int rank, T value) {
+    }
+
+    private record PatternEdge<T>(String regex, Pattern pattern, Node<T> node) {
+    }
+
+    private static final class Node<T> {
+        private final Map<String, Node<T>> literals = new HashMap<>();
+        private final List<PatternEdge<T>> patterns = new ArrayList<>();
+        private Node<T> any;
+        private Node<T> digits;
+        private Leaf<T> leaf;
+        private int best = Integer.MAX_VALUE;
+
+        Node<T> child(UriTemplate.Segment segment) {
+            if (segment.isLiteral()) return literals.computeIfAbsent(segment.literal(), s -> new Node<>());
+            String regex = segment.regex();
+            if (regex == null) return any != null ? any : (any = new Node<>());
+            if (regex.equals("\\d+") || regex.equals("[0-9]+")) return digits != null ? digits : (digits = new Node<>());
+            for (PatternEdge<T> edge : patterns) if (edge.regex().equals(regex)) return edge.node();
+            PatternEdge<T> edge = new PatternEdge<>(regex, Pattern.compile(regex), new Node<>());
+            patterns.add(edge);
+            return edge.node();
+        }
+    }
+
+    private static final class Search<T> {
+        private final String[] segments;
+        private Leaf<T> leaf;
+        private Found<T> found;
+
+        Search(String[] segments) {
+            this.segments = segments;
+        }
+
+        void visit(Node<T> node, int depth) {
+            if (node == null || leaf != null && leaf.rank() <= node.best) return;
+            if (depth == segments.length) {
+                if (node.leaf != null && (leaf == null || node.leaf.rank() < leaf.rank())) leaf = node.leaf;
+                return;
+            }
+            String segment = segments[depth];
+            visit(node.literals.get(segment), depth + 1);
+            if (segment.isEmpty()) return;
+            if (isDigits(segment)) visit(node.digits, depth + 1);
+            for (PatternEdge<T> edge : node.patterns)
+                if (edge.pattern().matcher(segment).matches()) visit(edge.node(), depth + 1);
+            visit(node.any, depth + 1);
+        }
+
+        private static boolean isDigits(String segment) {
+            for (int i = 0; i < segment.length(); i++) if (segment.charAt(i) < '0' || segment.charAt(i) > '9') return false;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.geektime.tdd.rest;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+//资源方法在虚拟线程上调用，里面可以直接写阻塞代码；标在类上的话这个类的方法共用一个并发上限，
+//方法上的优先，有自己的上限
+//JDK 21以下没有虚拟线程，所有标了这个注解的方法共用一个VirtualThreadExecutor.FALLBACK_THREADS个平台线程的池，
+//同时在跑的调用数不会超过这个池的大小，maxConcurrency设得再大也只是多排队，阻塞调用并不会比容器线程上跑得更多
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE, ElementType.METHOD})
+public @interface RunOnVirtualThread {
+    //同时在跑的调用数上限，超出的排队；一般对应下游（比如连接池）能承受的并发
+    int maxConcurrency() default 64;
+}
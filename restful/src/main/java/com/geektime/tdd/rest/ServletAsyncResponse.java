@@ -0,0 +1,330 @@
+package com.geektime.tdd.rest;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.ws.rs.ServiceUnavailableException;
+import jakarta.ws.rs.container.AsyncResponse;
+import jakarta.ws.rs.container.CompletionCallback;
+import jakarta.ws.rs.container.ConnectionCallback;
+import jakarta.ws.rs.container.TimeoutHandler;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.Response;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+//异步资源方法：startAsync之后容器线程马上返回，resume可以在任何线程调用，只有第一次resume/cancel生效
+//实体先由writer写进内存，再通过WriteListener在isReady的时候按CHUNK往外写，慢客户端也不会占住线程
+//限制：MessageBodyWriter是阻塞地往OutputStream写的，没法在isReady是false的时候停下来，
+//所以整个实体在写出第一块之前就已经全部在内存里了，Stream这类大实体也一样；很大的响应应该走同步的资源方法
+//超时自己调度：AsyncContext.setTimeout在容器那次dispatch返回之后就不能再改了
+final class ServletAsyncResponse implements AsyncResponse, AsyncListener {
+    static final String ATTRIBUTE = AsyncResponse.class.getName();
+    private static final int CHUNK = 8 * 1024;
+    private static final ScheduledExecutorService TIMEOUTS = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "async-response-timeout");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private enum State {SUSPENDED, RESUMED, CANCELLED}
+
+    private final ResourceServlet servlet;
+    private final HttpServletRequest request;
+    private final HttpServletResponse response;
+    private final ResourceRouter.Match match;
+    private final long start;
+    private final RequestScope.Instances scope;
+    private final AtomicReference<State> state = new AtomicReference<>(State.SUSPENDED);
+    private final AtomicBoolean completed = new AtomicBoolean();
+    private final List<CompletionCallback> completionCallbacks = new CopyOnWriteArrayList<>();
+    private final List<ConnectionCallback> connectionCallbacks = new CopyOnWriteArrayList<>();
+    private volatile TimeoutHandler timeoutHandler;
+    private volatile ScheduledFuture<?> timeout;
+    private AsyncContext async;
+    private volatile int status = RouteMetrics.CLOSED;
+
+    ServletAsyncResponse(ResourceServlet servlet, HttpServletRequest request, HttpServletResponse response, ResourceRouter.Match match, long start) {
+        this.servlet = servlet;
+        this.request = request;
+        this.response = response;
+        this.match = match;
+        this.start = start;
+        this.scope = RequestScope.open(request, match);
+    }
+
+    void dispatch() {
+        if (!request.isAsyncSupported()) {
+            resume(new IllegalStateException("servlet must be registered with asyncSupported for " + match.method()));
+            return;
+        }
+        async = request.startAsync(request, response);
+        async.setTimeout(0);
+        async.addListener(this);
+        request.setAttribute(ATTRIBUTE, this);
+        Executor executor = match.method().executor();
+        if (executor == null) invoke();
+        else try {
+            executor.execute(this::invoke);
+        } catch (RejectedExecutionException e) {
+            resume(new ServiceUnavailableException());
+        }
+    }
+
+    //同步返回的值直接resume；@Suspended的方法自己resume
+    //请求范围的对象只在调用资源方法的这段挂在线程上，响应写完才关
+    private void invoke() {
+        scope.attach();
+        try {
+            Object result = match.method().invoke(servlet.context(), request, match.values());
+            if (result instanceof CompletionStage<?> stage) stage.whenComplete((value, error) -> {
+                if (error == null) resume(value);
+                else resume(error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+            });
+            else if (!match.method().isSuspended()) resume(result);
+        } catch (Throwable e) {
+            resume(e);
+        } finally {
+            scope.detach();
+        }
+    }
+
+    @Override
+    public boolean resume(Object entity) {
+        if (!state.compareAndSet(State.SUSPENDED, State.RESUMED)) return false;
+        ResourceServlet.Prepared prepared;
+        try {
+            prepared = servlet.prepare(match, match.method().response(entity));
+        } catch (RuntimeException e) {
+            prepared = servlet.prepare(null, ResourceServlet.failure(request, e));
+        }
+        send(prepared);
+        return true;
+    }
+
+    @Override
+    public boolean resume(Throwable failure) {
+        if (!state.compareAndSet(State.SUSPENDED, State.RESUMED)) return false;
+        send(servlet.prepare(null, ResourceServlet.failure(request, failure)));
+        return true;
+    }
+
+    @Override
+    public boolean cancel() {
+        return cancel((Object) null);
+    }
+
+    @Override
+    public boolean cancel(int retryAfter) {
+        return cancel((Object) retryAfter);
+    }
+
+    @Override
+    public boolean cancel(Date retryAfter) {
+        return cancel((Object) retryAfter);
+    }
+
+    private boolean cancel(Object retryAfter) {
+        if (!state.compareAndSet(State.SUSPENDED, State.CANCELLED)) return state.get() == State.CANCELLED;
+        Response.ResponseBuilder builder = Response.status(Response.Status.SERVICE_UNAVAILABLE);
+        if (retryAfter != null) builder.header(HttpHeaders.RETRY_AFTER, retryAfter);
+        send(servlet.prepare(null, (OutboundResponse) builder.build()));
+        return true;
+    }
+
+    @Override
+    public boolean isSuspended() {
+        return state.get() == State.SUSPENDED;
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return state.get() == State.CANCELLED;
+    }
+
+    @Override
+    public boolean isDone() {
+        return state.get() != State.SUSPENDED;
+    }
+
+    @Override
+    public boolean setTimeout(long time, TimeUnit unit) {
+        if (!isSuspended()) return false;
+        ScheduledFuture<?> previous = timeout;
+        if (previous != null) previous.cancel(false);
+        timeout = time <= NO_TIMEOUT ? null : TIMEOUTS.schedule(this::timeout, time, unit);
+        return true;
+    }
+
+    @Override
+    public void setTimeoutHandler(TimeoutHandler handler) {
+        this.timeoutHandler = handler;
+    }
+
+    //没有设置TimeoutHandler的时候按规范返回503
+    private void timeout() {
+        if (!isSuspended()) return;
+        TimeoutHandler handler = timeoutHandler;
+        if (handler != null) handler.handleTimeout(this);
+        else resume(new ServiceUnavailableException());
+    }
+
+    @Override
+    public Collection<Class<?>> register(Class<?> callback) {
+        return register(instantiate(callback));
+    }
+
+    @Override
+    public Map<Class<?>, Collection<Class<?>>> register(Class<?> callback, Class<?>... callbacks) {
+        Map<Class<?>, Collection<Class<?>>> registered = new HashMap<>();
+        registered.put(callback, register(callback));
+        for (Class<?> other : callbacks) registered.put(other, register(other));
+        return registered;
+    }
+
+    @Override
+    public Collection<Class<?>> register(Object callback) {
+        List<Class<?>> registered = new ArrayList<>();
+        if (callback instanceof CompletionCallback completion) {
+            completionCallbacks.add(completion);
+            registered.add(CompletionCallback.class);
+        }
+        if (callback instanceof ConnectionCallback connection) {
+            connectionCallbacks.add(connection);
+            registered.add(ConnectionCallback.class);
+        }
+        if (registered.isEmpty())
+            throw new IllegalArgumentException("not a CompletionCallback or ConnectionCallback: " + callback.getClass().getName());
+        return registered;
+    }
+
+    @Override
+    public Map<Class<?>, Collection<Class<?>>> register(Object callback, Object... callbacks) {
+        Map<Class<?>, Collection<Class<?>>> registered = new HashMap<>();
+        registered.put(callback.getClass(), register(callback));
+        for (Object other : callbacks) registered.put(other.getClass(), register(other));
+        return registered;
+    }
+
+    private static Object instantiate(Class<?> callback) {
+        try {
+            return callback.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException("can not instantiate callback " + callback.getName(), e);
+        }
+    }
+
+    private void send(ResourceServlet.Prepared prepared) {
+        ScheduledFuture<?> pending = timeout;
+        if (pending != null) pending.cancel(false);
+        servlet.invalidate(request);
+        status = prepared.response().getStatus();
+        if (async == null) {
+            //没能进入异步模式，还在容器线程里，直接同步写
+            try {
+                ResourceServlet.writeHead(response, prepared.response());
+                if (ResourceServlet.hasBody(request, prepared))
+                    ResourceServlet.writeBody(request, response, prepared, response.getOutputStream());
+                else ResourceServlet.release(prepared.response());
+            } catch (IOException | RuntimeException e) {
+                notifyCompletion(e);
+                return;
+            }
+            notifyCompletion(null);
+            return;
+        }
+        try {
+            ResourceServlet.writeHead(response, prepared.response());
+            byte[] body = new byte[0];
+            if (ResourceServlet.hasBody(request, prepared)) {
+                ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+                ResourceServlet.writeBody(request, response, prepared, buffer);
+                body = buffer.toByteArray();
+            } else ResourceServlet.release(prepared.response());
+            ServletOutputStream out = response.getOutputStream();
+            out.setWriteListener(new BodyWriter(out, body));
+        } catch (IOException | RuntimeException e) {
+            complete(e);
+        }
+    }
+
+    private final class BodyWriter implements WriteListener {
+        private final ServletOutputStream out;
+        private final byte[] body;
+        private int offset;
+
+        BodyWriter(ServletOutputStream out, byte[] body) {
+            this.out = out;
+            this.body = body;
+        }
+
+        @Override
+        public void onWritePossible() throws IOException {
+            //写完最后一块就结束，不能等下一次isReady()：写满缓冲之后容器可能不会再回调
+            while (out.isReady()) {
+                if (offset < body.length) {
+                    int length = Math.min(CHUNK, body.length - offset);
+                    out.write(body, offset, length);
+                    offset += length;
+                }
+                if (offset == body.length) {
+                    complete(null);
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public void onError(Throwable failure) {
+            complete(failure);
+        }
+    }
+
+    private void complete(Throwable failure) {
+        if (!completed.compareAndSet(false, true)) return;
+        try {
+            async.complete();
+        } finally {
+            notifyCompletion(failure);
+        }
+    }
+
+    //写失败的按客户端断开记，一次请求只会走到这里一次
+    private void notifyCompletion(Throwable failure) {
+        scope.close();
+        match.method().metrics().end(start, failure == null ? status : RouteMetrics.CLOSED);
+        for (CompletionCallback callback : completionCallbacks) callback.onComplete(failure);
+    }
+
+    @Override
+    public void onComplete(AsyncEvent event) {
+    }
+
+    @Override
+    public void onTimeout(AsyncEvent event) {
+    }
+
+    //客户端断开或者写失败
+    @Override
+    public void onError(AsyncEvent event) {
+        for (ConnectionCallback callback : connectionCallbacks) callback.onDisconnect(this);
+        if (state.compareAndSet(State.SUSPENDED, State.CANCELLED)) {
+            ScheduledFuture<?> pending = timeout;
+            if (pending != null) pending.cancel(false);
+        }
+        complete(event.getThrowable());
+    }
+
+    @Override
+    public void onStartAsync(AsyncEvent event) {
+    }
+}
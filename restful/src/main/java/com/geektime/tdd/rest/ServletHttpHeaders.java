@@ -0,0 +1,87 @@
+package com.geektime.tdd.rest;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.ws.rs.core.Cookie;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.MultivaluedHashMap;
+import jakarta.ws.rs.core.MultivaluedMap;
+
+import java.util.*;
+
+//直接读servlet的请求头，只有getRequestHeaders和getCookies会把全部内容复制一份
+final class ServletHttpHeaders implements HttpHeaders {
+    private final HttpServletRequest request;
+
+    ServletHttpHeaders(HttpServletRequest request) {
+        this.request = request;
+    }
+
+    @Override
+    public List<String> getRequestHeader(String name) {
+        Enumeration<String> values = request.getHeaders(name);
+        return values == null || !values.hasMoreElements() ? null : Collections.list(values);
+    }
+
+    @Override
+    public String getHeaderString(String name) {
+        List<String> values = getRequestHeader(name);
+        return values == null ? null : String.join(",", values);
+    }
+
+    @Override
+    public MultivaluedMap<String, String> getRequestHeaders() {
+        MultivaluedMap<String, String> headers = new MultivaluedHashMap<>();
+        Enumeration<String> names = request.getHeaderNames();
+        if (names == null) return headers;
+        for (String name : Collections.list(names))
+            for (String value : Collections.list(request.getHeaders(name))) headers.add(name, value);
+        return headers;
+    }
+
+    @Override
+    public List<MediaType> getAcceptableMediaTypes() {
+        return MediaTypes.accept(request.getHeader(ACCEPT));
+    }
+
+    //servlet已经按Accept-Language的q排好序了，没有这个头的时候是默认的Locale
+    @Override
+    public List<Locale> getAcceptableLanguages() {
+        Enumeration<Locale> locales = request.getLocales();
+        return locales == null ? List.of() : Collections.list(locales);
+    }
+
+    @Override
+    public MediaType getMediaType() {
+        String type = request.getContentType();
+        return type == null ? null : MediaTypes.request(CONTENT_TYPE, type);
+    }
+
+    @Override
+    public Locale getLanguage() {
+        String language = request.getHeader(CONTENT_LANGUAGE);
+        return language == null ? null : Locale.forLanguageTag(language.strip());
+    }
+
+    @Override
+    public Map<String, Cookie> getCookies() {
+        jakarta.servlet.http.Cookie[] cookies = request.getCookies();
+        if (cookies == null) return Map.of();
+        Map<String, Cookie> result = new LinkedHashMap<>();
+        for (jakarta.servlet.http.Cookie cookie : cookies)
+            result.putIfAbsent(cookie.getName(), new Cookie.Builder(cookie.getName()).value(cookie.getValue())
+                    .path(cookie.getPath()).domain(cookie.getDomain()).build());
+        return result;
+    }
+
+    @Override
+    public Date getDate() {
+        long date = request.getDateHeader(DATE);
+        return date < 0 ? null : new Date(date);
+    }
+
+    @Override
+    public int getLength() {
+        return request.getContentLength();
+    }
+}
@@ -0,0 +1,185 @@
+package com.geektime.tdd.rest;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.ws.rs.core.MultivaluedHashMap;
+import jakarta.ws.rs.core.MultivaluedMap;
+import jakarta.ws.rs.core.PathSegment;
+import jakarta.ws.rs.core.UriBuilder;
+import jakarta.ws.rs.core.UriInfo;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+//路径和查询参数都从servlet的请求里现算，路径参数用路由时匹配出来的值
+final class ServletUriInfo implements UriInfo {
+    private final HttpServletRequest request;
+    private final ResourceRouter.Match match;
+
+    ServletUriInfo(HttpServletRequest request, ResourceRouter.Match match) {
+        this.request = request;
+        this.match = match;
+    }
+
+    @Override
+    public String getPath() {
+        return getPath(true);
+    }
+
+    //相对于base URI，不带开头的/
+    @Override
+    public String getPath(boolean decode) {
+        String path;
+        if (decode) {
+            path = request.getPathInfo();
+            if (path == null) path = request.getServletPath();
+        } else {
+            path = request.getRequestURI();
+            String prefix = nullToEmpty(request.getContextPath()) + (request.getPathInfo() != null ? nullToEmpty(request.getServletPath()) : "");
+            if (path != null && path.startsWith(prefix)) path = path.substring(prefix.length());
+        }
+        if (path == null) return "";
+        return path.startsWith("/") ? path.substring(1) : path;
+    }
+
+    @Override
+    public List<PathSegment> getPathSegments() {
+        return getPathSegments(true);
+    }
+
+    @Override
+    public List<PathSegment> getPathSegments(boolean decode) {
+        List<PathSegment> segments = new ArrayList<>();
+        for (String segment : getPath(decode).split("/", -1)) segments.add(new Segment(segment));
+        return segments;
+    }
+
+    @Override
+    public URI getRequestUri() {
+        String query = request.getQueryString();
+        return URI.create(query == null ? request.getRequestURL().toString() : request.getRequestURL() + "?" + query);
+    }
+
+    @Override
+    public UriBuilder getRequestUriBuilder() {
+        return UriBuilder.fromUri(getRequestUri());
+    }
+
+    @Override
+    public URI getAbsolutePath() {
+        return URI.create(request.getRequestURL().toString());
+    }
+
+    @Override
+    public UriBuilder getAbsolutePathBuilder() {
+        return UriBuilder.fromUri(getAbsolutePath());
+    }
+
+    //servlet映射成/*的时候base是servletPath，映射成/的时候servletPath已经是请求路径的一部分了
+    @Override
+    public URI getBaseUri() {
+        String base = nullToEmpty(request.getContextPath()) + (request.getPathInfo() != null ? nullToEmpty(request.getServletPath()) : "");
+        return URI.create(request.getScheme() + "://" + request.getServerName() + ":" + request.getServerPort() + base + "/");
+    }
+
+    @Override
+    public UriBuilder getBaseUriBuilder() {
+        return UriBuilder.fromUri(getBaseUri());
+    }
+
+    @Override
+    public MultivaluedMap<String, String> getPathParameters() {
+        return getPathParameters(true);
+    }
+
+    @Override
+    public MultivaluedMap<String, String> getPathParameters(boolean decode) {
+        MultivaluedMap<String, String> parameters = new MultivaluedHashMap<>();
+        List<String> names = match.method().template().names();
+        for (int i = 0; i < names.size(); i++) {
+            String value = match.values()[i];
+            if (value != null) parameters.add(names.get(i), decode ? value : encode(value));
+        }
+        return parameters;
+    }
+
+    @Override
+    public MultivaluedMap<String, String> getQueryParameters() {
+        return getQueryParameters(true);
+    }
+
+    @Override
+    public MultivaluedMap<String, String> getQueryParameters(boolean decode) {
+        MultivaluedMap<String, String> parameters = new MultivaluedHashMap<>();
+        String query = request.getQueryString();
+        if (query == null || query.isEmpty()) return parameters;
+        for (String pair : query.split("&")) {
+            if (pair.isEmpty()) continue;
+            int equals = pair.indexOf('=');
+            String name = equals < 0 ? pair : pair.substring(0, equals);
+            String value = equals < 0 ? "" : pair.substring(equals + 1);
+            if (decode) parameters.add(decode(name), decode(value));
+            else parameters.add(name, value);
+        }
+        return parameters;
+    }
+
+    @Override
+    public List<String> getMatchedURIs() {
+        return getMatchedURIs(true);
+    }
+
+    //子资源定位器还不支持，匹配上的只有资源方法这一层
+    @Override
+    public List<String> getMatchedURIs(boolean decode) {
+        return List.of(getPath(decode));
+    }
+
+    //资源对象在调用的时候才取（可能来自池），这里不记录
+    @Override
+    public List<Object> getMatchedResources() {
+        return List.of();
+    }
+
+    @Override
+    public URI resolve(URI uri) {
+        return getBaseUri().resolve(uri);
+    }
+
+    @Override
+    public URI relativize(URI uri) {
+        return getRequestUri().relativize(uri.isAbsolute() ? uri : resolve(uri));
+    }
+
+    private static String decode(String value) {
+        return URLDecoder.decode(value, StandardCharsets.UTF_8);
+    }
+
+    private static String encode(String value) {
+        try {
+            return new URI(null, null, value, null).getRawPath();
+        } catch (URISyntaxException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    private static String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
+
+    //matrix参数不支持，分号也算在段里
+    private record Segment(String path) implements PathSegment {
+        @Override
+        public String getPath() {
+            return path;
+        }
+
+        @Override
+        public MultivaluedMap<String, String> getMatrixParameters() {
+            return new MultivaluedHashMap<>();
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.geektime.tdd.rest;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+//@Path的模板在启动的时候编译成正则，每个变量一个命名分组（自定义正则里自己的分组不影响编号）
+//排序按JAX-RS 3.7.2：字面字符多的优先，然后是变量多的，然后是带自定义正则的变量多的
+final class UriTemplate {
+    static final Pattern VARIABLE = Pattern.compile("\\{\\s*([\\w.-]+)\\s*(?::\\s*((?:[^{}]|\\{[^{}]*})+?)\\s*)?}");
+    private static final String DEFAULT_REGEX = "[^/]+?";
+
+    static final Comparator<UriTemplate> PRECEDENCE = Comparator.comparingInt((UriTemplate t) -> t.literalCharacters)
+            .thenComparingInt(t -> t.names.size())
+            .thenComparingInt(t -> t.customVariables)
+            .reversed()
+            .thenComparing(t -> t.pattern.pattern());
+
+    private final String template;
+    private final Pattern pattern;
+    private final List<String> names;
+    private final String[] groups;
+    private final int literalCharacters;
+    private final int customVariables;
+    private final List<Segment> segments;
+
+    private UriTemplate(String template) {
+        this.template = template;
+        this.names = new ArrayList<>();
+        StringBuilder regex = new StringBuilder();
+        Matcher variable = VARIABLE.matcher(template);
+        int literals = 0;
+        int custom = 0;
+        int last = 0;
+        while (variable.find()) {
+            String literal = template.substring(last, variable.start());
+            literals += literal.length();
+            if (!literal.isEmpty()) regex.append(Pattern.quote(literal));
+            if (variable.group(2) != null) custom++;
+            regex.append("(?<p").append(names.size()).append('>')
+                    .append(variable.group(2) == null ? DEFAULT_REGEX : variable.group(2)).append(')');
+            names.add(variable.group(1));
+            last = variable.end();
+        }
+        String literal = template.substring(last);
+        literals += literal.length();
+        if (!literal.isEmpty()) regex.append(Pattern.quote(literal));
+        this.pattern = Pattern.compile(regex.append("/?").toString());
+        this.groups = new String[names.size()];
+        for (int i = 0; i < groups.length; i++) groups[i] = "p" + i;
+        this.literalCharacters = literals;
+        this.customVariables = custom;
+        this.segments = segments(template);
+    }
+
+    //按/拆成段，每段要么是字面量，要么整段是一个变量；有别的写法（比如{id}.json，或者正则能匹配/）的返回null，
+    //这种模板没法放进RouteTree，只能用正则匹配
+    private static List<Segment> segments(String template) {
+        List<Segment> segments = new ArrayList<>();
+        int depth = 0;
+        int start = 1;
+        int variables = 0;
+        for (int i = 1; i <= template.length(); i++) {
+            char c = i < template.length() ? template.charAt(i) : '/';
+            if (c == '{') depth++;
+            else if (c == '}') depth--;
+            if (c != '/' || depth != 0) continue;
+            String segment = template.substring(start, i);
+            start = i + 1;
+            if (segment.isEmpty()) continue;
+            if (segment.indexOf('{') < 0) {
+                segments.add(new Segment(segment, -1, null));
+                continue;
+            }
+            Matcher variable = VARIABLE.matcher(segment);
+            if (!variable.matches()) return null;
+            String regex = variable.group(2);
+            if (regex != null && Pattern.compile(regex).matcher("/").find()) return null;
+            segments.add(new Segment(null, variables++, regex));
+        }
+        return segments;
+    }
+
+    record Segment(String literal, int variable, String regex) {
+        boolean isLiteral() {
+            return literal != null;
+        }
+    }
+
+    static UriTemplate of(String... paths) {
+        StringBuilder template = new StringBuilder();
+        for (String path : paths) {
+            if (path == null) continue;
+            String trimmed = path.strip();
+            if (trimmed.startsWith("/")) trimmed = trimmed.substring(1);
+            if (trimmed.endsWith("/")) trimmed = trimmed.substring(0, trimmed.length() - 1);
+            if (!trimmed.isEmpty()) template.append('/').append(trimmed);
+        }
+        return new UriTemplate(template.isEmpty() ? "/" : template.toString());
+    }
+
+    //不匹配返回null，匹配的话按变量声明的顺序返回各个值
+    String[] match(String path) {
+        Matcher matcher = pattern.matcher(path);
+        if (!matcher.matches()) return null;
+        String[] values = new String[groups.length];
+        for (int i = 0; i < groups.length; i++) values[i] = matcher.group(groups[i]);
+        return values;
+    }
+
+    int indexOf(String name) {
+        return names.indexOf(name);
+    }
+
+    List<String> names() {
+        return names;
+    }
+
+    List<Segment> segments() {
+        return segments;
+    }
+
+    int literalCharacters() {
+        return literalCharacters;
+    }
+
+    int customVariables() {
+        return customVariables;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || o instanceof UriTemplate other && pattern.pattern().equals(other.pattern.pattern());
+    }
+
+    @Override
+    public int hashCode() {
+        return pattern.pattern().hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return template;
+    }
+}
@@ -0,0 +1,78 @@
+package com.geektime.tdd.rest;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+//所有标了@RunOnVirtualThread的方法共用一个THREADS：JDK 21以上每个任务一个虚拟线程，
+//没有虚拟线程的JDK上退回到一个共享的、最多FALLBACK_THREADS个守护线程的线程池
+//每个注解有自己的信号量，拿不到许可的任务先放在自己的队列里，不占线程，前面的任务结束时再提交
+public final class VirtualThreadExecutor implements Executor {
+    static final int FALLBACK_THREADS = Math.max(16, Runtime.getRuntime().availableProcessors() * 4);
+    private static final ExecutorService THREADS = newThreadPerTaskExecutor("resource-virtual", FALLBACK_THREADS);
+
+    private final Semaphore permits;
+    private final Queue<Runnable> pending = new ConcurrentLinkedQueue<>();
+
+    VirtualThreadExecutor(int maxConcurrency) {
+        if (maxConcurrency <= 0) throw new IllegalArgumentException("maxConcurrency must be positive: " + maxConcurrency);
+        this.permits = new Semaphore(maxConcurrency);
+    }
+
+    static VirtualThreadExecutor of(RunOnVirtualThread annotation) {
+        return annotation == null ? null : new VirtualThreadExecutor(annotation.maxConcurrency());
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        pending.add(task);
+        drain();
+    }
+
+    //先放进队列再抢许可，放任务的和释放许可的总有一方会看到这个任务
+    private void drain() {
+        while (!pending.isEmpty() && permits.tryAcquire()) {
+            Runnable next = pending.poll();
+            if (next == null) {
+                permits.release();
+                continue;
+            }
+            THREADS.execute(() -> {
+                try {
+                    next.run();
+                } finally {
+                    permits.release();
+                    drain();
+                }
+            });
+        }
+    }
+
+    //JDK 21以上每个任务一个虚拟线程，调用方自己用信号量限制并发；
+    //老的JDK上平台线程最多maxThreads个，空闲一分钟就退出
+    static ExecutorService newThreadPerTaskExecutor(String name, int maxThreads) {
+        try {
+            return (ExecutorService) MethodHandles.publicLookup()
+                    .findStatic(Executors.class, "newVirtualThreadPerTaskExecutor", MethodType.methodType(ExecutorService.class))
+                    .invoke();
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(maxThreads, maxThreads, 1, TimeUnit.MINUTES, new LinkedBlockingQueue<>(), runnable -> {
+                Thread thread = new Thread(runnable, name);
+                thread.setDaemon(true);
+                return thread;
+            });
+            pool.allowCoreThreadTimeOut(true);
+            return pool;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package com.geektime.tdd.rest;
+
+import com.geektime.tdd.ContextConfig;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.NotFoundException;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.container.AsyncResponse;
+import jakarta.ws.rs.container.CompletionCallback;
+import jakarta.ws.rs.container.Suspended;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class AsyncResourceTest {
+    private ResourceServlet servlet;
+    private HttpServletRequest request;
+    private HttpServletResponse response;
+    private AsyncContext async;
+    private ByteArrayOutputStream body;
+    private WriteListener listener;
+    private boolean ready;
+    private int writes;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        ContextConfig config = new ContextConfig();
+        ResourceServlet.bind(config, AsyncResource.class);
+        servlet = new ResourceServlet(config.getContext(), AsyncResource.class);
+
+        request = mock(HttpServletRequest.class);
+        response = mock(HttpServletResponse.class);
+        async = mock(AsyncContext.class);
+        Map<String, Object> attributes = new HashMap<>();
+        when(request.getMethod()).thenReturn("GET");
+        when(request.isAsyncSupported()).thenReturn(true);
+        when(request.startAsync(request, response)).thenReturn(async);
+        doAnswer(invocation -> attributes.put(invocation.getArgument(0), invocation.getArgument(1)))
+                .when(request).setAttribute(any(), any());
+        when(request.getAttribute(any())).thenAnswer(invocation -> attributes.get(invocation.<String>getArgument(0)));
+
+        body = new ByteArrayOutputStream();
+        ready = true;
+        when(response.getOutputStream()).thenReturn(new ServletOutputStream() {
+            @Override
+            public boolean isReady() {
+                return ready;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+                listener = writeListener;
+                try {
+                    writeListener.onWritePossible();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            @Override
+            public void write(int b) {
+                body.write(b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                writes++;
+                body.write(b, off, len);
+                ready = false;
+            }
+        });
+    }
+
+    @Test
+    public void should_release_container_thread_until_completion_stage_completed() throws Exception {
+        when(request.getPathInfo()).thenReturn("/async/stage");
+
+        servlet.service(request, response);
+
+        verify(async, never()).complete();
+        verify(response, never()).setStatus(anyInt());
+
+        AsyncResource.pending.complete("done");
+
+        verify(response).setStatus(200);
+        verify(response).addHeader("Content-Type", "text/plain");
+        verify(async).complete();
+        assertEquals("done", body.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void should_write_body_only_when_output_stream_is_ready() throws Exception {
+        when(request.getPathInfo()).thenReturn("/async/large");
+
+        servlet.service(request, response);
+
+        assertEquals(1, writes);
+        verify(async, never()).complete();
+        while (body.size() < 20000) {
+            ready = true;
+            listener.onWritePossible();
+        }
+        ready = true;
+        listener.onWritePossible();
+
+        verify(async).complete();
+        assertEquals(3, writes);
+    }
+
+    @Test
+    public void should_buffer_whole_entity_before_first_chunk_written() throws Exception {
+        when(request.getPathInfo()).thenReturn("/async/stream");
+        ready = false;
+
+        servlet.service(request, response);
+
+        assertEquals(3000, AsyncResource.produced.get());
+        assertEquals(0, writes);
+        for (int i = 0; i < 10; i++) {
+            ready = true;
+            listener.onWritePossible();
+        }
+
+        verify(async).complete();
+        assertTrue(writes > 1);
+        assertTrue(body.toString(StandardCharsets.UTF_8).endsWith("\"item-2999\"]"));
+    }
+
+    @Test
+    public void should_map_failed_completion_stage_to_error_response() throws Exception {
+        when(request.getPathInfo()).thenReturn("/async/failed");
+
+        servlet.service(request, response);
+
+        verify(response).setStatus(404);
+        verify(async).complete();
+    }
+
+    @Test
+    public void should_resume_suspended_response_from_another_thread() throws Exception {
+        when(request.getPathInfo()).thenReturn("/async/suspended");
+        servlet.service(request, response);
+        CompletionCallback callback = mock(CompletionCallback.class);
+        AsyncResource.suspended.register(callback);
+
+        assertTrue(AsyncResource.suspended.isSuspended());
+        CompletableFuture.runAsync(() -> AsyncResource.suspended.resume("resumed")).get();
+
+        assertEquals("resumed", body.toString(StandardCharsets.UTF_8));
+        assertTrue(AsyncResource.suspended.isDone());
+        assertFalse(AsyncResource.suspended.resume("again"));
+        verify(callback).onComplete(null);
+    }
+
+    @Test
+    public void should_return_503_if_suspended_response_timed_out() throws Exception {
+        when(request.getPathInfo()).thenReturn("/async/suspended");
+        servlet.service(request, response);
+
+        AsyncResource.suspended.setTimeout(10, TimeUnit.MILLISECONDS);
+
+        verify(response, timeout(1000)).setStatus(503);
+        verify(async, timeout(1000)).complete();
+    }
+
+    @Test
+    public void should_return_503_with_retry_after_if_cancelled() throws Exception {
+        when(request.getPathInfo()).thenReturn("/async/suspended");
+        servlet.service(request, response);
+
+        assertTrue(AsyncResource.suspended.cancel(30));
+
+        verify(response).setStatus(503);
+        verify(response).addHeader("Retry-After", "30");
+        assertTrue(AsyncResource.suspended.isCancelled());
+    }
+
+    @Test
+    public void should_return_500_if_servlet_not_async_supported() throws Exception {
+        when(request.getPathInfo()).thenReturn("/async/stage");
+        when(request.isAsyncSupported()).thenReturn(false);
+
+        servlet.service(request, response);
+
+        verify(request, never()).startAsync(any(), any());
+        verify(response).setStatus(500);
+    }
+
+    @Path("/async")
+    public static class AsyncResource {
+        static CompletableFuture<String> pending;
+        static AsyncResponse suspended;
+        static final AtomicInteger produced = new AtomicInteger();
+
+        @GET
+        @Path("stage")
+        @Produces("text/plain")
+        public CompletionStage<String> stage() {
+            pending = new CompletableFuture<>();
+            return pending;
+        }
+
+        @GET
+        @Path("large")
+        @Produces("text/plain")
+        public CompletionStage<String> large() {
+            return CompletableFuture.completedFuture("x".repeat(20000));
+        }
+
+        @GET
+        @Path("stream")
+        @Produces("application/json")
+        public CompletionStage<Stream<String>> stream() {
+            produced.set(0);
+            return CompletableFuture.completedFuture(IntStream.range(0, 3000).mapToObj(i -> "item-" + i).peek(item -> produced.incrementAndGet()));
+        }
+
+        @GET
+        @Path("failed")
+        public CompletionStage<String> failed() {
+            return CompletableFuture.failedFuture(new NotFoundException());
+        }
+
+        @GET
+        @Path("suspended")
+        @Produces("text/plain")
+        public void suspended(@Suspended AsyncResponse response) {
+            suspended = response;
+        }
+    }
+}
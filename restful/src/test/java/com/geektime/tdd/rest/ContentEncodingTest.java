@@ -0,0 +1,201 @@
+package com.geektime.tdd.rest;
+
+import com.geektime.tdd.ContextConfig;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class ContentEncodingTest {
+    private ResourceServlet servlet;
+    private HttpServletRequest request;
+    private HttpServletResponse response;
+    private ByteArrayOutputStream body;
+    private Map<String, String> headers;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        ContextConfig config = new ContextConfig();
+        ResourceServlet.bind(config, NamesResource.class);
+        servlet = new ResourceServlet(config.getContext(), NamesResource.class);
+
+        request = mock(HttpServletRequest.class);
+        response = mock(HttpServletResponse.class);
+        body = new ByteArrayOutputStream();
+        headers = new HashMap<>();
+        when(request.getMethod()).thenReturn("GET");
+        doAnswer(invocation -> headers.put(invocation.getArgument(0), invocation.getArgument(1))).when(response).addHeader(anyString(), anyString());
+        doAnswer(invocation -> headers.put(invocation.getArgument(0), invocation.getArgument(1))).when(response).setHeader(anyString(), anyString());
+        when(response.getHeader(any())).thenAnswer(invocation -> headers.get(invocation.<String>getArgument(0)));
+        when(response.containsHeader(any())).thenAnswer(invocation -> headers.containsKey(invocation.<String>getArgument(0)));
+        when(response.getOutputStream()).thenReturn(new ServletOutputStream() {
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+            }
+
+            @Override
+            public void write(int b) {
+                body.write(b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                body.write(b, off, len);
+            }
+        });
+    }
+
+    @Test
+    public void should_gzip_large_body_if_accepted() throws Exception {
+        when(request.getPathInfo()).thenReturn("/names");
+        when(request.getHeader("Accept-Encoding")).thenReturn("gzip, deflate");
+
+        servlet.service(request, response);
+
+        assertEquals("gzip", headers.get("Content-Encoding"));
+        assertEquals("Accept-Encoding", headers.get("Vary"));
+        byte[] json = new GZIPInputStream(new ByteArrayInputStream(body.toByteArray())).readAllBytes();
+        assertEquals(plain("/names"), new String(json));
+        assertTrue(body.size() * 4 < json.length);
+    }
+
+    @Test
+    public void should_deflate_large_body_if_preferred() throws Exception {
+        when(request.getPathInfo()).thenReturn("/names");
+        when(request.getHeader("Accept-Encoding")).thenReturn("gzip;q=0.5, deflate");
+
+        servlet.service(request, response);
+
+        assertEquals("deflate", headers.get("Content-Encoding"));
+        byte[] json = new InflaterInputStream(new ByteArrayInputStream(body.toByteArray())).readAllBytes();
+        assertEquals(plain("/names"), new String(json));
+    }
+
+    @Test
+    public void should_finish_compression_if_writing_body_failed() throws Exception {
+        when(request.getPathInfo()).thenReturn("/names/broken");
+        when(request.getHeader("Accept-Encoding")).thenReturn("gzip");
+
+        assertThrows(IllegalStateException.class, () -> servlet.service(request, response));
+
+        assertEquals("gzip", headers.get("Content-Encoding"));
+        byte[] json = new GZIPInputStream(new ByteArrayInputStream(body.toByteArray())).readAllBytes();
+        assertTrue(new String(json).startsWith("[\"name-0\""));
+    }
+
+    @Test
+    public void should_not_compress_body_below_threshold() throws Exception {
+        when(request.getPathInfo()).thenReturn("/names/short");
+        when(request.getHeader("Accept-Encoding")).thenReturn("gzip");
+
+        servlet.service(request, response);
+
+        assertNull(headers.get("Content-Encoding"));
+        assertEquals("[\"name-0\"]", body.toString());
+    }
+
+    @Test
+    public void should_not_compress_if_not_accepted() throws Exception {
+        when(request.getPathInfo()).thenReturn("/names");
+        when(request.getHeader("Accept-Encoding")).thenReturn("br, gzip;q=0");
+
+        servlet.service(request, response);
+
+        assertNull(headers.get("Content-Encoding"));
+        assertEquals("Accept-Encoding", headers.get("Vary"));
+    }
+
+    @Test
+    public void should_negotiate_encoding_by_quality() {
+        assertEquals("gzip", ContentEncoding.negotiate("deflate, gzip"));
+        assertEquals("deflate", ContentEncoding.negotiate("gzip;q=0.2, deflate;q=0.8"));
+        assertEquals("gzip", ContentEncoding.negotiate("*"));
+        assertNull(ContentEncoding.negotiate("identity"));
+        assertNull(ContentEncoding.negotiate(null));
+    }
+
+    @Test
+    public void should_only_compress_textual_media_types() {
+        assertTrue(ContentEncoding.compressible(MediaType.APPLICATION_JSON_TYPE));
+        assertTrue(ContentEncoding.compressible(MediaType.valueOf("application/problem+json")));
+        assertTrue(ContentEncoding.compressible(MediaType.TEXT_PLAIN_TYPE));
+        assertFalse(ContentEncoding.compressible(MediaType.APPLICATION_OCTET_STREAM_TYPE));
+    }
+
+    private String plain(String path) throws Exception {
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        HttpServletResponse response = mock(HttpServletResponse.class);
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        when(request.getMethod()).thenReturn("GET");
+        when(request.getPathInfo()).thenReturn(path);
+        when(response.getOutputStream()).thenReturn(new ServletOutputStream() {
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+            }
+
+            @Override
+            public void write(int b) {
+                body.write(b);
+            }
+        });
+        servlet.service(request, response);
+        return body.toString();
+    }
+
+    @Path("/names")
+    public static class NamesResource {
+        @GET
+        @Produces(MediaType.APPLICATION_JSON)
+        public List<String> all() {
+            return IntStream.range(0, 1000).mapToObj(i -> "name-" + i).toList();
+        }
+
+        @GET
+        @Path("broken")
+        @Produces(MediaType.APPLICATION_JSON)
+        public Stream<String> broken() {
+            return IntStream.range(0, 1000).mapToObj(i -> {
+                if (i == 999) throw new IllegalStateException("broken");
+                return "name-" + i;
+            });
+        }
+
+        @GET
+        @Path("short")
+        @Produces(MediaType.APPLICATION_JSON)
+        public List<String> small() {
+            return List.of("name-0");
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.geektime.tdd.rest;
+
+import jakarta.ws.rs.core.MediaType;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JsonMessageBodyWriterTest {
+    private final JsonMessageBodyWriter writer = new JsonMessageBodyWriter();
+
+    @Test
+    public void should_write_record_components_in_declaration_order() throws Exception {
+        assertEquals("{\"name\":\"math\",\"credits\":3,\"score\":1.5,\"open\":true}",
+                json(new Course("math", 3, 1.5, true)));
+    }
+
+    @Test
+    public void should_write_bean_getters_sorted_by_property_name() throws Exception {
+        assertEquals("{\"active\":true,\"courses\":[{\"name\":\"math\",\"credits\":3,\"score\":0,\"open\":false}],\"id\":7,\"name\":null}",
+                json(new Student()));
+    }
+
+    @Test
+    public void should_escape_strings_and_encode_as_utf8() throws Exception {
+        assertEquals("[\"\\\"quoted\\\"\\n\",\"中文😀\",\"\\u0001\"]", json(List.of("\"quoted\"\n", "中文😀", "\u0001")));
+    }
+
+    @Test
+    public void should_write_numbers_enums_maps_and_arrays() throws Exception {
+        Map<String, Object> map = new TreeMap<>(Map.of("long", Long.MIN_VALUE, "nan", Double.NaN, "type", MediaType.class.getSimpleName()));
+        assertEquals("{\"long\":-9223372036854775808,\"nan\":null,\"type\":\"MediaType\"}", json(map));
+        assertEquals("[[1,2],\"SECONDS\"]", json(List.of(new int[]{1, 2}, java.util.concurrent.TimeUnit.SECONDS)));
+    }
+
+    @Test
+    public void should_write_stream_element_by_element_and_close_it() throws Exception {
+        AtomicBoolean closed = new AtomicBoolean();
+
+        assertEquals("[1,2,3]", json(Stream.of(1, 2, 3).onClose(() -> closed.set(true))));
+        assertTrue(closed.get());
+        assertEquals("[\"a\"]", json(List.of("a").iterator()));
+    }
+
+    @Test
+    public void should_ignore_second_close_of_json_output() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JsonOutput json = new JsonOutput(out);
+        json.writeLong(1);
+        json.close();
+        json.close();
+
+        assertEquals("1", out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void should_flush_buffer_to_output_stream_while_writing_large_stream() throws Exception {
+        int[] writes = {0};
+        long[] bytes = {0};
+        OutputStream out = new OutputStream() {
+            @Override
+            public void write(int b) {
+                writes[0]++;
+                bytes[0]++;
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                assertTrue(len <= JsonOutput.BUFFER);
+                writes[0]++;
+                bytes[0] += len;
+            }
+        };
+
+        writer.writeTo(IntStream.range(0, 100_000).mapToObj(i -> new Course("course" + i, i, 0, false)),
+                Stream.class, Stream.class, new java.lang.annotation.Annotation[0], MediaType.APPLICATION_JSON_TYPE, null, out);
+
+        assertTrue(writes[0] > 100);
+        assertTrue(bytes[0] > 100_000 * 40);
+    }
+
+    private String json(Object entity) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.writeTo(entity, entity.getClass(), entity.getClass(), new java.lang.annotation.Annotation[0],
+                MediaType.APPLICATION_JSON_TYPE, null, out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    public record Course(String name, int credits, double score, boolean open) {
+    }
+
+    public static class Student {
+        public long getId() {
+            return 7;
+        }
+
+        public String getName() {
+            return null;
+        }
+
+        public boolean isActive() {
+            return true;
+        }
+
+        public List<Course> getCourses() {
+            return List.of(new Course("math", 3, 0, false));
+        }
+    }
+}
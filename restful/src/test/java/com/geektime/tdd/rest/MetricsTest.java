@@ -0,0 +1,121 @@
+package com.geektime.tdd.rest;
+
+import com.geektime.tdd.ContextConfig;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.NotFoundException;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.PathParam;
+import jakarta.ws.rs.Produces;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class MetricsTest {
+    private ResourceServlet servlet;
+
+    @BeforeEach
+    public void setup() {
+        ContextConfig config = new ContextConfig();
+        ResourceServlet.bind(config, UsersResource.class);
+        servlet = new ResourceServlet(config.getContext(), UsersResource.class);
+    }
+
+    @Test
+    public void should_count_requests_by_route_template_and_status() throws Exception {
+        get("/users/1");
+        get("/users/2");
+        get("/users/404");
+
+        String metrics = get("/metrics");
+
+        assertTrue(metrics.contains("http_requests_total{method=\"GET\",route=\"/users/{id}\",status=\"200\"} 2\n"));
+        assertTrue(metrics.contains("http_requests_total{method=\"GET\",route=\"/users/{id}\",status=\"404\"} 1\n"));
+    }
+
+    @Test
+    public void should_record_unmatched_requests_without_route() throws Exception {
+        get("/unknown");
+
+        String metrics = get("/metrics");
+
+        assertTrue(metrics.contains("http_requests_total{method=\"\",route=\"\",status=\"404\"} 1\n"));
+    }
+
+    @Test
+    public void should_write_cumulative_latency_histogram() throws Exception {
+        get("/users/1");
+
+        String metrics = get("/metrics");
+
+        assertTrue(metrics.contains("# TYPE http_request_duration_seconds histogram\n"));
+        assertTrue(metrics.contains("http_request_duration_seconds_bucket{method=\"GET\",route=\"/users/{id}\",le=\"0.0005\"} "));
+        assertTrue(metrics.contains("http_request_duration_seconds_bucket{method=\"GET\",route=\"/users/{id}\",le=\"+Inf\"} 1\n"));
+        assertTrue(metrics.contains("http_request_duration_seconds_count{method=\"GET\",route=\"/users/{id}\"} 1\n"));
+        assertTrue(metrics.matches("(?s).*http_request_duration_seconds_sum\\{method=\"GET\",route=\"/users/\\{id}\"} 0\\.\\d{9}\n.*"));
+    }
+
+    @Test
+    public void should_count_request_in_flight_while_serving_metrics() throws Exception {
+        String metrics = get("/metrics");
+
+        assertTrue(metrics.contains("http_requests_in_flight{method=\"GET\",route=\"/metrics\"} 1\n"));
+        assertTrue(metrics.contains("http_requests_in_flight{method=\"GET\",route=\"/users/{id}\"} 0\n"));
+    }
+
+    @Test
+    public void should_bucket_latency_by_upper_bound() {
+        RouteMetrics route = new RouteMetrics("GET", "/users");
+        long start = route.start();
+        assertEquals(1, route.inFlight());
+        route.end(start, 200);
+
+        assertEquals(1, route.bucket(0));
+        assertEquals(1, route.status(200));
+        assertEquals(0, route.inFlight());
+    }
+
+    private String get(String path) throws Exception {
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        HttpServletResponse response = mock(HttpServletResponse.class);
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        when(request.getMethod()).thenReturn("GET");
+        when(request.getPathInfo()).thenReturn(path);
+        when(response.getOutputStream()).thenReturn(new ServletOutputStream() {
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+            }
+
+            @Override
+            public void write(int b) {
+                body.write(b);
+            }
+        });
+        servlet.service(request, response);
+        return body.toString(StandardCharsets.UTF_8);
+    }
+
+    @Path("/users")
+    public static class UsersResource {
+        @GET
+        @Path("{id}")
+        @Produces("text/plain")
+        public String get(@PathParam("id") String id) {
+            if (id.equals("404")) throw new NotFoundException();
+            return "user " + id;
+        }
+    }
+}
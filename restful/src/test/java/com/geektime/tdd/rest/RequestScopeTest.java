@@ -0,0 +1,223 @@
+package com.geektime.tdd.rest;
+
+import com.geektime.tdd.ContextConfig;
+import jakarta.inject.Inject;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.PathParam;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.UriInfo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class RequestScopeTest {
+    private ResourceServlet servlet;
+    private HttpServletRequest request;
+    private HttpServletResponse response;
+    private ByteArrayOutputStream body;
+
+    @BeforeEach
+    public void setup() {
+        Session.created.set(0);
+        Session.closed.set(0);
+        PooledResource.created.set(0);
+        ContextConfig config = new ContextConfig();
+        RequestScope.install(config);
+        config.bind(Session.class, Session.class);
+        config.bind(Repository.class, Repository.class);
+        ResourceServlet.bind(config, ScopedResource.class);
+        ResourceServlet.bind(config, PooledResource.class);
+        servlet = new ResourceServlet(config.getContext(), ScopedResource.class, PooledResource.class);
+    }
+
+    @Test
+    public void should_share_request_scoped_component_within_request() throws Exception {
+        get("/scoped/1");
+        assertEquals("true", body.toString(StandardCharsets.UTF_8));
+        get("/scoped/2");
+
+        assertEquals(2, Session.created.get());
+    }
+
+    @Test
+    public void should_close_request_scoped_component_after_response_written() throws Exception {
+        get("/scoped/1");
+
+        assertEquals(1, Session.closed.get());
+    }
+
+    @Test
+    public void should_inject_uri_info_and_http_headers_of_current_request() throws Exception {
+        request = mock(HttpServletRequest.class);
+        when(request.getHeaders("X-Trace")).thenReturn(Collections.enumeration(List.of("abc")));
+        get("/scoped/42/context");
+
+        assertEquals("42 scoped/42/context abc", body.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void should_build_location_and_link_from_request_uri() throws Exception {
+        request = mock(HttpServletRequest.class);
+        when(request.getRequestURL()).thenReturn(new StringBuffer("http://localhost:8080/scoped/42/orders"));
+        when(request.getScheme()).thenReturn("http");
+        when(request.getServerName()).thenReturn("localhost");
+        when(request.getServerPort()).thenReturn(8080);
+        get("/scoped/42/orders");
+
+        verify(response).setStatus(201);
+        verify(response).addHeader(HttpHeaders.LOCATION, "http://localhost:8080/scoped/42/orders/a%20b");
+        verify(response).addHeader(HttpHeaders.LINK, "<http://localhost:8080/scoped/42?page=2>; rel=\"next\"");
+    }
+
+    @Test
+    public void should_return_400_if_content_type_malformed() throws Exception {
+        request = mock(HttpServletRequest.class);
+        when(request.getContentType()).thenReturn("json");
+        get("/scoped/42/type");
+
+        verify(response).setStatus(400);
+    }
+
+    @Test
+    public void should_reuse_pooled_resource_between_requests() throws Exception {
+        get("/pooled");
+        get("/pooled");
+        get("/pooled");
+
+        assertEquals("pooled", body.toString(StandardCharsets.UTF_8));
+        assertEquals(1, PooledResource.created.get());
+    }
+
+    @Test
+    public void should_create_new_resource_if_pool_is_empty() {
+        AtomicInteger created = new AtomicInteger();
+        ResourcePool pool = new ResourcePool(context -> created.incrementAndGet(), 1);
+        Object first = pool.acquire(null);
+        Object second = pool.acquire(null);
+        pool.release(first);
+        pool.release(second);
+
+        assertEquals(2, created.get());
+        assertEquals(1, pool.idle());
+        assertSame(first, pool.acquire(null));
+    }
+
+    @Test
+    public void should_not_get_request_scoped_component_outside_request() {
+        assertThrows(IllegalStateException.class, RequestScope::current);
+    }
+
+    private void get(String path) throws Exception {
+        if (request == null) request = mock(HttpServletRequest.class);
+        response = mock(HttpServletResponse.class);
+        body = new ByteArrayOutputStream();
+        when(request.getMethod()).thenReturn("GET");
+        when(request.getPathInfo()).thenReturn(path);
+        when(response.getOutputStream()).thenReturn(new ServletOutputStream() {
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+            }
+
+            @Override
+            public void write(int b) {
+                body.write(b);
+            }
+        });
+        servlet.service(request, response);
+        request = null;
+    }
+
+    @RequestScoped
+    public static class Session implements AutoCloseable {
+        static final AtomicInteger created = new AtomicInteger();
+        static final AtomicInteger closed = new AtomicInteger();
+
+        @Inject
+        public Session() {
+            created.incrementAndGet();
+        }
+
+        @Override
+        public void close() {
+            closed.incrementAndGet();
+        }
+    }
+
+    public static class Repository {
+        @Inject
+        public Session session;
+    }
+
+    @Path("/scoped/{id}")
+    public static class ScopedResource {
+        @Inject
+        public Session session;
+        @Inject
+        public Repository repository;
+
+        @GET
+        @Produces("text/plain")
+        public String same() {
+            return String.valueOf(session == repository.session);
+        }
+
+        @GET
+        @Path("context")
+        @Produces("text/plain")
+        public String context(@Context UriInfo uriInfo, @Context HttpHeaders headers) {
+            return uriInfo.getPathParameters().getFirst("id") + " " + uriInfo.getPath() + " " + headers.getHeaderString("X-Trace");
+        }
+
+        @GET
+        @Path("orders")
+        public Response created(@Context UriInfo uriInfo) {
+            return Response.created(uriInfo.getAbsolutePathBuilder().path("{item}").build("a b"))
+                    .link(uriInfo.getBaseUriBuilder().path("scoped/{id}").queryParam("page", 2).build(42), "next").build();
+        }
+
+        @GET
+        @Path("type")
+        @Produces("text/plain")
+        public String type(@Context HttpHeaders headers) {
+            return String.valueOf(headers.getMediaType());
+        }
+    }
+
+    @Reusable
+    @Path("/pooled")
+    public static class PooledResource {
+        static final AtomicInteger created = new AtomicInteger();
+
+        @Inject
+        public PooledResource() {
+            created.incrementAndGet();
+        }
+
+        @GET
+        @Produces("text/plain")
+        public String get() {
+            return "pooled";
+        }
+    }
+}
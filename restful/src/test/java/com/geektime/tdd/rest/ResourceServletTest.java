@@ -0,0 +1,366 @@
+package com.geektime.tdd.rest;
+
+import com.geektime.tdd.ContextConfig;
+import jakarta.inject.Inject;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class ResourceServletTest {
+    private ResourceServlet servlet;
+    private HttpServletRequest request;
+    private HttpServletResponse response;
+    private ByteArrayOutputStream body;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        ContextConfig config = new ContextConfig();
+        config.bind(Greeting.class, new Greeting("hello"));
+        ResourceServlet.bind(config, UsersResource.class);
+        servlet = new ResourceServlet(config.getContext(), UsersResource.class);
+
+        request = mock(HttpServletRequest.class);
+        response = mock(HttpServletResponse.class);
+        body = new ByteArrayOutputStream();
+        when(response.getOutputStream()).thenReturn(new ServletOutputStream() {
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+            }
+
+            @Override
+            public void write(int b) {
+                body.write(b);
+            }
+        });
+    }
+
+    @Test
+    public void should_dispatch_to_resource_method_with_path_and_query_parameters() throws Exception {
+        get("/users/42");
+        when(request.getParameter("verbose")).thenReturn("true");
+
+        servlet.service(request, response);
+
+        verify(response).setStatus(200);
+        verify(response).addHeader("Content-Type", "text/plain");
+        assertEquals("hello 42 true", body());
+    }
+
+    @Test
+    public void should_prefer_literal_template_to_variable_template() throws Exception {
+        get("/users/me");
+
+        servlet.service(request, response);
+
+        assertEquals("me", body());
+    }
+
+    @Test
+    public void should_write_response_built_by_resource_method() throws Exception {
+        get("/users/created");
+
+        servlet.service(request, response);
+
+        verify(response).setStatus(201);
+        verify(response).addHeader("X-Trace", "abc");
+        verify(response).addHeader("Content-Type", "application/octet-stream");
+        assertEquals("created", body());
+    }
+
+    @Test
+    public void should_return_204_if_resource_method_returns_nothing() throws Exception {
+        when(request.getMethod()).thenReturn("DELETE");
+        when(request.getPathInfo()).thenReturn("/users/42");
+
+        servlet.service(request, response);
+
+        verify(response).setStatus(204);
+        assertEquals("", body());
+    }
+
+    @Test
+    public void should_return_404_if_no_template_matched() throws Exception {
+        get("/orders");
+
+        servlet.service(request, response);
+
+        verify(response).setStatus(404);
+    }
+
+    @Test
+    public void should_return_404_if_path_parameter_can_not_be_converted() throws Exception {
+        get("/users/not-a-number");
+
+        servlet.service(request, response);
+
+        verify(response).setStatus(404);
+    }
+
+    @Test
+    public void should_use_default_value_if_query_parameter_missing() throws Exception {
+        get("/users/search");
+
+        servlet.service(request, response);
+
+        assertEquals("10 ASC null", body());
+    }
+
+    @Test
+    public void should_convert_query_parameters_with_value_of_and_from_string() throws Exception {
+        get("/users/search");
+        when(request.getParameter("limit")).thenReturn("5");
+        when(request.getParameter("sort")).thenReturn("desc");
+        when(request.getParameter("tag")).thenReturn("new");
+
+        servlet.service(request, response);
+
+        assertEquals("5 DESC #new", body());
+    }
+
+    @Test
+    public void should_prefer_string_constructor_to_value_of() throws Exception {
+        get("/users/version");
+        when(request.getParameter("v")).thenReturn("2");
+
+        servlet.service(request, response);
+
+        assertEquals("2 constructor", body());
+    }
+
+    @Test
+    public void should_return_404_if_query_parameter_can_not_be_converted() throws Exception {
+        get("/users/search");
+        when(request.getParameter("tag")).thenReturn("");
+
+        servlet.service(request, response);
+
+        verify(response).setStatus(404);
+    }
+
+    @Test
+    public void should_return_405_with_allowed_methods_if_http_method_not_declared() throws Exception {
+        when(request.getMethod()).thenReturn("POST");
+        when(request.getPathInfo()).thenReturn("/users/42");
+
+        servlet.service(request, response);
+
+        verify(response).setStatus(405);
+        verify(response).addHeader(eq("Allow"), argThat(allow -> allow.contains("GET") && allow.contains("DELETE")));
+    }
+
+    @Test
+    public void should_return_406_if_accept_header_not_satisfied() throws Exception {
+        get("/users/42");
+        when(request.getHeader("Accept")).thenReturn("application/json");
+
+        servlet.service(request, response);
+
+        verify(response).setStatus(406);
+    }
+
+    @Test
+    public void should_return_400_if_accept_header_malformed() throws Exception {
+        get("/users/42");
+        when(request.getHeader("Accept")).thenReturn("json");
+
+        servlet.service(request, response);
+
+        verify(response).setStatus(400);
+        assertEquals(1, servlet.metrics().unmatched().status(400));
+    }
+
+    @Test
+    public void should_write_headers_but_no_body_for_head_request() throws Exception {
+        when(request.getMethod()).thenReturn("HEAD");
+        when(request.getPathInfo()).thenReturn("/users/me");
+
+        servlet.service(request, response);
+
+        verify(response).setStatus(200);
+        assertEquals("", body());
+    }
+
+    @Test
+    public void should_close_stream_entity_if_body_not_written() throws Exception {
+        UsersResource.closed.set(false);
+        when(request.getMethod()).thenReturn("HEAD");
+        when(request.getPathInfo()).thenReturn("/users/names");
+
+        servlet.service(request, response);
+
+        verify(response).setStatus(200);
+        assertTrue(UsersResource.closed.get());
+    }
+
+    @Test
+    public void should_return_500_if_resource_method_failed() throws Exception {
+        get("/users/failed");
+
+        servlet.service(request, response);
+
+        verify(response).setStatus(500);
+    }
+
+    @Test
+    public void should_reject_resource_method_with_undeclared_path_parameter() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new ResourceServlet(new ContextConfig().getContext(), IllegalResource.class));
+    }
+
+    @Test
+    public void should_reject_default_value_can_not_be_converted() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new ResourceServlet(new ContextConfig().getContext(), IllegalDefaultResource.class));
+    }
+
+    private void get(String path) {
+        when(request.getMethod()).thenReturn("GET");
+        when(request.getPathInfo()).thenReturn(path);
+    }
+
+    private String body() {
+        return body.toString(StandardCharsets.UTF_8);
+    }
+
+    record Greeting(String text) {
+    }
+
+    //valueOf和fromString都有，枚举要用fromString
+    public enum Sort {
+        ASC, DESC;
+
+        public static Sort fromString(String value) {
+            return valueOf(value.toUpperCase());
+        }
+    }
+
+    public static final class Tag {
+        private final String name;
+
+        private Tag(String name) {
+            this.name = name;
+        }
+
+        public static Tag valueOf(String value) {
+            if (value.isEmpty()) throw new IllegalStateException("empty tag");
+            return new Tag(value);
+        }
+
+        @Override
+        public String toString() {
+            return "#" + name;
+        }
+    }
+
+    //String构造函数和valueOf都有，要用构造函数
+    public record Version(String value, String via) {
+        public Version(String value) {
+            this(value, "constructor");
+        }
+
+        public static Version valueOf(String value) {
+            return new Version(value, "valueOf");
+        }
+    }
+
+    @Path("/users")
+    public static class UsersResource {
+        static final AtomicBoolean closed = new AtomicBoolean();
+
+        private final Greeting greeting;
+
+        @Inject
+        public UsersResource(Greeting greeting) {
+            this.greeting = greeting;
+        }
+
+        @GET
+        @Path("{id}")
+        @Produces(MediaType.TEXT_PLAIN)
+        public String get(@PathParam("id") long id, @QueryParam("verbose") boolean verbose) {
+            return greeting.text() + " " + id + " " + verbose;
+        }
+
+        @GET
+        @Path("me")
+        @Produces(MediaType.TEXT_PLAIN)
+        public String me() {
+            return "me";
+        }
+
+        @GET
+        @Path("search")
+        @Produces(MediaType.TEXT_PLAIN)
+        public String search(@QueryParam("limit") @DefaultValue("10") int limit,
+                             @QueryParam("sort") @DefaultValue("asc") Sort sort, @QueryParam("tag") Tag tag) {
+            return limit + " " + sort + " " + tag;
+        }
+
+        @GET
+        @Path("version")
+        @Produces(MediaType.TEXT_PLAIN)
+        public String version(@QueryParam("v") Version version) {
+            return version.value() + " " + version.via();
+        }
+
+        @GET
+        @Path("names")
+        @Produces(MediaType.APPLICATION_JSON)
+        public Stream<String> names() {
+            return Stream.of("john").onClose(() -> closed.set(true));
+        }
+
+        @GET
+        @Path("created")
+        public Response created() {
+            return Response.status(Response.Status.CREATED).header("X-Trace", "abc").entity("created".getBytes()).build();
+        }
+
+        @GET
+        @Path("failed")
+        public String failed() {
+            throw new IllegalStateException("failed");
+        }
+
+        @DELETE
+        @Path("{id}")
+        public void delete(@PathParam("id") long id) {
+        }
+    }
+
+    @Path("/illegal-default")
+    public static class IllegalDefaultResource {
+        @GET
+        public String get(@QueryParam("limit") @DefaultValue("all") int limit) {
+            return String.valueOf(limit);
+        }
+    }
+
+    @Path("/illegal")
+    public static class IllegalResource {
+        @GET
+        @Path("{id}")
+        public String get(@PathParam("name") String name) {
+            return name;
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package com.geektime.tdd.rest;
+
+import com.geektime.tdd.ContextConfig;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class ResponseCacheTest {
+    private ResourceServlet servlet;
+    private HttpServletRequest request;
+    private HttpServletResponse response;
+    private ByteArrayOutputStream body;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        ItemsResource.calls.set(0);
+        ItemsResource.duringUpdate = () -> null;
+        ContextConfig config = new ContextConfig();
+        ResourceServlet.bind(config, ItemsResource.class);
+        servlet = new ResourceServlet(config.getContext(), ItemsResource.class);
+        reset("GET", "/items/1");
+    }
+
+    @Test
+    public void should_serve_cached_body_without_invoking_resource_again() throws Exception {
+        servlet.service(request, response);
+        reset("GET", "/items/1");
+        servlet.service(request, response);
+
+        assertEquals(1, ItemsResource.calls.get());
+        verify(response).addHeader("ETag", ResponseCache.etag("item 1".getBytes(StandardCharsets.UTF_8)));
+        assertEquals("item 1", body.toString(StandardCharsets.UTF_8));
+        assertEquals(0.5, servlet.cacheStatistics().hitRate());
+    }
+
+    @Test
+    public void should_return_304_before_invoking_resource_if_etag_matched() throws Exception {
+        servlet.service(request, response);
+        reset("GET", "/items/1");
+        when(request.getHeader("If-None-Match")).thenReturn(ResponseCache.etag("item 1".getBytes(StandardCharsets.UTF_8)));
+
+        servlet.service(request, response);
+
+        assertEquals(1, ItemsResource.calls.get());
+        verify(response).setStatus(304);
+        assertEquals("", body.toString(StandardCharsets.UTF_8));
+        assertEquals(1, servlet.cacheStatistics().notModified());
+        assertEquals(6, servlet.cacheStatistics().bytesSaved());
+    }
+
+    @Test
+    public void should_use_etag_set_by_resource() throws Exception {
+        reset("GET", "/items/tagged");
+        servlet.service(request, response);
+        verify(response).addHeader("ETag", "\"v7\"");
+
+        reset("GET", "/items/tagged");
+        when(request.getHeader("If-None-Match")).thenReturn("W/\"v7\"");
+        servlet.service(request, response);
+
+        verify(response).setStatus(304);
+        assertEquals(1, ItemsResource.calls.get());
+    }
+
+    @Test
+    public void should_cache_per_accept_header() throws Exception {
+        servlet.service(request, response);
+        reset("GET", "/items/1");
+        when(request.getHeader("Accept")).thenReturn("text/*");
+        servlet.service(request, response);
+
+        assertEquals(2, ItemsResource.calls.get());
+    }
+
+    @Test
+    public void should_invalidate_path_on_unsafe_method() throws Exception {
+        servlet.service(request, response);
+        reset("POST", "/items/1");
+        servlet.service(request, response);
+        reset("GET", "/items/1");
+        servlet.service(request, response);
+
+        assertEquals(2, ItemsResource.calls.get());
+    }
+
+    @Test
+    public void should_not_keep_response_cached_while_unsafe_method_running() throws Exception {
+        reset("POST", "/items/1");
+        HttpServletRequest post = request;
+        HttpServletResponse postResponse = response;
+        ItemsResource.duringUpdate = () -> {
+            reset("GET", "/items/1");
+            servlet.service(request, response);
+            return null;
+        };
+        servlet.service(post, postResponse);
+        reset("GET", "/items/1");
+        servlet.service(request, response);
+
+        assertEquals(2, ItemsResource.calls.get());
+    }
+
+    @Test
+    public void should_not_put_entry_if_invalidated_after_stamp_taken() {
+        ResponseCache cache = new ResponseCache();
+        ResponseCache.Key key = new ResponseCache.Key("/items/1", null, null);
+        long stamp = cache.stamp();
+        cache.invalidate("/items/2");
+        cache.put(key, entry(3, Long.MAX_VALUE), stamp);
+
+        assertNull(cache.get(key, 0));
+    }
+
+    @Test
+    public void should_not_cache_response_with_set_cookie() throws Exception {
+        reset("GET", "/items/session");
+        servlet.service(request, response);
+        reset("GET", "/items/session");
+        servlet.service(request, response);
+
+        assertEquals(2, ItemsResource.calls.get());
+        verify(response).addHeader("Set-Cookie", "session=2");
+    }
+
+    @Test
+    public void should_not_store_private_or_per_client_responses() {
+        assertTrue(ResponseCache.storable(List.of(Map.entry("Vary", "Accept, Accept-Encoding"), Map.entry("Cache-Control", "max-age=30"))));
+        assertFalse(ResponseCache.storable(List.of(Map.entry("set-cookie", "id=1"))));
+        assertFalse(ResponseCache.storable(List.of(Map.entry("Cache-Control", "private, max-age=30"))));
+        assertFalse(ResponseCache.storable(List.of(Map.entry("Cache-Control", "no-store"))));
+        assertFalse(ResponseCache.storable(List.of(Map.entry("Vary", "Authorization"))));
+    }
+
+    @Test
+    public void should_expire_entry_after_ttl() {
+        ResponseCache cache = new ResponseCache();
+        ResponseCache.Key key = new ResponseCache.Key("/items/1", null, null);
+        cache.put(key, entry(3, 100));
+
+        assertNotNull(cache.get(key, 99));
+        assertNull(cache.get(key, 100));
+        assertEquals(0, cache.statistics().entries());
+    }
+
+    @Test
+    public void should_evict_least_recently_used_entries_over_limits() {
+        ResponseCache cache = new ResponseCache(2, 10);
+        ResponseCache.Key first = new ResponseCache.Key("/1", null, null);
+        ResponseCache.Key second = new ResponseCache.Key("/2", null, null);
+        ResponseCache.Key third = new ResponseCache.Key("/3", null, null);
+        cache.put(first, entry(4, Long.MAX_VALUE));
+        cache.put(second, entry(4, Long.MAX_VALUE));
+        cache.get(first, 0);
+        cache.put(third, entry(4, Long.MAX_VALUE));
+
+        assertNotNull(cache.get(first, 0));
+        assertNull(cache.get(second, 0));
+
+        cache.put(second, entry(8, Long.MAX_VALUE));
+        assertEquals(1, cache.statistics().entries());
+        assertEquals(8, cache.statistics().bytes());
+    }
+
+    @Test
+    public void should_match_if_none_match_with_weak_comparison() {
+        assertTrue(ResponseCache.matches("\"a\", W/\"b\"", "\"b\""));
+        assertTrue(ResponseCache.matches("*", "\"b\""));
+        assertFalse(ResponseCache.matches("\"a\"", "\"b\""));
+        assertFalse(ResponseCache.matches(null, "\"b\""));
+    }
+
+    private static ResponseCache.Entry entry(int size, long expiresAt) {
+        return new ResponseCache.Entry(new byte[size], "\"e\"", MediaType.TEXT_PLAIN_TYPE, List.of(), expiresAt);
+    }
+
+    private void reset(String method, String path) throws Exception {
+        request = mock(HttpServletRequest.class);
+        response = mock(HttpServletResponse.class);
+        body = new ByteArrayOutputStream();
+        when(request.getMethod()).thenReturn(method);
+        when(request.getPathInfo()).thenReturn(path);
+        when(response.getOutputStream()).thenReturn(new ServletOutputStream() {
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+            }
+
+            @Override
+            public void write(int b) {
+                body.write(b);
+            }
+        });
+    }
+
+    @Path("/items")
+    public static class ItemsResource {
+        static final AtomicInteger calls = new AtomicInteger();
+        static Callable<Object> duringUpdate;
+
+        @GET
+        @Path("{id}")
+        @Cacheable
+        @Produces("text/plain")
+        public String get(@PathParam("id") String id) {
+            calls.incrementAndGet();
+            return "item " + id;
+        }
+
+        @GET
+        @Path("tagged")
+        @Cacheable
+        @Produces("text/plain")
+        public Response tagged() {
+            calls.incrementAndGet();
+            return Response.ok("tagged").tag(new EntityTag("v7")).build();
+        }
+
+        @GET
+        @Path("session")
+        @Cacheable
+        @Produces("text/plain")
+        public Response session() {
+            return Response.ok("session").header("Set-Cookie", "session=" + calls.incrementAndGet()).build();
+        }
+
+        @POST
+        @Path("{id}")
+        public void update() throws Exception {
+            duringUpdate.call();
+        }
+    }
+}
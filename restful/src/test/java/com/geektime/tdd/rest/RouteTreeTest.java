@@ -0,0 +1,70 @@
+package com.geektime.tdd.rest;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RouteTreeTest {
+    private static RouteTree<String> tree(String... templates) {
+        List<UriTemplate> sorted = Stream.of(templates).map(UriTemplate::of).sorted(UriTemplate.PRECEDENCE).toList();
+        RouteTree<String> tree = new RouteTree<>();
+        for (int rank = 0; rank < sorted.size(); rank++) tree.add(sorted.get(rank), rank, sorted.get(rank).toString());
+        return tree;
+    }
+
+    @Test
+    public void should_capture_variable_segments_in_declaration_order() {
+        RouteTree.Found<String> found = tree("/students/{id}/courses/{course}").match("/students/1/courses/math/");
+
+        assertEquals("/students/{id}/courses/{course}", found.value());
+        assertArrayEquals(new String[]{"1", "math"}, found.values());
+    }
+
+    @Test
+    public void should_prefer_literal_segment_to_variable_segment() {
+        RouteTree<String> tree = tree("/students/{id}", "/students/me");
+
+        assertEquals("/students/me", tree.match("/students/me").value());
+        assertEquals("/students/{id}", tree.match("/students/1").value());
+    }
+
+    @Test
+    public void should_only_take_digits_on_typed_capture_segment() {
+        RouteTree<String> tree = tree("/students/{id: \\d+}", "/students/{name: [a-z]+}");
+
+        assertEquals("/students/{id: \\d+}", tree.match("/students/42").value());
+        assertEquals("/students/{name: [a-z]+}", tree.match("/students/john").value());
+        assertNull(tree.match("/students/John"));
+    }
+
+    @Test
+    public void should_follow_spec_precedence_rather_than_first_literal_branch() {
+        RouteTree<String> tree = tree("/a/cc/{y}", "/a/{x}/bbbbbb");
+
+        assertEquals("/a/{x}/bbbbbb", tree.match("/a/cc/bbbbbb").value());
+        assertEquals("/a/cc/{y}", tree.match("/a/cc/dd").value());
+    }
+
+    @Test
+    public void should_match_templates_that_can_not_be_split_into_segments_by_regex() {
+        RouteTree<String> tree = tree("/files/{name}", "/files/{name}.json", "/static/{path: .+}");
+
+        assertEquals("/files/{name}.json", tree.match("/files/report.json").value());
+        assertEquals("/files/{name}", tree.match("/files/report").value());
+        RouteTree.Found<String> found = tree.match("/static/css/site.css");
+        assertEquals("/static/{path: .+}", found.value());
+        assertArrayEquals(new String[]{"css/site.css"}, found.values());
+    }
+
+    @Test
+    public void should_not_match_empty_segment_or_unknown_path() {
+        RouteTree<String> tree = tree("/", "/students/{id}");
+
+        assertEquals("/", tree.match("/").value());
+        assertNull(tree.match("/students//"));
+        assertNull(tree.match("/teachers/1"));
+    }
+}
@@ -0,0 +1,95 @@
+package com.geektime.tdd.rest;
+
+import jakarta.ws.rs.core.*;
+import jakarta.ws.rs.ext.RuntimeDelegate;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RuntimeDelegateTest {
+
+    @Test
+    public void should_build_uri_from_template_with_values_encoded() {
+        URI uri = UriBuilder.fromUri("http://localhost:8080/users/{id}").path("orders").queryParam("q", "{q}")
+                .build("a/b", "x y&z");
+
+        assertEquals("http://localhost:8080/users/a%2Fb/orders?q=x%20y%26z", uri.toString());
+    }
+
+    @Test
+    public void should_keep_encoded_characters_and_use_same_value_for_repeated_variable() {
+        URI uri = UriBuilder.fromPath("/{a}/%20/{a}").buildFromMap(Map.of("a", "b"));
+
+        assertEquals("/b/%20/b", uri.toString());
+    }
+
+    @Test
+    public void should_replace_query_param_and_keep_template() {
+        UriBuilder builder = UriBuilder.fromUri("/users?page=1&size=10").replaceQueryParam("page", 2).path("{id}");
+
+        assertEquals("/users/{id}?size=10&page=2", builder.toTemplate());
+        assertEquals(URI.create("/users/42?size=10&page=2"), builder.build(42));
+    }
+
+    @Test
+    public void should_throw_exception_if_template_value_missing() {
+        assertThrows(IllegalArgumentException.class, () -> UriBuilder.fromPath("/users/{id}").build());
+    }
+
+    @Test
+    public void should_build_link_relative_to_base_uri() {
+        Link link = Link.fromUri("orders/1").baseUri("http://localhost/users/").rel("next").rel("last").title("order").build();
+
+        assertEquals(URI.create("http://localhost/users/orders/1"), link.getUri());
+        assertEquals(List.of("next", "last"), link.getRels());
+        assertEquals("<http://localhost/users/orders/1>; rel=\"next last\"; title=\"order\"", link.toString());
+    }
+
+    @Test
+    public void should_reject_builders_not_used_by_request() {
+        assertThrows(UnsupportedOperationException.class, () -> UriBuilder.fromPath("/users").matrixParam("a", "b"));
+        assertThrows(UnsupportedOperationException.class, () -> UriBuilder.fromPath("/users/{id}").resolveTemplate("id", 1));
+        assertThrows(UnsupportedOperationException.class, () -> Variant.mediaTypes(MediaType.TEXT_PLAIN_TYPE));
+        assertThrows(UnsupportedOperationException.class, () -> Link.valueOf("<http://localhost/users>; rel=\"next\""));
+    }
+
+    @Test
+    public void should_write_cache_control() {
+        CacheControl cacheControl = new CacheControl();
+        cacheControl.setPrivate(true);
+        cacheControl.getPrivateFields().addAll(List.of("Set-Cookie", "Authorization"));
+        cacheControl.setMaxAge(60);
+
+        RuntimeDelegate.HeaderDelegate<CacheControl> delegate = RuntimeDelegate.getInstance().createHeaderDelegate(CacheControl.class);
+        assertEquals("private=\"Set-Cookie, Authorization\", no-transform, max-age=60", delegate.toString(cacheControl));
+    }
+
+    @Test
+    public void should_write_new_cookie() {
+        NewCookie cookie = new NewCookie.Builder("session").value("abc").path("/").maxAge(3600)
+                .secure(true).httpOnly(true).sameSite(NewCookie.SameSite.LAX).build();
+
+        RuntimeDelegate.HeaderDelegate<NewCookie> delegate = RuntimeDelegate.getInstance().createHeaderDelegate(NewCookie.class);
+        assertEquals("session=abc; Path=/; Max-Age=3600; Secure; HttpOnly; SameSite=Lax", delegate.toString(cookie));
+    }
+
+    @Test
+    public void should_set_links_and_vary_on_response() {
+        Response response = Response.ok("hello")
+                .variants(List.of(new Variant(MediaType.TEXT_PLAIN_TYPE, Locale.ENGLISH, null), new Variant(MediaType.APPLICATION_JSON_TYPE, Locale.ENGLISH, null)))
+                .link("http://localhost/users?page=2", "next")
+                .cookie(new NewCookie.Builder("session").value("abc").build())
+                .build();
+
+        assertEquals(HttpHeaders.ACCEPT, response.getHeaderString(HttpHeaders.VARY));
+        assertEquals("<http://localhost/users?page=2>; rel=\"next\"", response.getHeaderString(HttpHeaders.LINK));
+        assertEquals(URI.create("http://localhost/users?page=2"), response.getLink("next").getUri());
+        assertFalse(response.hasLink("prev"));
+        assertEquals("abc", response.getCookies().get("session").getValue());
+    }
+}
@@ -0,0 +1,51 @@
+package com.geektime.tdd.rest;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UriTemplateTest {
+    @Test
+    public void should_join_class_and_method_paths() {
+        assertEquals("/users/{id}", UriTemplate.of("users/", "/{id}").toString());
+        assertEquals("/", UriTemplate.of("/", null).toString());
+    }
+
+    @Test
+    public void should_return_variable_values_in_declaration_order() {
+        UriTemplate template = UriTemplate.of("/users/{id}/orders/{order}");
+
+        assertArrayEquals(new String[]{"1", "2"}, template.match("/users/1/orders/2"));
+        assertArrayEquals(new String[]{"1", "2"}, template.match("/users/1/orders/2/"));
+        assertNull(template.match("/users/1/orders"));
+        assertNull(template.match("/users/1/orders/2/items"));
+    }
+
+    @Test
+    public void should_match_variable_with_custom_regex_containing_groups() {
+        UriTemplate template = UriTemplate.of("/files/{name: (a|b)+}/{version: \\d{1,3}}");
+
+        assertArrayEquals(new String[]{"abba", "12"}, template.match("/files/abba/12"));
+        assertNull(template.match("/files/abc/12"));
+        assertNull(template.match("/files/ab/1234"));
+    }
+
+    @Test
+    public void should_order_templates_by_literals_then_variables_then_custom_regex() {
+        UriTemplate literal = UriTemplate.of("/users/me");
+        UriTemplate twoVariables = UriTemplate.of("/users/{id}{format}");
+        UriTemplate regex = UriTemplate.of("/users/{id: \\d+}");
+        UriTemplate variable = UriTemplate.of("/users/{id}");
+
+        assertEquals(List.of(literal, twoVariables, regex, variable),
+                Stream.of(variable, regex, literal, twoVariables).sorted(UriTemplate.PRECEDENCE).toList());
+    }
+
+    @Test
+    public void should_treat_templates_with_same_regex_as_same_template() {
+        assertEquals(UriTemplate.of("/users/{id}"), UriTemplate.of("/users/{name}"));
+    }
+}
@@ -0,0 +1,184 @@
+package com.geektime.tdd.rest;
+
+import com.geektime.tdd.ContextConfig;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class VirtualThreadResourceTest {
+    private ResourceServlet servlet;
+
+    @BeforeEach
+    public void setup() {
+        ContextConfig config = new ContextConfig();
+        ResourceServlet.bind(config, BlockingResource.class);
+        servlet = new ResourceServlet(config.getContext(), BlockingResource.class);
+    }
+
+    @Test
+    public void should_invoke_resource_method_off_container_thread() throws Exception {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        AsyncContext async = service("/blocking/thread", body);
+
+        verify(async, timeout(1000)).complete();
+        assertNotEquals(Thread.currentThread().getName() + Thread.currentThread().getId(), body.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void should_limit_concurrent_invocations_of_resource_class() throws Exception {
+        BlockingResource.inFlight.set(0);
+        BlockingResource.maxInFlight.set(0);
+        AsyncContext[] contexts = new AsyncContext[10];
+        for (int i = 0; i < contexts.length; i++) contexts[i] = service("/blocking", new ByteArrayOutputStream());
+
+        for (AsyncContext async : contexts) verify(async, timeout(5000)).complete();
+        assertEquals(2, BlockingResource.maxInFlight.get());
+    }
+
+    @Test
+    public void should_queue_tasks_beyond_max_concurrency() throws Exception {
+        VirtualThreadExecutor executor = new VirtualThreadExecutor(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch second = new CountDownLatch(1);
+
+        executor.execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        executor.execute(second::countDown);
+
+        assertFalse(second.await(100, TimeUnit.MILLISECONDS));
+        release.countDown();
+        assertTrue(second.await(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void should_not_hold_shared_threads_with_tasks_waiting_for_permit() throws Exception {
+        VirtualThreadExecutor busy = new VirtualThreadExecutor(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch other = new CountDownLatch(1);
+        busy.execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        for (int i = 0; i < VirtualThreadExecutor.FALLBACK_THREADS * 2; i++) busy.execute(() -> {
+        });
+
+        new VirtualThreadExecutor(1).execute(other::countDown);
+
+        assertTrue(other.await(1, TimeUnit.SECONDS));
+        release.countDown();
+    }
+
+    @Test
+    public void should_not_start_more_platform_threads_than_max_threads_without_virtual_threads() throws Exception {
+        assumeTrue(Runtime.version().feature() < 21);
+        ExecutorService threads = VirtualThreadExecutor.newThreadPerTaskExecutor("test", 2);
+        Set<Thread> used = ConcurrentHashMap.newKeySet();
+        CountDownLatch done = new CountDownLatch(20);
+
+        for (int i = 0; i < 20; i++)
+            threads.execute(() -> {
+                used.add(Thread.currentThread());
+                done.countDown();
+            });
+
+        assertTrue(done.await(1, TimeUnit.SECONDS));
+        assertTrue(used.size() <= 2);
+        threads.shutdown();
+    }
+
+    @Test
+    public void should_not_accept_non_positive_max_concurrency() {
+        assertThrows(IllegalArgumentException.class, () -> new VirtualThreadExecutor(0));
+    }
+
+    private AsyncContext service(String path, ByteArrayOutputStream body) throws Exception {
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        HttpServletResponse response = mock(HttpServletResponse.class);
+        AsyncContext async = mock(AsyncContext.class);
+        when(request.getMethod()).thenReturn("GET");
+        when(request.getPathInfo()).thenReturn(path);
+        when(request.isAsyncSupported()).thenReturn(true);
+        when(request.startAsync(request, response)).thenReturn(async);
+        when(response.getOutputStream()).thenReturn(new ServletOutputStream() {
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+                try {
+                    writeListener.onWritePossible();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            @Override
+            public void write(int b) {
+                body.write(b);
+            }
+        });
+
+        servlet.service(request, response);
+        verify(request).startAsync(any(), any());
+        return async;
+    }
+
+    @Path("/blocking")
+    @RunOnVirtualThread(maxConcurrency = 2)
+    public static class BlockingResource {
+        static final AtomicInteger inFlight = new AtomicInteger();
+        static final AtomicInteger maxInFlight = new AtomicInteger();
+
+        @GET
+        @Produces("text/plain")
+        public String blocking() throws InterruptedException {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(50);
+                return "done";
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        }
+
+        @GET
+        @Path("thread")
+        @Produces("text/plain")
+        public String thread() {
+            return Thread.currentThread().getName() + Thread.currentThread().getId();
+        }
+    }
+}